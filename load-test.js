@@ -3,11 +3,14 @@
 import http from 'k6/http';
 import {check} from 'k6';
 
+// Amount of concurrent clients, e.g. k6 run -e VUS=1000 load-test.js
+const vus = parseInt(__ENV.VUS || '100');
+
 export const options = {
     // Key configurations for Stress test in this section
     stages: [
-        {duration: '1m', target: 100}, // Traffic ramp-up from 1 to X users over 1 minute.
-        {duration: '8m', target: 100}, // Stay at X users for 8 minutes.
+        {duration: '1m', target: vus}, // Traffic ramp-up from 1 to X users over 1 minute.
+        {duration: '8m', target: vus}, // Stay at X users for 8 minutes.
         {duration: '1m', target: 0}, // Ramp-down to 0 users over 1 minute.
     ],
     summaryTrendStats: ['avg', 'min', 'med', 'p(90)', 'p(95)', 'p(99)', 'p(99.99)', 'max', 'count'],
@@ -29,23 +32,32 @@ export default function () {
     };
 
     let usersUrl = http.url`http://localhost:8080/users`;
+    let usersPageUrl = http.url`http://localhost:8080/users?limit=1000`;
     let userId = ``;
     let userUrl;
+    let userLookupUrl;
 
     let createdUserResponse = http.post(usersUrl, defaultUser, params);
 
     if (check(createdUserResponse, {'is status 200': (r) => r.status === 200})) {
         userId = createdUserResponse.json('id');
         userUrl = http.url`http://localhost:8080/users/${userId}`;
+        userLookupUrl = http.url`http://localhost:8080/users?ids=${userId}`;
     } else {
         console.log(`Unable to create a user ${createdUserResponse.status} ${createdUserResponse.body}`);
         return;
     }
 
-    let getAllUsersResponse = http.get(usersUrl, params);
+    let getAllUsersResponse = http.get(usersPageUrl, params);
     check(getAllUsersResponse, {
         'is status 200': (r) => r.status === 200,
-        'is contains user with id': (r) => r.json().some(u => u.id === userId),
+    });
+
+    // Page might not reach the user once there are more users than the limit, lookup finds it regardless
+    let getUsersByIdsResponse = http.get(userLookupUrl, params);
+    check(getUsersByIdsResponse, {
+        'is status 200': (r) => r.status === 200,
+        'is contains user with id': (r) => r.json('users').some(u => u.id === userId && u.found),
     });
 
     let getUserByIdResponse = http.get(userUrl, params);
@@ -76,9 +88,9 @@ export default function () {
         return;
     }
 
-    let getAllUsersResponseAfterDeletion = http.get(usersUrl, params);
-    check(getAllUsersResponseAfterDeletion, {
+    let getUsersByIdsResponseAfterDeletion = http.get(userLookupUrl, params);
+    check(getUsersByIdsResponseAfterDeletion, {
         'is status 200': (r) => r.status === 200,
-        'does not contain user with id': (r) => !r.json().some(u => u.id === userId),
+        'does not contain user with id': (r) => !r.json('users').some(u => u.id === userId && u.found),
     });
 };
\ No newline at end of file
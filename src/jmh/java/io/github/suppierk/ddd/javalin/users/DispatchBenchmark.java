@@ -0,0 +1,117 @@
+package io.github.suppierk.ddd.javalin.users;
+
+import static io.github.suppierk.example.Tables.USERS;
+
+import io.github.suppierk.ddd.async.DomainNotificationProducer;
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.github.suppierk.ddd.javalin.users.queries.GetAllUsers;
+import io.github.suppierk.ddd.javalin.users.queries.GetUser;
+import io.github.suppierk.ddd.jooq.DslContextProvider;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import io.javalin.json.JavalinJackson;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.jooq.DSLContext;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Dispatch of queries through {@link UsersBoundedContext} to their handlers, including rendering
+ * and mapping by jOOQ, against a mocked connection which answers without any I/O.
+ *
+ * <p>Handlers are invoked without a Javalin context: a mocked one is built from scratch for each
+ * request, which costs far more than the dispatch itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+  private UsersBoundedContext usersBoundedContext;
+  private UsersCache usersCache;
+  private UsersRecord usersRecord;
+
+  @Setup
+  public void setUp() {
+    usersRecord = SerializationBenchmark.usersRecord(0);
+    final var page =
+        IntStream.range(0, GetAllUsers.DEFAULT_LIMIT + 1)
+            .mapToObj(SerializationBenchmark::usersRecord)
+            .toList();
+
+    // Pages are the only queries with a limit, the rest look up a single user
+    final var results = DSL.using(SQLDialect.POSTGRES);
+    final DSLContext dsl =
+        DSL.using(
+            new MockConnection(
+                context ->
+                    new MockResult[] {
+                      new MockResult(
+                          0,
+                          result(
+                              results,
+                              context.sql().contains(" limit ") ? page : List.of(usersRecord)))
+                    }),
+            SQLDialect.POSTGRES,
+            new Settings().withExecuteWithOptimisticLocking(true));
+
+    final var meterRegistry = new SimpleMeterRegistry();
+    usersCache =
+        new UsersCache(
+            new Configuration.Cache(0, null),
+            new Configuration.Replication(null, null, null, false).maxLag(),
+            new JavalinJackson(),
+            meterRegistry);
+    usersCache.put(usersRecord);
+    usersBoundedContext =
+        new UsersBoundedContext(
+            DslContextProvider.dslContextIdentity(dsl),
+            DslContextProvider.dslContextIdentity(dsl),
+            DomainNotificationProducer.empty(),
+            dsl,
+            dsl,
+            usersCache,
+            Optional.empty(),
+            new Configuration.Coalescing(false, 0, null),
+            Configuration.UpdateMode.SINGLE_STATEMENT,
+            Optional.empty(),
+            Optional.empty(),
+            Optional.empty(),
+            Optional.empty(),
+            meterRegistry);
+  }
+
+  @Benchmark
+  public Optional<UsersRecord> getUser() {
+    return usersBoundedContext.queryOneModel(new GetUser(usersRecord.getId()));
+  }
+
+  @Benchmark
+  public List<UsersRecord> getAllUsers() {
+    return usersBoundedContext.queryManyModels(new GetAllUsers());
+  }
+
+  @Benchmark
+  public Optional<UsersCache.Entry> getCachedUser() {
+    return usersCache.get(usersRecord.getId(), id -> Optional.empty());
+  }
+
+  private static Result<UsersRecord> result(DSLContext dsl, List<UsersRecord> usersRecords) {
+    final var result = dsl.newResult(USERS);
+    result.addAll(usersRecords);
+    return result;
+  }
+}
@@ -0,0 +1,78 @@
+package io.github.suppierk.ddd.javalin.users;
+
+import io.github.suppierk.ddd.javalin.ids.IdGenerator;
+import io.github.suppierk.ddd.javalin.users.commands.CreateUser;
+import io.github.suppierk.ddd.javalin.users.commands.UpdateUser;
+import io.github.suppierk.ddd.javalin.users.queries.GetUser;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Construction of domain messages, each of which generates its own ID and timestamp.
+ *
+ * <p>Identifier and clock benchmarks show how much of the construction cost they account for, where
+ * random UUIDv4 of the JDK are compared with time-ordered UUIDv7 the messages use, both on a single
+ * thread and on several threads competing for the source of randomness.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class MessagesBenchmark {
+  private final UUID id = UUID.randomUUID();
+  private final CreateUser.CreateUserRequest createUserRequest =
+      new CreateUser.CreateUserRequest("username", "password", "email@email.com");
+  private final UpdateUser.UpdateUserRequest updateUserRequest =
+      new UpdateUser.UpdateUserRequest(
+          Optional.of("username"), Optional.empty(), Optional.of("email@email.com"));
+
+  @Benchmark
+  public UUID randomUuid() {
+    return UUID.randomUUID();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public UUID randomUuidContended() {
+    return UUID.randomUUID();
+  }
+
+  @Benchmark
+  public UUID timeOrderedUuid() {
+    return IdGenerator.TIME_ORDERED.next();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public UUID timeOrderedUuidContended() {
+    return IdGenerator.TIME_ORDERED.next();
+  }
+
+  @Benchmark
+  public Instant now() {
+    return Instant.now();
+  }
+
+  @Benchmark
+  public CreateUser createUser() {
+    return new CreateUser(createUserRequest);
+  }
+
+  @Benchmark
+  public GetUser getUser() {
+    return new GetUser(id);
+  }
+
+  @Benchmark
+  public UpdateUser updateUser() {
+    return new UpdateUser(id, updateUserRequest);
+  }
+}
@@ -0,0 +1,86 @@
+package io.github.suppierk.ddd.javalin.users;
+
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.github.suppierk.ddd.javalin.users.dto.User;
+import io.github.suppierk.ddd.javalin.users.dto.UsersPage;
+import io.github.suppierk.ddd.javalin.users.queries.GetAllUsers;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import io.javalin.json.JavalinJackson;
+import io.javalin.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Mapping of records into the public representation and its serialization into responses. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+  private JsonMapper jsonMapper;
+  private UsersCache usersCache;
+  private UsersRecord usersRecord;
+  private User user;
+  private UsersPage usersPage;
+
+  @Setup
+  public void setUp() {
+    // Same as the application configures it
+    jsonMapper =
+        new JavalinJackson().updateMapper(mapper -> mapper.registerModule(new Jdk8Module()));
+    usersCache =
+        new UsersCache(
+            new Configuration.Cache(0, null),
+            new Configuration.Replication(null, null, null, false).maxLag(),
+            jsonMapper,
+            new SimpleMeterRegistry());
+    usersRecord = usersRecord(0);
+    user = new User(usersRecord);
+    usersPage =
+        new UsersPage(
+            IntStream.range(0, GetAllUsers.DEFAULT_LIMIT)
+                .mapToObj(SerializationBenchmark::usersRecord)
+                .map(User::new)
+                .toList(),
+            null);
+  }
+
+  @Benchmark
+  public User toUser() {
+    return new User(usersRecord);
+  }
+
+  @Benchmark
+  public String serializeUser() {
+    return jsonMapper.toJsonString(user, User.class);
+  }
+
+  @Benchmark
+  public String serializeUsersPage() {
+    return jsonMapper.toJsonString(usersPage, UsersPage.class);
+  }
+
+  @Benchmark
+  public UsersCache.Entry toCacheEntry() {
+    return usersCache.toEntry(usersRecord);
+  }
+
+  static UsersRecord usersRecord(int index) {
+    return new UsersRecord(
+        UUID.randomUUID(),
+        0,
+        LocalDateTime.now(),
+        "username" + index,
+        "password" + index,
+        "email" + index + "@email.com");
+  }
+}
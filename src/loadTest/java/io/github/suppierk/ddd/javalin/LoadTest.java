@@ -0,0 +1,68 @@
+package io.github.suppierk.ddd.javalin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.github.suppierk.test.AbstractDatabaseTest;
+import io.github.suppierk.test.load.LoadGenerator;
+import java.net.URI;
+import java.nio.file.Path;
+import org.github.gestalt.config.Gestalt;
+import org.github.gestalt.config.builder.GestaltBuilder;
+import org.github.gestalt.config.source.MapConfigSourceBuilder;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the scenario of {@code load-test.js} against the application backed by a Postgres container.
+ *
+ * <p>Launched by {@code ./gradlew loadTest}, which passes settings of the load as well as
+ * properties of the application prefixed with {@value #APPLICATION_PROPERTY_PREFIX}.
+ */
+class LoadTest extends AbstractDatabaseTest {
+  static final String APPLICATION_PROPERTY_PREFIX = "loadTest.app.";
+
+  @Test
+  void usersScenario() throws Exception {
+    try (final var application = createApplication()) {
+      application.start(0);
+
+      final var report =
+          new LoadGenerator(
+                  LoadGenerator.Settings.fromSystemProperties(),
+                  URI.create("http://localhost:%d".formatted(application.javalin.port())))
+              .run();
+
+      report.write(Path.of(System.getProperty("loadTest.reportDir", "build/reports/load-test")));
+      System.out.print(report.summary());
+
+      assertEquals(0, report.totalErrors(), "Failed requests, see the report");
+    }
+  }
+
+  Application createApplication() throws Exception {
+    final MapConfigSourceBuilder configSourceBuilder =
+        MapConfigSourceBuilder.builder()
+            .addCustomConfig("database.read-write.url", getJdbcUrl())
+            .addCustomConfig("database.read-write.username", "test_rw_user")
+            .addCustomConfig("database.read-write.password", "test_rw_password")
+            .addCustomConfig("database.read-only.url", getJdbcUrl())
+            .addCustomConfig("database.read-only.username", "test_ro_user")
+            .addCustomConfig("database.read-only.password", "test_ro_password");
+
+    System.getProperties()
+        .stringPropertyNames()
+        .forEach(
+            name -> {
+              if (name.startsWith(APPLICATION_PROPERTY_PREFIX)) {
+                configSourceBuilder.addCustomConfig(
+                    name.substring(APPLICATION_PROPERTY_PREFIX.length()), System.getProperty(name));
+              }
+            });
+
+    final Gestalt gestalt = new GestaltBuilder().addSource(configSourceBuilder.build()).build();
+
+    gestalt.loadConfigs();
+
+    return new Application(Configuration.with(gestalt));
+  }
+}
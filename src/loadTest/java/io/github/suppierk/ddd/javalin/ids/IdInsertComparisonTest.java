@@ -0,0 +1,150 @@
+package io.github.suppierk.ddd.javalin.ids;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.suppierk.test.AbstractDatabaseTest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares inserting users keyed by random and time-ordered identifiers.
+ *
+ * <p>Launched by {@code ./gradlew idInsertComparison}. Each generator fills its own copy of the
+ * {@code users} table in batches, starting right after a checkpoint, after which insert throughput,
+ * size of the primary key index and volume of the write-ahead log are reported side by side.
+ */
+class IdInsertComparisonTest extends AbstractDatabaseTest {
+  static final int BATCH_SIZE = 1000;
+  static final double BYTES_PER_MEBIBYTE = 1024 * 1024;
+  static final String ROW = "%-14s %12s %16s %14s%n";
+
+  static final String INSERT =
+      """
+      INSERT INTO %s(id, version, created_at, username, password, email)
+      VALUES (?, 0, ?, ?, 'password', ?)
+      """;
+
+  static final String PRIMARY_KEY_SIZE =
+      """
+      SELECT pg_relation_size(indexrelid)
+      FROM pg_index
+      WHERE indrelid = '%s'::regclass AND indisprimary
+      """;
+
+  @Test
+  void comparesRandomAndTimeOrderedIds() throws Exception {
+    final int rows = Integer.getInteger("idInsertComparison.rows", 200_000);
+    final var results = new LinkedHashMap<String, Result>();
+
+    final var properties = new Properties();
+    properties.setProperty("user", getUsername());
+    properties.setProperty("password", getPassword());
+    properties.setProperty("reWriteBatchedInserts", "true");
+
+    try (final var connection = DriverManager.getConnection(getJdbcUrl(), properties)) {
+      results.put("random", insert(connection, "users_random_ids", IdGenerator.RANDOM, rows));
+      results.put(
+          "time-ordered",
+          insert(connection, "users_time_ordered_ids", IdGenerator.TIME_ORDERED, rows));
+    }
+
+    final var report = report(rows, results);
+    System.out.print(report);
+
+    final var reportDir =
+        Path.of(System.getProperty("loadTest.reportDir", "build/reports/load-test"));
+    Files.createDirectories(reportDir);
+    Files.writeString(reportDir.resolve("ids.txt"), report);
+
+    assertTrue(
+        results.get("time-ordered").indexBytes() <= results.get("random").indexBytes(),
+        "Time-ordered IDs are expected to keep the index compact");
+  }
+
+  private static Result insert(Connection connection, String table, IdGenerator generator, int rows)
+      throws SQLException {
+    try (final var statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE %s (LIKE users INCLUDING ALL)".formatted(table));
+      statement.execute("CHECKPOINT");
+    }
+
+    final String walStart = fetchString("SELECT pg_current_wal_lsn()::text", connection);
+
+    final long startNanos = System.nanoTime();
+    connection.setAutoCommit(false);
+    try (final var statement = connection.prepareStatement(INSERT.formatted(table))) {
+      for (int i = 1; i <= rows; i++) {
+        final var id = generator.next();
+        statement.setObject(1, id);
+        statement.setObject(2, LocalDateTime.now());
+        statement.setString(3, "user" + id);
+        statement.setString(4, id + "@email.com");
+        statement.addBatch();
+
+        if (i % BATCH_SIZE == 0 || i == rows) {
+          statement.executeBatch();
+          connection.commit();
+        }
+      }
+    } finally {
+      connection.setAutoCommit(true);
+    }
+    final var elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+
+    final long walBytes =
+        fetchLong(
+            "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '%s'::pg_lsn)::bigint"
+                .formatted(walStart),
+            connection);
+    final long indexBytes = fetchLong(PRIMARY_KEY_SIZE.formatted(table), connection);
+
+    try (final var statement = connection.createStatement()) {
+      statement.execute("DROP TABLE %s".formatted(table));
+    }
+
+    return new Result(elapsed, indexBytes, walBytes);
+  }
+
+  private static long fetchLong(String sql, Connection connection) throws SQLException {
+    return Long.parseLong(fetchString(sql, connection));
+  }
+
+  private static String fetchString(String sql, Connection connection) throws SQLException {
+    try (final var statement = connection.createStatement();
+        final var resultSet = statement.executeQuery(sql)) {
+      resultSet.next();
+      return resultSet.getString(1);
+    }
+  }
+
+  private static String report(int rows, Map<String, Result> results) {
+    final var report = new StringBuilder();
+    report.append("%d rows in batches of %d%n".formatted(rows, BATCH_SIZE));
+    report.append(ROW.formatted("ids", "rows/s", "primary key MiB", "WAL MiB"));
+    results.forEach(
+        (name, result) ->
+            report.append(
+                ROW.formatted(
+                    name,
+                    "%.0f".formatted(rows / (result.elapsed().toNanos() / 1e9)),
+                    "%.1f".formatted(result.indexBytes() / BYTES_PER_MEBIBYTE),
+                    "%.1f".formatted(result.walBytes() / BYTES_PER_MEBIBYTE))));
+    return report.toString();
+  }
+
+  /**
+   * @param elapsed is the time taken to insert all rows
+   * @param indexBytes is the size of the primary key index afterwards
+   * @param walBytes is the volume of the write-ahead log written while inserting
+   */
+  record Result(Duration elapsed, long indexBytes, long walBytes) {}
+}
@@ -0,0 +1,322 @@
+package io.github.suppierk.test.load;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Drives the users API with the scenario of {@code load-test.js}: every iteration creates a user,
+ * lists users, fetches, updates and deletes the user, and lists users once more.
+ *
+ * <p>In the {@link Model#CLOSED} model, a fixed amount of virtual users run iterations back to
+ * back, joining over the ramp-up and leaving over the ramp-down like the k6 stages do. In the
+ * {@link Model#OPEN} model, iterations start at the configured rate no matter how fast previous
+ * ones finish, and the first request of each iteration is measured from its scheduled start, so
+ * that a stalled server is not hidden by fewer requests being sent.
+ *
+ * <p>Every virtual user is a virtual thread, hence thousands of concurrent clients cost next to
+ * nothing on the generating side.
+ */
+public final class LoadGenerator {
+  static final String CREATE_USER = "POST /users";
+  static final String GET_ALL_USERS = "GET /users";
+  static final String GET_USER = "GET /users/{id}";
+  static final String UPDATE_USER = "PUT /users/{id}";
+  static final String DELETE_USER = "DELETE /users/{id}";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+  private static final int SIGNIFICANT_DIGITS = 3;
+  private static final int PAGE_LIMIT = 1000;
+
+  private final Settings settings;
+  private final URI usersUri;
+  private final URI usersPageUri;
+  private final HttpClient client;
+  private final Map<String, Endpoint> endpoints;
+  private final LongAdder droppedIterations;
+
+  /**
+   * @param settings of the load
+   * @param baseUri of the application, such as {@code http://localhost:8080}
+   */
+  public LoadGenerator(Settings settings, URI baseUri) {
+    this.settings = settings;
+    this.usersUri = baseUri.resolve("/users");
+    this.usersPageUri = baseUri.resolve("/users?limit=%d".formatted(PAGE_LIMIT));
+    this.client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(REQUEST_TIMEOUT)
+            .build();
+    this.droppedIterations = new LongAdder();
+
+    this.endpoints = new LinkedHashMap<>();
+    for (String endpoint :
+        new String[] {CREATE_USER, GET_ALL_USERS, GET_USER, UPDATE_USER, DELETE_USER}) {
+      endpoints.put(endpoint, new Endpoint());
+    }
+  }
+
+  /**
+   * Applies the load for the whole duration of the settings and waits for iterations in flight.
+   *
+   * @return latencies and throughput of every endpoint
+   * @throws InterruptedException if interrupted while applying the load
+   */
+  public LoadReport run() throws InterruptedException {
+    final long startNanos = System.nanoTime();
+
+    try (final var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      switch (settings.model()) {
+        case CLOSED -> runClosed(executor, startNanos);
+        case OPEN -> runOpen(executor, startNanos);
+      }
+    }
+
+    final var elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+    final var latencies = new LinkedHashMap<String, Histogram>();
+    final var errors = new LinkedHashMap<String, Long>();
+    endpoints.forEach(
+        (name, endpoint) -> {
+          latencies.put(name, endpoint.latencies.copy());
+          errors.put(name, endpoint.errors.sum());
+        });
+
+    return new LoadReport(latencies, errors, droppedIterations.sum(), elapsed);
+  }
+
+  private void runClosed(ExecutorService executor, long startNanos) {
+    final int vus = settings.vus();
+    final long rampUp = settings.rampUp().toNanos();
+    final long steady = settings.steady().toNanos();
+    final long rampDown = settings.rampDown().toNanos();
+
+    for (int i = 0; i < vus; i++) {
+      // Users join evenly over the ramp-up and leave evenly over the ramp-down, the last one first
+      final long joinAt = startNanos + rampUp * i / vus;
+      final long leaveAt = startNanos + rampUp + steady + rampDown * (vus - 1 - i) / vus;
+
+      executor.submit(
+          () -> {
+            sleepUntil(joinAt);
+            while (System.nanoTime() < leaveAt) {
+              iterate(System.nanoTime());
+            }
+            return null;
+          });
+    }
+  }
+
+  private void runOpen(ExecutorService executor, long startNanos) throws InterruptedException {
+    final var inFlight = new Semaphore(settings.vus());
+    final double total = seconds(settings.total());
+
+    double scheduled = 0;
+    while (true) {
+      // Rate is never below one iteration per second, so that ramps do not stall arrivals
+      scheduled += 1 / Math.max(rateAt(scheduled), 1);
+      if (scheduled >= total) {
+        return;
+      }
+
+      final long scheduledAt = startNanos + (long) (scheduled * 1e9);
+      sleepUntil(scheduledAt);
+
+      if (!inFlight.tryAcquire()) {
+        droppedIterations.increment();
+        continue;
+      }
+
+      executor.submit(
+          () -> {
+            try {
+              iterate(scheduledAt);
+            } finally {
+              inFlight.release();
+            }
+          });
+    }
+  }
+
+  /**
+   * @param elapsed seconds since the start of the load
+   * @return iterations per second the open model starts at the given time
+   */
+  private double rateAt(double elapsed) {
+    final double rampUp = seconds(settings.rampUp());
+    final double steady = seconds(settings.steady());
+
+    if (elapsed < rampUp) {
+      return settings.rate() * elapsed / rampUp;
+    } else if (elapsed < rampUp + steady) {
+      return settings.rate();
+    } else {
+      return settings.rate() * (seconds(settings.total()) - elapsed) / seconds(settings.rampDown());
+    }
+  }
+
+  /**
+   * @param startedAt is the time to measure the first request from, in {@link System#nanoTime()}
+   */
+  private void iterate(long startedAt) {
+    final var unique = UUID.randomUUID().toString();
+    final var created =
+        send(
+            CREATE_USER,
+            startedAt,
+            request(usersUri)
+                .POST(
+                    body(
+                        Map.of(
+                            "username", "user" + unique,
+                            "password", "password",
+                            "email", unique + "@email.com"))));
+    if (created.isEmpty()) {
+      return;
+    }
+
+    final var userUri = usersUri.resolve("/users/" + id(created.get()));
+
+    send(GET_ALL_USERS, System.nanoTime(), request(usersPageUri).GET());
+    send(GET_USER, System.nanoTime(), request(userUri).GET());
+
+    if (send(
+                UPDATE_USER,
+                System.nanoTime(),
+                request(userUri).PUT(body(Map.of("username", "newUser" + unique))))
+            .isEmpty()
+        || send(DELETE_USER, System.nanoTime(), request(userUri).DELETE()).isEmpty()) {
+      return;
+    }
+
+    send(GET_ALL_USERS, System.nanoTime(), request(usersPageUri).GET());
+  }
+
+  /**
+   * @param endpoint to record the request for
+   * @param startedAt is the time to measure the latency from, in {@link System#nanoTime()}
+   * @param request to send
+   * @return body of the response if successful, otherwise the request is counted as an error
+   */
+  private Optional<String> send(String endpoint, long startedAt, HttpRequest.Builder request) {
+    final var stats = endpoints.get(endpoint);
+
+    try {
+      final var response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+      stats.latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt));
+
+      if (response.statusCode() == 200) {
+        return Optional.of(response.body());
+      }
+    } catch (IOException e) {
+      // Requests which got no response say nothing about latency of the application
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    stats.errors.increment();
+    return Optional.empty();
+  }
+
+  private static HttpRequest.Builder request(URI uri) {
+    return HttpRequest.newBuilder(uri)
+        .timeout(REQUEST_TIMEOUT)
+        .header("Content-Type", "application/json");
+  }
+
+  private static HttpRequest.BodyPublisher body(Map<String, String> payload) {
+    try {
+      return HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(payload));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String id(String user) {
+    try {
+      return MAPPER.readTree(user).path("id").asText();
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void sleepUntil(long deadline) throws InterruptedException {
+    final long remaining = deadline - System.nanoTime();
+    if (remaining > 0) {
+      TimeUnit.NANOSECONDS.sleep(remaining);
+    }
+  }
+
+  private static double seconds(Duration duration) {
+    return duration.toNanos() / 1e9;
+  }
+
+  /** How iterations arrive. */
+  public enum Model {
+    /** Fixed amount of virtual users, each starting the next iteration once the previous ends. */
+    CLOSED,
+
+    /** Iterations start at a fixed rate, regardless of iterations in flight. */
+    OPEN
+  }
+
+  /**
+   * Properties of the load, shaped like the stages of {@code load-test.js}.
+   *
+   * @param model of arriving iterations
+   * @param vus is the amount of virtual users, which also bounds iterations in flight of the open
+   *     model
+   * @param rate of iterations per second the open model reaches after the ramp-up
+   * @param rampUp is the time to reach the full load in
+   * @param steady is the time to hold the full load for
+   * @param rampDown is the time to go from the full load down to none in
+   */
+  public record Settings(
+      Model model, int vus, double rate, Duration rampUp, Duration steady, Duration rampDown) {
+    /**
+     * @return settings from {@code loadTest.*} system properties, as passed by Gradle
+     */
+    public static Settings fromSystemProperties() {
+      return new Settings(
+          Model.valueOf(System.getProperty("loadTest.model", "closed").toUpperCase(Locale.ROOT)),
+          Integer.getInteger("loadTest.vus", 100),
+          Double.parseDouble(System.getProperty("loadTest.rate", "200")),
+          Duration.parse(System.getProperty("loadTest.rampUp", "PT10S")),
+          Duration.parse(System.getProperty("loadTest.steady", "PT1M")),
+          Duration.parse(System.getProperty("loadTest.rampDown", "PT10S")));
+    }
+
+    /**
+     * @return duration of the whole load
+     */
+    public Duration total() {
+      return rampUp.plus(steady).plus(rampDown);
+    }
+  }
+
+  /** Latencies in microseconds and failed requests of a single endpoint. */
+  private static final class Endpoint {
+    private final Histogram latencies = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final LongAdder errors = new LongAdder();
+  }
+}
@@ -0,0 +1,161 @@
+package io.github.suppierk.test.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies and throughput of every endpoint measured by {@link LoadGenerator}.
+ *
+ * @param latencies of requests in microseconds by endpoint names, in the order of the scenario
+ * @param errors is the amount of failed requests by endpoint names
+ * @param droppedIterations is the amount of iterations of the open model which were not started,
+ *     because all virtual users were busy
+ * @param elapsed is the duration of the whole load
+ */
+public record LoadReport(
+    Map<String, Histogram> latencies,
+    Map<String, Long> errors,
+    long droppedIterations,
+    Duration elapsed) {
+  /** Report of latencies in milliseconds, which Gradle compares with the baseline. */
+  public static final String JSON_FILE = "latencies.json";
+
+  /** Full latency distributions in the HdrHistogram text format. */
+  public static final String TEXT_FILE = "latencies.txt";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final double MICROS_PER_MILLI = 1000.0;
+  private static final String ROW = "%-18s %10s %8s %10s %9s %9s %9s %9s %9s %9s %9s %9s%n";
+
+  /**
+   * @return total amount of failed requests
+   */
+  public long totalErrors() {
+    return errors.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * @return statistics by endpoint names
+   */
+  public Map<String, Stats> stats() {
+    final var stats = new LinkedHashMap<String, Stats>();
+    latencies.forEach(
+        (endpoint, histogram) ->
+            stats.put(
+                endpoint,
+                new Stats(
+                    histogram.getTotalCount(),
+                    errors.get(endpoint),
+                    histogram.getTotalCount() / (elapsed.toNanos() / 1e9),
+                    histogram.getMean() / MICROS_PER_MILLI,
+                    histogram.getMinValue() / MICROS_PER_MILLI,
+                    histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                    histogram.getValueAtPercentile(90) / MICROS_PER_MILLI,
+                    histogram.getValueAtPercentile(95) / MICROS_PER_MILLI,
+                    histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                    histogram.getValueAtPercentile(99.99) / MICROS_PER_MILLI,
+                    histogram.getMaxValue() / MICROS_PER_MILLI)));
+    return stats;
+  }
+
+  /**
+   * Writes {@value #JSON_FILE} and {@value #TEXT_FILE} into the given directory.
+   *
+   * @param directory to write the report into
+   * @throws IOException if the report cannot be written
+   */
+  public void write(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    MAPPER
+        .writerWithDefaultPrettyPrinter()
+        .writeValue(directory.resolve(JSON_FILE).toFile(), stats());
+
+    try (final var out =
+        new PrintStream(
+            Files.newOutputStream(directory.resolve(TEXT_FILE)), false, StandardCharsets.UTF_8)) {
+      out.print(summary());
+      latencies.forEach(
+          (endpoint, histogram) -> {
+            out.printf("%n%s, milliseconds%n", endpoint);
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+          });
+    }
+  }
+
+  /**
+   * @return table of statistics of every endpoint, latencies in milliseconds
+   */
+  public String summary() {
+    final var summary = new StringBuilder();
+    summary.append(
+        ROW.formatted(
+            "endpoint",
+            "requests",
+            "errors",
+            "rps",
+            "avg",
+            "min",
+            "med",
+            "p(90)",
+            "p(95)",
+            "p(99)",
+            "p(99.99)",
+            "max"));
+    stats()
+        .forEach(
+            (endpoint, stats) ->
+                summary.append(
+                    ROW.formatted(
+                        endpoint,
+                        stats.requests(),
+                        stats.errors(),
+                        "%.1f".formatted(stats.rps()),
+                        "%.2f".formatted(stats.mean()),
+                        "%.2f".formatted(stats.min()),
+                        "%.2f".formatted(stats.p50()),
+                        "%.2f".formatted(stats.p90()),
+                        "%.2f".formatted(stats.p95()),
+                        "%.2f".formatted(stats.p99()),
+                        "%.2f".formatted(stats.p9999()),
+                        "%.2f".formatted(stats.max()))));
+    summary.append(
+        "%d dropped iterations in %s%n".formatted(droppedIterations, elapsed.withNanos(0)));
+    return summary.toString();
+  }
+
+  /**
+   * Statistics of a single endpoint, latencies in milliseconds.
+   *
+   * @param requests is the amount of requests which got a response
+   * @param errors is the amount of failed requests
+   * @param rps is the average amount of responses per second over the whole load
+   * @param mean latency
+   * @param min latency
+   * @param p50 is the median latency
+   * @param p90 is the 90th percentile of latencies
+   * @param p95 is the 95th percentile of latencies
+   * @param p99 is the 99th percentile of latencies
+   * @param p9999 is the 99.99th percentile of latencies
+   * @param max latency
+   */
+  public record Stats(
+      long requests,
+      long errors,
+      double rps,
+      double mean,
+      double min,
+      double p50,
+      double p90,
+      double p95,
+      double p99,
+      double p9999,
+      double max) {}
+}
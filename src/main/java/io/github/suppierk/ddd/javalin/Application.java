@@ -5,18 +5,39 @@ import static io.javalin.apibuilder.ApiBuilder.*;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
 import io.github.suppierk.ddd.async.DomainNotificationProducer;
 import io.github.suppierk.ddd.cqrs.BoundedContext;
+import io.github.suppierk.ddd.javalin.admission.AdaptiveLimiter;
+import io.github.suppierk.ddd.javalin.admission.AdmissionRejectedException;
+import io.github.suppierk.ddd.javalin.admission.LimitedDataSource;
+import io.github.suppierk.ddd.javalin.async.DatabaseExecutor;
 import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.github.suppierk.ddd.javalin.ids.IdGenerator;
+import io.github.suppierk.ddd.javalin.ids.Ids;
+import io.github.suppierk.ddd.javalin.outbox.InProcessOutboxSink;
+import io.github.suppierk.ddd.javalin.outbox.OutboxRelay;
+import io.github.suppierk.ddd.javalin.outbox.OutboxSink;
+import io.github.suppierk.ddd.javalin.outbox.StreamOutboxSink;
+import io.github.suppierk.ddd.javalin.replication.ReadYourWrites;
+import io.github.suppierk.ddd.javalin.replication.ReplicaRoutingDataSource;
+import io.github.suppierk.ddd.javalin.users.InMemoryUsers;
 import io.github.suppierk.ddd.javalin.users.UsersBoundedContext;
+import io.github.suppierk.ddd.javalin.users.UsersCache;
+import io.github.suppierk.ddd.javalin.users.UsersProjection;
+import io.github.suppierk.ddd.javalin.users.commands.CreateUserCoalescer;
 import io.github.suppierk.ddd.jooq.DslContextProvider;
 import io.javalin.Javalin;
 import io.javalin.apibuilder.EndpointGroup;
 import io.javalin.config.JavalinConfig;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
 import io.javalin.json.JavalinJackson;
+import io.javalin.json.JsonMapper;
 import io.javalin.micrometer.MicrometerPlugin;
 import io.javalin.openapi.plugin.OpenApiPlugin;
 import io.javalin.openapi.plugin.swagger.SwaggerPlugin;
+import io.javalin.util.ConcurrencyUtil;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.binder.db.MetricsDSLContext;
@@ -31,16 +52,24 @@ import io.micrometer.prometheusmetrics.PrometheusConfig;
 import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
 import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.function.Consumer;
+import javax.sql.DataSource;
 import org.flywaydb.core.Flyway;
 import org.github.gestalt.config.exceptions.GestaltException;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.conf.Settings;
 import org.jooq.impl.DSL;
+import org.postgresql.ds.PGSimpleDataSource;
 
 /**
  * A sample application to be executed.
@@ -57,55 +86,222 @@ public final class Application implements Closeable {
   private static final Consumer<JavalinConfig> DISABLE_BANNER =
       config -> config.showJavalinBanner = false;
 
+  /**
+   * Transactional advisory locks would keep a transaction open for the whole migration, which makes
+   * {@code CREATE INDEX CONCURRENTLY} wait for it forever.
+   */
+  private static final Map<String, String> FLYWAY_PROPERTIES =
+      Map.of("flyway.postgresql.transactional.lock", "false");
+
+  /** Javalin default, which only matters for platform threads. */
+  private static final int SERVER_MIN_THREADS = 8;
+
+  private static final String RETRY_AFTER_SECONDS = "1";
+
   final Javalin javalin;
   private final HikariDataSource readWriteDataSource;
-  private final HikariDataSource readOnlyDataSource;
+  private final Optional<ReplicaRoutingDataSource> readOnlyDataSource;
 
-  private final DSLContext readWriteDsl;
+  final DSLContext readWriteDsl;
   private final DSLContext readOnlyDsl;
 
-  private final MeterRegistry meterRegistry;
+  final MeterRegistry meterRegistry;
+  private final JsonMapper jsonMapper;
+
+  private final UsersCache usersCache;
+  private final Optional<CreateUserCoalescer> createUserCoalescer;
+  private final Configuration.Coalescing getUserCoalescing;
+  private final Configuration.UpdateMode updateUserMode;
+  private final Optional<DatabaseExecutor> databaseExecutor;
+  private final Optional<ReadYourWrites> readYourWrites;
+  private final Optional<OutboxRelay> outboxRelay;
+  private final Optional<UsersProjection> usersProjection;
+  private final Optional<InMemoryUsers> inMemoryUsers;
+  private final UsersBoundedContext usersBoundedContext;
 
   /** Default constructor. */
   Application(Configuration configuration) throws GestaltException {
     // Instrumentation
     this.meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
 
+    // Serialization
+    this.jsonMapper =
+        new JavalinJackson().updateMapper(mapper -> mapper.registerModule(new Jdk8Module()));
+
+    // Identifiers
+    Ids.use(
+        switch (configuration.idGeneration()) {
+          case RANDOM -> IdGenerator.RANDOM;
+          case TIME_ORDERED -> IdGenerator.TIME_ORDERED;
+        });
+
+    // Request handling
+    final Configuration.Threads serverThreads = configuration.serverThreads();
+    final int serverMaxThreads = configuration.serverMaxThreads();
+
+    // Caching, remembering writes for as long as replicas are allowed to lag behind them
+    this.usersCache =
+        new UsersCache(
+            configuration.usersCache(),
+            configuration.readOnlyReplication().maxLag(),
+            jsonMapper,
+            meterRegistry);
+
     // Database
     final var settings = new Settings();
     settings.setExecuteWithOptimisticLocking(true);
 
+    // Changes are only recorded in the outbox if anything consumes them: events relayed
+    // in-process are dropped unless there is a subscriber
+    final Configuration.Outbox outbox = configuration.outbox();
+    final Configuration.Projection usersProjectionConfiguration = configuration.usersProjection();
+    final boolean outboxRelayed =
+        outbox.enabled()
+            && (outbox.sink() != Configuration.Sink.IN_PROCESS
+                || usersProjectionConfiguration.enabled());
+
+    // Changes are only notified of if users are held in memory, as notifying serialises commits
+    final Configuration.InMemory usersInMemory = configuration.usersInMemory();
+
     // Setup read-write database connection
     final Configuration.Database rwConnection = configuration.readWriteDatabaseConnection();
     if (rwConnection.isPresent()) {
-      this.readWriteDataSource = createDataSource(rwConnection);
+      this.readWriteDataSource = createDataSource("read-write", rwConnection);
     } else {
       throw new IllegalStateException("Can't find database read-write connection");
     }
 
+    // Opt-in admission control, shedding load instead of waiting for the pool connection timeout
+    final DataSource readWriteAdmitted =
+        admitted(
+            "read-write",
+            readWriteDataSource,
+            configuration.readWriteAdmission().sizedTo(rwConnection.maximumPoolSize()));
+
     this.readWriteDsl =
         MetricsDSLContext.withMetrics(
-            DSL.using(this.readWriteDataSource, SQLDialect.POSTGRES, settings),
+            DSL.using(readWriteAdmitted, SQLDialect.POSTGRES, settings),
             meterRegistry,
             Collections.singleton(Tag.of("connection.type", "read-write")));
 
     // Run migration scripts against container
-    Flyway.configure().dataSource(readWriteDataSource).load().migrate();
+    Flyway.configure()
+        .dataSource(readWriteDataSource)
+        .configuration(FLYWAY_PROPERTIES)
+        .load()
+        .migrate();
+
+    // Telling triggers which changes to record, for writes of every session alike
+    enableUsersTrigger("users_outbox", outboxRelayed);
+    enableUsersTrigger("users_notify", usersInMemory.enabled());
+
+    // Changes recorded in the outbox by the database itself, relayed once subscribers are in place
+    final Optional<OutboxSink> outboxSink =
+        outboxRelayed ? Optional.of(createOutboxSink(outbox)) : Optional.empty();
+
+    // Opt-in group commit of user creation
+    final Configuration.Coalescing createUserCoalescing = configuration.createUserCoalescing();
+    this.createUserCoalescer =
+        createUserCoalescing.enabled()
+            ? Optional.of(
+                new CreateUserCoalescer(createUserCoalescing, readWriteDsl, meterRegistry))
+            : Optional.empty();
+
+    // Opt-in batching of individual user lookups
+    this.getUserCoalescing = configuration.getUserCoalescing();
+
+    // Updating users in a single round trip unless told otherwise
+    this.updateUserMode = configuration.updateUserMode();
 
     // Setup read-only connection
     final Configuration.Database roConnection = configuration.readOnlyDatabaseConnection();
+    final List<Configuration.Database> roHosts =
+        roConnection.isPresent() ? roConnection.perHost() : List.of();
+    final DataSource readOnlyAdmitted;
     if (roConnection.isPresent()) {
-      this.readOnlyDataSource = createDataSource(roConnection);
+      // Pool per replica, skipped while lagging behind and falling back to the primary
+      final Configuration.Replication replication = configuration.readOnlyReplication();
+      final Map<String, ReplicaRoutingDataSource.Host> replicas = new LinkedHashMap<>();
+      for (int i = 0; i < roHosts.size(); i++) {
+        final String poolName = roHosts.size() == 1 ? "read-only" : "read-only-%d".formatted(i);
+        replicas.put(
+            poolName,
+            new ReplicaRoutingDataSource.Host(
+                createDataSource(poolName, roHosts.get(i)),
+                createHealthCheckDataSource(roHosts.get(i), replication)));
+      }
+
+      final var routingDataSource =
+          new ReplicaRoutingDataSource(replicas, readWriteAdmitted, replication, meterRegistry);
+      this.readOnlyDataSource = Optional.of(routingDataSource);
+      this.readYourWrites =
+          replication.readYourWrites()
+              ? Optional.of(new ReadYourWrites(readWriteDsl, replication.maxLag()))
+              : Optional.empty();
+      readOnlyAdmitted =
+          admitted(
+              "read-only",
+              routingDataSource,
+              configuration
+                  .readOnlyAdmission()
+                  .sizedTo(roConnection.maximumPoolSize() * roHosts.size()));
     } else {
-      this.readOnlyDataSource = this.readWriteDataSource;
+      // Same pool, hence the same limit
+      this.readOnlyDataSource = Optional.empty();
+      this.readYourWrites = Optional.empty();
+      readOnlyAdmitted = readWriteAdmitted;
     }
 
+    // Opt-in asynchronous request handling, no more handlers at once than there are connections
+    final Configuration.Async serverAsync = configuration.serverAsync();
+    final int databaseConnections =
+        roConnection.isPresent()
+            ? rwConnection.maximumPoolSize() + roConnection.maximumPoolSize() * roHosts.size()
+            : rwConnection.maximumPoolSize();
+    this.databaseExecutor =
+        serverAsync.enabled()
+            ? Optional.of(
+                new DatabaseExecutor(
+                    databaseConnections, serverAsync.queueCapacity(), meterRegistry))
+            : Optional.empty();
+
     this.readOnlyDsl =
         MetricsDSLContext.withMetrics(
-            DSL.using(this.readOnlyDataSource, SQLDialect.POSTGRES, settings),
+            DSL.using(readOnlyAdmitted, SQLDialect.POSTGRES, settings),
             meterRegistry,
             Collections.singleton(Tag.of("connection.type", "read-only")));
 
+    // Opt-in read model of users, maintained from the outbox
+    if (usersProjectionConfiguration.enabled()) {
+      if (!(outboxSink.orElse(null) instanceof InProcessOutboxSink inProcessOutboxSink)) {
+        throw new IllegalStateException("Users projection requires the outbox relayed in-process");
+      }
+
+      final var projection =
+          new UsersProjection(
+              usersProjectionConfiguration, readWriteDsl, readOnlyDsl, meterRegistry);
+      if (usersProjectionConfiguration.rebuildOnStart()) {
+        projection.rebuild();
+      }
+
+      inProcessOutboxSink.subscribe(projection::apply);
+      this.usersProjection = Optional.of(projection);
+    } else {
+      this.usersProjection = Optional.empty();
+    }
+
+    // Opt-in users held in memory, kept up to date by notifications of the primary
+    this.inMemoryUsers =
+        usersInMemory.enabled()
+            ? Optional.of(new InMemoryUsers(usersInMemory, rwConnection, jsonMapper, meterRegistry))
+            : Optional.empty();
+
+    this.outboxRelay =
+        outboxSink.map(sink -> new OutboxRelay(outbox, readWriteDsl, sink, meterRegistry));
+
+    // Created upfront, so that it can be closed along with the app
+    this.usersBoundedContext = createUsersBoundedContext();
+
     // Create the app itself
     this.javalin =
         Javalin.create(
@@ -138,10 +334,16 @@ public final class Application implements Closeable {
                                       definition.withInfo(info -> info.setTitle("CQRS example")))));
                   javalinConfig.registerPlugin(new SwaggerPlugin());
 
+                  // Configuring request handling threads
+                  switch (serverThreads) {
+                    case VIRTUAL -> javalinConfig.useVirtualThreads = true;
+                    case PLATFORM -> javalinConfig.jetty.threadPool =
+                        ConcurrencyUtil.jettyThreadPool(
+                            "JettyServerThreadPool", SERVER_MIN_THREADS, serverMaxThreads, false);
+                  }
+
                   // Configuring Jackson
-                  javalinConfig.jsonMapper(
-                      new JavalinJackson()
-                          .updateMapper(mapper -> mapper.registerModule(new Jdk8Module())));
+                  javalinConfig.jsonMapper(jsonMapper);
 
                   // Add service endpoints
                   javalinConfig.router.apiBuilder(
@@ -164,6 +366,19 @@ public final class Application implements Closeable {
                     javalinConfig.router.apiBuilder(endpointGroup);
                   }
                 }));
+
+    // Rejected by admission control, whichever handler or executor it happened on
+    this.javalin.exception(
+        AdmissionRejectedException.class,
+        (e, ctx) ->
+            ctx.header(Header.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .result(e.getMessage()));
+
+    // Invalid input, which domain messages and cursors reject while being constructed
+    this.javalin.exception(
+        IllegalArgumentException.class,
+        (e, ctx) -> ctx.status(HttpStatus.BAD_REQUEST).result(e.getMessage()));
   }
 
   /**
@@ -172,27 +387,141 @@ public final class Application implements Closeable {
    * @return a list of this app {@link BoundedContext}s
    */
   private Collection<? extends EndpointGroup> boundedContexts() {
+    return List.of(usersBoundedContext);
+  }
+
+  /**
+   * Shortcut to create {@link UsersBoundedContext}.
+   *
+   * @return users bounded context using already created pools and components
+   */
+  private UsersBoundedContext createUsersBoundedContext() {
     final var readWriteDslProvider = DslContextProvider.dslContextIdentity(readWriteDsl);
     final var readOnlyDslProvider = DslContextProvider.dslContextIdentity(readOnlyDsl);
 
-    return List.of(
-        new UsersBoundedContext(
-            readWriteDslProvider, readOnlyDslProvider, DomainNotificationProducer.empty()));
+    return new UsersBoundedContext(
+        readWriteDslProvider,
+        readOnlyDslProvider,
+        DomainNotificationProducer.empty(),
+        readWriteDsl,
+        readOnlyDsl,
+        usersCache,
+        createUserCoalescer,
+        getUserCoalescing,
+        updateUserMode,
+        databaseExecutor,
+        readYourWrites,
+        usersProjection,
+        inMemoryUsers,
+        meterRegistry);
+  }
+
+  /**
+   * Enables or disables the trigger on {@code users} for the whole database, so that writes made by
+   * any session are treated the same way. The instance started last decides, hence all instances
+   * sharing a database are expected to be configured alike.
+   *
+   * @param trigger to enable or disable
+   * @param enabled whether the trigger should fire
+   */
+  private void enableUsersTrigger(String trigger, boolean enabled) {
+    readWriteDsl.fetch("SELECT enable_users_trigger(?::name, ?)", trigger, enabled);
   }
 
   /**
    * Shortcut to create {@link HikariDataSource}.
    *
+   * @param poolName to distinguish pool metrics with
    * @param databaseConfiguration properties to be used for the data source
    * @return prepared {@link HikariDataSource}
    */
-  private HikariDataSource createDataSource(Configuration.Database databaseConfiguration) {
-    HikariConfig hikariReadOnlyConfig = new HikariConfig();
-    hikariReadOnlyConfig.setDriverClassName(org.postgresql.Driver.class.getName());
-    hikariReadOnlyConfig.setJdbcUrl(databaseConfiguration.url());
-    hikariReadOnlyConfig.setUsername(databaseConfiguration.username());
-    hikariReadOnlyConfig.setPassword(databaseConfiguration.password());
-    return new HikariDataSource(hikariReadOnlyConfig);
+  private HikariDataSource createDataSource(
+      String poolName, Configuration.Database databaseConfiguration) {
+    HikariConfig hikariConfig = new HikariConfig();
+    hikariConfig.setPoolName(poolName);
+    hikariConfig.setDriverClassName(org.postgresql.Driver.class.getName());
+    hikariConfig.setJdbcUrl(databaseConfiguration.url());
+    hikariConfig.setUsername(databaseConfiguration.username());
+    hikariConfig.setPassword(databaseConfiguration.password());
+
+    // Pool sizing and timeouts
+    hikariConfig.setMaximumPoolSize(databaseConfiguration.maximumPoolSize());
+    hikariConfig.setMinimumIdle(databaseConfiguration.minimumIdle());
+    hikariConfig.setConnectionTimeout(databaseConfiguration.connectionTimeout().toMillis());
+    hikariConfig.setIdleTimeout(databaseConfiguration.idleTimeout().toMillis());
+    hikariConfig.setMaxLifetime(databaseConfiguration.maxLifetime().toMillis());
+
+    // Driver properties
+    hikariConfig.addDataSourceProperty(
+        "prepareThreshold", databaseConfiguration.prepareThreshold());
+    hikariConfig.addDataSourceProperty(
+        "preparedStatementCacheQueries", databaseConfiguration.preparedStatementCacheQueries());
+    hikariConfig.addDataSourceProperty(
+        "reWriteBatchedInserts", databaseConfiguration.reWriteBatchedInserts());
+    hikariConfig.addDataSourceProperty(
+        "defaultRowFetchSize", databaseConfiguration.defaultRowFetchSize());
+
+    // Pool usage, wait and connection times to size the pool from
+    hikariConfig.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+    return new HikariDataSource(hikariConfig);
+  }
+
+  /**
+   * Shortcut to create unpooled {@link DataSource} for health checks of a replica, which gives up
+   * connecting and reading within the check interval.
+   *
+   * @param databaseConfiguration to be used for connections
+   * @param replication properties of health checks
+   * @return prepared {@link DataSource}
+   */
+  private static DataSource createHealthCheckDataSource(
+      Configuration.Database databaseConfiguration, Configuration.Replication replication) {
+    final int timeoutSeconds = ReplicaRoutingDataSource.healthCheckTimeoutSeconds(replication);
+    final PGSimpleDataSource dataSource = new PGSimpleDataSource();
+    dataSource.setURL(databaseConfiguration.url());
+    dataSource.setUser(databaseConfiguration.username());
+    dataSource.setPassword(databaseConfiguration.password());
+    dataSource.setConnectTimeout(timeoutSeconds);
+    dataSource.setSocketTimeout(timeoutSeconds);
+    return dataSource;
+  }
+
+  /**
+   * Shortcut to create {@link OutboxSink}.
+   *
+   * @param outbox properties to be used for the sink
+   * @return prepared {@link OutboxSink}
+   */
+  private OutboxSink createOutboxSink(Configuration.Outbox outbox) {
+    return switch (outbox.sink()) {
+      case IN_PROCESS -> new InProcessOutboxSink();
+      case STDOUT -> StreamOutboxSink.stdout(jsonMapper);
+      case FILE -> {
+        try {
+          yield StreamOutboxSink.file(Path.of(outbox.path()), jsonMapper);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    };
+  }
+
+  /**
+   * Shortcut to put {@link DataSource} behind admission control.
+   *
+   * @param name of the connection pool
+   * @param dataSource to borrow connections from
+   * @param admission properties to be used for the limiter
+   * @return data source limited by {@link AdaptiveLimiter}, or the given one if it is disabled
+   */
+  private DataSource admitted(
+      String name, DataSource dataSource, Configuration.Admission admission) {
+    if (!admission.enabled()) {
+      return dataSource;
+    }
+
+    return new LimitedDataSource(
+        name, dataSource, new AdaptiveLimiter(name, admission, meterRegistry));
   }
 
   /**
@@ -207,9 +536,16 @@ public final class Application implements Closeable {
   /** {@inheritDoc} */
   @Override
   public void close() {
-    readWriteDataSource.close();
-    readOnlyDataSource.close();
+    // No new requests are accepted from here on, while the ones in flight still have the pools
     javalin.stop();
+    usersBoundedContext.close();
+    createUserCoalescer.ifPresent(CreateUserCoalescer::close);
+    outboxRelay.ifPresent(OutboxRelay::close);
+    usersProjection.ifPresent(UsersProjection::close);
+    inMemoryUsers.ifPresent(InMemoryUsers::close);
+    databaseExecutor.ifPresent(DatabaseExecutor::close);
+    readWriteDataSource.close();
+    readOnlyDataSource.ifPresent(ReplicaRoutingDataSource::close);
   }
 
   /**
@@ -0,0 +1,143 @@
+package io.github.suppierk.ddd.javalin.admission;
+
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Concurrency limiter which adapts its limit using additive increase / multiplicative decrease.
+ *
+ * <p>Each completed operation is a sample: an operation which failed or took longer than {@link
+ * Configuration.Admission#latencyThreshold()} signals congestion and shrinks the limit by {@link
+ * #BACKOFF_RATIO}, while a fast operation grows the limit by one as long as the limit is actually
+ * being used. Operations beyond the limit are rejected right away instead of being queued.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Additive_increase/multiplicative_decrease">AIMD</a>
+ */
+public final class AdaptiveLimiter {
+  static final double BACKOFF_RATIO = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyThresholdNanos;
+
+  private final Counter rejected;
+
+  private double limit;
+  private int inFlight;
+
+  /**
+   * @param name of the limited resource to tag metrics with
+   * @param configuration of the limits
+   * @param meterRegistry to publish metrics to
+   */
+  public AdaptiveLimiter(
+      String name, Configuration.Admission configuration, MeterRegistry meterRegistry) {
+    this.minLimit = configuration.minLimit();
+    this.maxLimit = configuration.maxLimit();
+    this.latencyThresholdNanos = configuration.latencyThreshold().toNanos();
+    this.limit = Math.min(Math.max(configuration.initialLimit(), minLimit), maxLimit);
+
+    Gauge.builder("admission.limit", this, AdaptiveLimiter::limit)
+        .description("Current amount of operations allowed to run concurrently")
+        .tag("pool", name)
+        .register(meterRegistry);
+    Gauge.builder("admission.in.flight", this, AdaptiveLimiter::inFlight)
+        .description("Amount of operations currently running")
+        .tag("pool", name)
+        .register(meterRegistry);
+    this.rejected =
+        Counter.builder("admission.rejected")
+            .description("Amount of operations rejected because the limit was reached")
+            .tag("pool", name)
+            .register(meterRegistry);
+  }
+
+  /**
+   * @return permit to run a single operation, or empty if the limit has been reached
+   */
+  public Optional<Permit> tryAcquire() {
+    synchronized (this) {
+      if (inFlight >= (int) limit) {
+        rejected.increment();
+        return Optional.empty();
+      }
+
+      inFlight++;
+    }
+
+    return Optional.of(new Permit(System.nanoTime()));
+  }
+
+  /**
+   * @return current limit
+   */
+  public synchronized int limit() {
+    return (int) limit;
+  }
+
+  /**
+   * @return amount of acquired permits
+   */
+  public synchronized int inFlight() {
+    return inFlight;
+  }
+
+  private synchronized void release(long latencyNanos, boolean failed) {
+    if (failed || latencyNanos > latencyThresholdNanos) {
+      limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    } else if (inFlight * 2 >= limit) {
+      // Growing only while at least half of the limit is in use, otherwise it is not being tested
+      limit = Math.min(maxLimit, limit + 1);
+    }
+
+    inFlight--;
+  }
+
+  /** Right to run a single operation, which must be released exactly once. */
+  public final class Permit {
+    private final long acquiredAt;
+    private boolean released;
+
+    private Permit(long acquiredAt) {
+      this.acquiredAt = acquiredAt;
+    }
+
+    /** Releases the permit, using the time since it was acquired as a sample. */
+    public void release() {
+      release(false);
+    }
+
+    /**
+     * @param failed is {@code true} if the operation failed, which is treated as congestion
+     */
+    public void release(boolean failed) {
+      release(System.nanoTime() - acquiredAt, failed);
+    }
+
+    /**
+     * Releases the permit of an operation, which was not busy all the time since the permit was
+     * acquired.
+     *
+     * @param latency of the operation to use as a sample
+     */
+    public void release(Duration latency) {
+      release(latency.toNanos(), false);
+    }
+
+    private void release(long latencyNanos, boolean failed) {
+      synchronized (this) {
+        if (released) {
+          return;
+        }
+
+        released = true;
+      }
+
+      AdaptiveLimiter.this.release(latencyNanos, failed);
+    }
+  }
+}
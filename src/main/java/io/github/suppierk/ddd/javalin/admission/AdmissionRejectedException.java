@@ -0,0 +1,16 @@
+package io.github.suppierk.ddd.javalin.admission;
+
+/**
+ * Signals that an operation was not even attempted, because the resource it needs is saturated.
+ *
+ * <p>Being unchecked allows it to pass through jOOQ and the handlers unchanged, so that it can be
+ * translated into {@code 503 Service Unavailable} in one place.
+ */
+public final class AdmissionRejectedException extends RuntimeException {
+  /**
+   * @param resource which is saturated
+   */
+  public AdmissionRejectedException(String resource) {
+    super("Too many concurrent operations on %s, try again later".formatted(resource));
+  }
+}
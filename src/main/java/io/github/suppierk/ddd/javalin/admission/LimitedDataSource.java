@@ -0,0 +1,162 @@
+package io.github.suppierk.ddd.javalin.admission;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * {@link DataSource} which admits borrowing connections from the underlying pool only within the
+ * limit of {@link AdaptiveLimiter}.
+ *
+ * <p>The time spent waiting for the pool and executing statements on the connection is the latency
+ * sample of the limiter. The rest of the time the connection is held, e.g. while streaming results
+ * to a slow client, says nothing about the database and is left out. Once the limit is reached,
+ * {@link AdmissionRejectedException} is thrown immediately instead of waiting for the pool
+ * connection timeout.
+ */
+public final class LimitedDataSource implements DataSource {
+  private final String name;
+  private final DataSource delegate;
+  private final AdaptiveLimiter limiter;
+
+  /**
+   * @param name of the pool to mention in rejections
+   * @param delegate to borrow connections from
+   * @param limiter to admit borrowing with
+   */
+  public LimitedDataSource(String name, DataSource delegate, AdaptiveLimiter limiter) {
+    this.name = name;
+    this.delegate = delegate;
+    this.limiter = limiter;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection() throws SQLException {
+    final var permit = limiter.tryAcquire().orElseThrow(() -> new AdmissionRejectedException(name));
+    final long startedAt = System.nanoTime();
+
+    try {
+      final var connection = delegate.getConnection();
+      return releasingOnClose(connection, permit, System.nanoTime() - startedAt);
+    } catch (SQLException | RuntimeException e) {
+      permit.release(true);
+      throw e;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    final var permit = limiter.tryAcquire().orElseThrow(() -> new AdmissionRejectedException(name));
+    final long startedAt = System.nanoTime();
+
+    try {
+      final var connection = delegate.getConnection(username, password);
+      return releasingOnClose(connection, permit, System.nanoTime() - startedAt);
+    } catch (SQLException | RuntimeException e) {
+      permit.release(true);
+      throw e;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return delegate.getLogWriter();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    delegate.setLogWriter(out);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    delegate.setLoginTimeout(seconds);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return delegate.getLoginTimeout();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    return delegate.getParentLogger();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    return iface.isInstance(this) ? iface.cast(this) : delegate.unwrap(iface);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || delegate.isWrapperFor(iface);
+  }
+
+  private static Connection releasingOnClose(
+      Connection connection, AdaptiveLimiter.Permit permit, long waitedNanos) {
+    final var busyNanos = new AtomicLong(waitedNanos);
+
+    return (Connection)
+        Proxy.newProxyInstance(
+            LimitedDataSource.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+              if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                permit.release(Duration.ofNanos(busyNanos.get()));
+              }
+
+              final var result = invoke(connection, method, args);
+              return result instanceof Statement statement
+                      && Statement.class.isAssignableFrom(method.getReturnType())
+                  ? timingExecution(statement, method.getReturnType(), busyNanos)
+                  : result;
+            });
+  }
+
+  private static Object timingExecution(
+      Statement statement, Class<?> statementType, AtomicLong busyNanos) {
+    return Proxy.newProxyInstance(
+        LimitedDataSource.class.getClassLoader(),
+        new Class<?>[] {statementType},
+        (proxy, method, args) -> {
+          if (!method.getName().startsWith("execute")) {
+            return invoke(statement, method, args);
+          }
+
+          final long startedAt = System.nanoTime();
+
+          try {
+            return invoke(statement, method, args);
+          } finally {
+            busyNanos.addAndGet(System.nanoTime() - startedAt);
+          }
+        });
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package io.github.suppierk.ddd.javalin.async;
+
+import io.javalin.http.Handler;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor to run blocking database work of request handlers on, so that server threads are
+ * released as soon as the work is handed over.
+ *
+ * <p>There is no point in having more threads than database connections, hence the executor is
+ * expected to be sized to the connection pools. Requests which cannot even be queued are rejected
+ * right away with {@code 503 Service Unavailable} rather than waiting for a connection.
+ */
+public final class DatabaseExecutor implements Closeable {
+  private static final String RETRY_AFTER_SECONDS = "1";
+
+  private final ThreadPoolExecutor executor;
+  private final Counter rejected;
+
+  /**
+   * @param threads is the amount of handlers to run concurrently
+   * @param queueCapacity is the amount of handlers waiting for a thread after which new ones are
+   *     rejected
+   * @param meterRegistry to publish metrics to
+   */
+  public DatabaseExecutor(int threads, int queueCapacity, MeterRegistry meterRegistry) {
+    final var threadCounter = new AtomicInteger();
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+              final var thread =
+                  new Thread(
+                      runnable, "database-executor-%d".formatted(threadCounter.incrementAndGet()));
+              thread.setDaemon(true);
+              return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    Gauge.builder("database.executor.queue.depth", executor, e -> e.getQueue().size())
+        .description("Amount of handlers waiting for a database executor thread")
+        .register(meterRegistry);
+    Gauge.builder("database.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+        .description("Amount of handlers currently running on database executor threads")
+        .register(meterRegistry);
+    FunctionCounter.builder(
+            "database.executor.completed", executor, ThreadPoolExecutor::getCompletedTaskCount)
+        .description("Amount of handlers which ran on database executor threads")
+        .register(meterRegistry);
+    this.rejected =
+        Counter.builder("database.executor.rejected")
+            .description("Amount of requests rejected because the queue was full")
+            .register(meterRegistry);
+  }
+
+  /**
+   * @param handler to run on this executor
+   * @return handler which hands the given one over to this executor and completes the request
+   *     asynchronously
+   */
+  public Handler offload(Handler handler) {
+    // Work must not start before the request has been switched to asynchronous mode, which only
+    // happens once the handler returns, hence it is handed over from within the supplier
+    return ctx ->
+        ctx.future(
+            () -> {
+              try {
+                return CompletableFuture.runAsync(
+                    () -> {
+                      try {
+                        handler.handle(ctx);
+                      } catch (Exception e) {
+                        throw new CompletionException(e);
+                      }
+                    },
+                    executor);
+              } catch (RejectedExecutionException e) {
+                rejected.increment();
+                ctx.header(Header.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .result("Too many requests are waiting for the database");
+                return CompletableFuture.completedFuture(null);
+              }
+            });
+  }
+
+  /** Stops accepting new handlers and waits for already accepted ones to finish. */
+  @Override
+  public void close() {
+    executor.shutdown();
+
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package io.github.suppierk.ddd.javalin.batching;
+
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Collects lookups of individual keys issued concurrently and resolves them with a single call of
+ * the batch function, in the spirit of DataLoader.
+ *
+ * <p>The first key of a batch opens a window of {@link Configuration.Coalescing#maxDelay()}, during
+ * which other keys join the same batch. The batch is resolved once the window closes or once it
+ * reaches {@link Configuration.Coalescing#maxBatchSize()} distinct keys, whichever comes first.
+ * Concurrent lookups of the same key share the same result.
+ *
+ * <p>Full batches are resolved on the thread which filled them, while batches closed by their
+ * window are resolved by the loader's own daemon threads, which terminate once idle or once the
+ * loader is closed.
+ *
+ * @param <K> is the type of the key
+ * @param <V> is the type of the value
+ */
+public final class BatchLoader<K, V> implements Closeable {
+  private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+  private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+  private final Function<Set<K>, Map<K, V>> batchFunction;
+  private final int maxBatchSize;
+  private final long windowNanos;
+
+  private final ScheduledThreadPoolExecutor scheduler;
+  private final DistributionSummary batchSize;
+
+  private final Object lock = new Object();
+  private Map<K, CompletableFuture<Optional<V>>> pending = new HashMap<>();
+  private ScheduledFuture<?> scheduledDispatch;
+  private boolean closed;
+
+  /**
+   * @param name of this loader to tag its metrics with
+   * @param configuration of the batching
+   * @param batchFunction to resolve keys with, absent keys must be omitted from the result
+   * @param meterRegistry to publish metrics to
+   */
+  public BatchLoader(
+      String name,
+      Configuration.Coalescing configuration,
+      Function<Set<K>, Map<K, V>> batchFunction,
+      MeterRegistry meterRegistry) {
+    this.batchFunction = batchFunction;
+    this.maxBatchSize = configuration.maxBatchSize();
+    this.windowNanos = configuration.maxDelay().toNanos();
+
+    final var threadCounter = new AtomicInteger();
+    this.scheduler =
+        new ScheduledThreadPoolExecutor(
+            Runtime.getRuntime().availableProcessors(),
+            runnable -> {
+              final var thread =
+                  new Thread(
+                      runnable, "%s-loader-%d".formatted(name, threadCounter.incrementAndGet()));
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.scheduler.setKeepAliveTime(IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    this.scheduler.allowCoreThreadTimeOut(true);
+    this.scheduler.setRemoveOnCancelPolicy(true);
+
+    this.batchSize =
+        DistributionSummary.builder("loader.batch.size")
+            .description("Amount of distinct keys resolved by a single batch")
+            .tag("loader", name)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+  }
+
+  /**
+   * @param key to look up as a part of the current batch
+   * @return future completed with the value once the batch is resolved, empty if it is absent
+   * @throws IllegalStateException if the loader has been closed
+   */
+  public CompletableFuture<Optional<V>> load(K key) {
+    final CompletableFuture<Optional<V>> future;
+    Map<K, CompletableFuture<Optional<V>>> fullBatch = null;
+
+    synchronized (lock) {
+      if (closed) {
+        throw new IllegalStateException("Loader has been closed");
+      }
+
+      final var existing = pending.get(key);
+      if (existing != null) {
+        return existing;
+      }
+
+      future = new CompletableFuture<>();
+      pending.put(key, future);
+
+      if (pending.size() >= maxBatchSize) {
+        fullBatch = takePending();
+      } else if (pending.size() == 1) {
+        scheduledDispatch =
+            scheduler.schedule(this::dispatchScheduled, windowNanos, TimeUnit.NANOSECONDS);
+      }
+    }
+
+    if (fullBatch != null) {
+      dispatch(fullBatch);
+    }
+
+    return future;
+  }
+
+  /** Resolves already pending keys right away and stops the loader's threads. */
+  @Override
+  public void close() {
+    final Map<K, CompletableFuture<Optional<V>>> batch;
+
+    synchronized (lock) {
+      closed = true;
+      batch = takePending();
+    }
+
+    if (!batch.isEmpty()) {
+      dispatch(batch);
+    }
+
+    scheduler.shutdown();
+
+    try {
+      if (!scheduler.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        scheduler.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      scheduler.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Map<K, CompletableFuture<Optional<V>>> takePending() {
+    final var batch = pending;
+    pending = new HashMap<>();
+
+    if (scheduledDispatch != null) {
+      scheduledDispatch.cancel(false);
+      scheduledDispatch = null;
+    }
+
+    return batch;
+  }
+
+  private void dispatchScheduled() {
+    final Map<K, CompletableFuture<Optional<V>>> batch;
+
+    synchronized (lock) {
+      batch = takePending();
+    }
+
+    // Batch might have been taken by a thread which filled it up in the meantime
+    if (!batch.isEmpty()) {
+      dispatch(batch);
+    }
+  }
+
+  private void dispatch(Map<K, CompletableFuture<Optional<V>>> batch) {
+    batchSize.record(batch.size());
+
+    try {
+      final var values = batchFunction.apply(Collections.unmodifiableSet(batch.keySet()));
+      batch.forEach((key, future) -> future.complete(Optional.ofNullable(values.get(key))));
+    } catch (RuntimeException e) {
+      batch.values().forEach(future -> future.completeExceptionally(e));
+    }
+  }
+}
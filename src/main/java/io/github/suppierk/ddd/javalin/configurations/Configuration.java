@@ -1,6 +1,11 @@
 package io.github.suppierk.ddd.javalin.configurations;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.stream.Collectors;
 import org.github.gestalt.config.Gestalt;
 import org.github.gestalt.config.builder.GestaltBuilder;
 import org.github.gestalt.config.exceptions.GestaltException;
@@ -9,9 +14,15 @@ import org.github.gestalt.config.source.ClassPathConfigSourceBuilder;
 /**
  * Defines rules to parse configuration based on the Gestalt library.
  *
+ * <p>Each property is read on its own with its default, and enums are parsed by {@link
+ * #parseEnum(Class, String)}, so that every property accepts values the same way regardless of
+ * which record it ends up in.
+ *
  * @see <a href="https://github.com/gestalt-config/gestalt">Gestalt GitHub repository</a>
  */
 public final class Configuration {
+  private static final int DEFAULT_SERVER_MAX_THREADS = 250;
+
   private final Gestalt config;
 
   private Configuration(final Gestalt config) {
@@ -41,20 +52,230 @@ public final class Configuration {
     return config.getConfig("server.port", Integer.class);
   }
 
+  /**
+   * @return kind of threads this server should handle requests on, platform threads by default
+   */
+  public Threads serverThreads() {
+    return parseEnum(
+        Threads.class, config.getConfig("server.threads", Threads.PLATFORM.name(), String.class));
+  }
+
+  /**
+   * @return maximum amount of platform threads this server should handle requests on
+   */
+  public int serverMaxThreads() {
+    return config.getConfig("server.max-threads", DEFAULT_SERVER_MAX_THREADS, Integer.class);
+  }
+
+  /**
+   * @return properties of handing request handlers over to a dedicated executor, disabled if not
+   *     configured
+   */
+  public Async serverAsync() {
+    return new Async(
+        config.getConfig("server.async.enabled", Async.DEFAULT.enabled(), Boolean.class),
+        config.getConfig(
+            "server.async.queue-capacity", Async.DEFAULT.queueCapacity(), Integer.class));
+  }
+
   /**
    * @return database properties with read-write capability
-   * @throws GestaltException any errors such as if there are no configs.
    */
-  public Database readWriteDatabaseConnection() throws GestaltException {
-    return config.getConfig("database.read-write", Database.class);
+  public Database readWriteDatabaseConnection() {
+    return database("database.read-write");
   }
 
   /**
    * @return database properties with read-only capability
-   * @throws GestaltException any errors such as if there are no configs.
    */
-  public Database readOnlyDatabaseConnection() throws GestaltException {
-    return config.getConfig("database.read-only", Database.class);
+  public Database readOnlyDatabaseConnection() {
+    return database("database.read-only");
+  }
+
+  /**
+   * @return how identifiers of users and domain messages should be generated, time-ordered by
+   *     default
+   */
+  public IdGeneration idGeneration() {
+    return parseEnum(
+        IdGeneration.class,
+        config.getConfig("ids.generation", IdGeneration.TIME_ORDERED.name(), String.class));
+  }
+
+  /**
+   * @return how users should be updated, with a single statement by default
+   */
+  public UpdateMode updateUserMode() {
+    return parseEnum(
+        UpdateMode.class,
+        config.getConfig(
+            "commands.update-user.mode", UpdateMode.SINGLE_STATEMENT.name(), String.class));
+  }
+
+  /**
+   * @return properties of routing queries between read-only hosts
+   */
+  public Replication readOnlyReplication() {
+    return new Replication(
+        parseEnum(
+            Routing.class,
+            config.getConfig(
+                "database.replication.routing", Routing.LEAST_IN_FLIGHT.name(), String.class)),
+        config.getConfig(
+            "database.replication.max-lag", Replication.DEFAULT_MAX_LAG, Duration.class),
+        config.getConfig(
+            "database.replication.health-check-interval",
+            Replication.DEFAULT_HEALTH_CHECK_INTERVAL,
+            Duration.class),
+        config.getConfig("database.replication.read-your-writes", false, Boolean.class));
+  }
+
+  /**
+   * @return properties of relaying changes recorded in the outbox
+   */
+  public Outbox outbox() {
+    return new Outbox(
+        config.getConfig("outbox.enabled", false, Boolean.class),
+        config.getConfig("outbox.batch-size", Outbox.DEFAULT_BATCH_SIZE, Integer.class),
+        config.getConfig("outbox.poll-interval", Outbox.DEFAULT_POLL_INTERVAL, Duration.class),
+        parseEnum(
+            Sink.class, config.getConfig("outbox.sink", Sink.IN_PROCESS.name(), String.class)),
+        config.getConfig("outbox.path", Outbox.DEFAULT_PATH, String.class));
+  }
+
+  /**
+   * @return properties of the read model of users, disabled if not configured
+   */
+  public Projection usersProjection() {
+    return new Projection(
+        config.getConfig("projection.users.enabled", false, Boolean.class),
+        config.getConfig("projection.users.rebuild-on-start", true, Boolean.class),
+        config.getConfig(
+            "projection.users.tombstone-retention",
+            Projection.DEFAULT_TOMBSTONE_RETENTION,
+            Duration.class),
+        config.getConfig(
+            "projection.users.purge-interval", Projection.DEFAULT_PURGE_INTERVAL, Duration.class));
+  }
+
+  /**
+   * @return properties of users held in memory, disabled if not configured
+   */
+  public InMemory usersInMemory() {
+    return new InMemory(
+        config.getConfig("in-memory.users.enabled", false, Boolean.class),
+        config.getConfig(
+            "in-memory.users.resync-interval", InMemory.DEFAULT_RESYNC_INTERVAL, Duration.class));
+  }
+
+  /**
+   * @return properties of the in-process cache for users, defaults if not configured
+   */
+  public Cache usersCache() {
+    return new Cache(
+        config.getConfig("cache.users.maximum-size", Cache.DEFAULT.maximumSize(), Long.class),
+        config.getConfig(
+            "cache.users.expire-after-write", Cache.DEFAULT.expireAfterWrite(), Duration.class));
+  }
+
+  /**
+   * @return properties of the write coalescing for user creation, disabled if not configured
+   */
+  public Coalescing createUserCoalescing() {
+    return coalescing("coalescing.create-user");
+  }
+
+  /**
+   * @return properties of the batching of individual user lookups, disabled if not configured
+   */
+  public Coalescing getUserCoalescing() {
+    return coalescing("coalescing.get-user");
+  }
+
+  /**
+   * @return properties of the admission control in front of the read-write connection pool,
+   *     disabled if not configured
+   */
+  public Admission readWriteAdmission() {
+    return admission("admission.read-write");
+  }
+
+  /**
+   * @return properties of the admission control in front of the read-only connection pool, disabled
+   *     if not configured
+   */
+  public Admission readOnlyAdmission() {
+    return admission("admission.read-only");
+  }
+
+  /**
+   * @param path of the database properties
+   * @return database properties, which are not {@link Database#isPresent()} without connection
+   *     properties, defaults for the missing optional ones
+   */
+  private Database database(String path) {
+    return new Database(
+        config.getConfig(path + ".url", "", String.class),
+        config.getConfig(path + ".username", "", String.class),
+        config.getConfig(path + ".password", "", String.class),
+        config.getConfig(path + ".maximum-pool-size", 0, Integer.class),
+        config.getConfig(path + ".minimum-idle", 0, Integer.class),
+        config.getConfig(path + ".connection-timeout", Duration.ZERO, Duration.class),
+        config.getConfig(path + ".idle-timeout", Duration.ZERO, Duration.class),
+        config.getConfig(path + ".max-lifetime", Duration.ZERO, Duration.class),
+        config.getConfig(path + ".prepare-threshold", 0, Integer.class),
+        config.getConfig(path + ".prepared-statement-cache-queries", 0, Integer.class),
+        config.getConfig(path + ".re-write-batched-inserts", true, Boolean.class),
+        config.getConfig(path + ".default-row-fetch-size", 0, Integer.class));
+  }
+
+  /**
+   * @param path of the coalescing properties
+   * @return coalescing properties, disabled if not configured
+   */
+  private Coalescing coalescing(String path) {
+    return new Coalescing(
+        config.getConfig(path + ".enabled", Coalescing.DEFAULT.enabled(), Boolean.class),
+        config.getConfig(
+            path + ".max-batch-size", Coalescing.DEFAULT.maxBatchSize(), Integer.class),
+        config.getConfig(path + ".max-delay", Coalescing.DEFAULT.maxDelay(), Duration.class));
+  }
+
+  /**
+   * @param path of the admission control properties
+   * @return admission control properties, disabled if not configured
+   */
+  private Admission admission(String path) {
+    return new Admission(
+        config.getConfig(path + ".enabled", Admission.DEFAULT.enabled(), Boolean.class),
+        config.getConfig(path + ".initial-limit", Admission.DEFAULT.initialLimit(), Integer.class),
+        config.getConfig(path + ".min-limit", Admission.DEFAULT.minLimit(), Integer.class),
+        config.getConfig(path + ".max-limit", Admission.DEFAULT.maxLimit(), Integer.class),
+        config.getConfig(
+            path + ".latency-threshold", Admission.DEFAULT.latencyThreshold(), Duration.class));
+  }
+
+  /**
+   * @param type of the enum to parse
+   * @param value to parse, case-insensitive, with either dashes or underscores
+   * @param <E> is the type of the enum
+   * @return respective constant of the enum
+   * @throws IllegalArgumentException if the value does not name any constant of the enum
+   */
+  static <E extends Enum<E>> E parseEnum(Class<E> type, String value) {
+    try {
+      return Enum.valueOf(type, value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          "%s must be one of %s, got: %s"
+              .formatted(
+                  type.getSimpleName(),
+                  Arrays.stream(type.getEnumConstants())
+                      .map(constant -> constant.name().replace('_', '-').toLowerCase(Locale.ROOT))
+                      .collect(Collectors.joining(", ")),
+                  value),
+          e);
+    }
   }
 
   /**
@@ -63,8 +284,129 @@ public final class Configuration {
    * @param url of the database
    * @param username to use for database connection
    * @param password to use for database connection
+   * @param maximumPoolSize is the maximum amount of connections to keep open
+   * @param minimumIdle is the amount of idle connections to keep open at least, same as {@code
+   *     maximumPoolSize} if not configured, which makes the pool fixed-size
+   * @param connectionTimeout is the time to wait for a connection from the pool at most
+   * @param idleTimeout is the time after which idle connections above {@code minimumIdle} are
+   *     closed
+   * @param maxLifetime is the time after which a connection is retired once it is returned
+   * @param prepareThreshold is the amount of executions of the same statement after which it is
+   *     prepared on the server, see pgjdbc {@code prepareThreshold}
+   * @param preparedStatementCacheQueries is the amount of statements cached per connection, see
+   *     pgjdbc {@code preparedStatementCacheQueries}
+   * @param reWriteBatchedInserts defines whether batched inserts are rewritten into multi-row ones,
+   *     see pgjdbc {@code reWriteBatchedInserts}
+   * @param defaultRowFetchSize is the amount of rows fetched per round trip, {@code 0} fetches all
+   *     of them at once, see pgjdbc {@code defaultRowFetchSize}
+   * @see <a
+   *     href="https://github.com/brettwooldridge/HikariCP#gear-configuration-knobs-baby">HikariCP
+   *     configuration</a>
+   * @see <a href="https://jdbc.postgresql.org/documentation/use/#connection-parameters">pgjdbc
+   *     connection parameters</a>
    */
-  public record Database(String url, String username, String password) {
+  public record Database(
+      String url,
+      String username,
+      String password,
+      int maximumPoolSize,
+      int minimumIdle,
+      Duration connectionTimeout,
+      Duration idleTimeout,
+      Duration maxLifetime,
+      int prepareThreshold,
+      int preparedStatementCacheQueries,
+      boolean reWriteBatchedInserts,
+      int defaultRowFetchSize) {
+    private static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+    private static final Duration DEFAULT_CONNECTION_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(10);
+    private static final Duration DEFAULT_MAX_LIFETIME = Duration.ofMinutes(30);
+    private static final int DEFAULT_PREPARE_THRESHOLD = 5;
+    private static final int DEFAULT_PREPARED_STATEMENT_CACHE_QUERIES = 256;
+
+    /** Post construct property validation, which falls back to defaults for missing values. */
+    public Database {
+      if (maximumPoolSize <= 0) {
+        maximumPoolSize = DEFAULT_MAXIMUM_POOL_SIZE;
+      }
+
+      if (minimumIdle <= 0 || minimumIdle > maximumPoolSize) {
+        minimumIdle = maximumPoolSize;
+      }
+
+      if (connectionTimeout == null
+          || connectionTimeout.isNegative()
+          || connectionTimeout.isZero()) {
+        connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
+      }
+
+      if (idleTimeout == null || idleTimeout.isNegative() || idleTimeout.isZero()) {
+        idleTimeout = DEFAULT_IDLE_TIMEOUT;
+      }
+
+      if (maxLifetime == null || maxLifetime.isNegative() || maxLifetime.isZero()) {
+        maxLifetime = DEFAULT_MAX_LIFETIME;
+      }
+
+      if (prepareThreshold <= 0) {
+        prepareThreshold = DEFAULT_PREPARE_THRESHOLD;
+      }
+
+      if (preparedStatementCacheQueries <= 0) {
+        preparedStatementCacheQueries = DEFAULT_PREPARED_STATEMENT_CACHE_QUERIES;
+      }
+
+      if (defaultRowFetchSize < 0) {
+        defaultRowFetchSize = 0;
+      }
+    }
+
+    /**
+     * Splits pgjdbc multi-host URL, such as {@code jdbc:postgresql://host1,host2:5433/db}, into
+     * URLs of individual hosts, so that each of them can get a pool of its own.
+     *
+     * @return properties of each host in the order of the URL, or only these properties if there is
+     *     a single host
+     */
+    public List<Database> perHost() {
+      final int authorityStart = url.indexOf("//");
+      if (authorityStart < 0) {
+        return List.of(this);
+      }
+
+      final int authorityEnd = url.indexOf('/', authorityStart + 2);
+      final String prefix = url.substring(0, authorityStart + 2);
+      final String authority =
+          authorityEnd < 0
+              ? url.substring(authorityStart + 2)
+              : url.substring(authorityStart + 2, authorityEnd);
+      final String suffix = authorityEnd < 0 ? "" : url.substring(authorityEnd);
+
+      final String[] hosts = authority.split(",");
+      if (hosts.length == 1) {
+        return List.of(this);
+      }
+
+      return Arrays.stream(hosts)
+          .map(
+              host ->
+                  new Database(
+                      prefix + host.trim() + suffix,
+                      username,
+                      password,
+                      maximumPoolSize,
+                      minimumIdle,
+                      connectionTimeout,
+                      idleTimeout,
+                      maxLifetime,
+                      prepareThreshold,
+                      preparedStatementCacheQueries,
+                      reWriteBatchedInserts,
+                      defaultRowFetchSize))
+          .toList();
+    }
+
     /**
      * @return {@code true} if all properties are present, {@code false} otherwise
      */
@@ -78,6 +420,286 @@ public final class Configuration {
     }
   }
 
+  /**
+   * Basic immutable wrapper for asynchronous request handling properties.
+   *
+   * @param enabled defines whether request handlers should run on a dedicated executor sized to the
+   *     database connection pools
+   * @param queueCapacity is the amount of requests waiting for the executor after which new ones
+   *     are rejected
+   */
+  public record Async(boolean enabled, int queueCapacity) {
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    static final Async DEFAULT = new Async(false, DEFAULT_QUEUE_CAPACITY);
+
+    /** Post construct property validation, which falls back to defaults for missing values. */
+    public Async {
+      if (queueCapacity <= 0) {
+        queueCapacity = DEFAULT_QUEUE_CAPACITY;
+      }
+    }
+  }
+
+  /**
+   * Basic immutable wrapper for read replication properties.
+   *
+   * @param routing defines how a replica is chosen for each connection
+   * @param maxLag is the time a replica can be behind the primary before it is skipped
+   * @param healthCheckInterval is the time between checks of replica availability and lag
+   * @param readYourWrites defines whether writes issue consistency tokens, which route subsequent
+   *     reads only to replicas which have replayed them
+   */
+  public record Replication(
+      Routing routing, Duration maxLag, Duration healthCheckInterval, boolean readYourWrites) {
+    static final Duration DEFAULT_MAX_LAG = Duration.ofSeconds(10);
+    static final Duration DEFAULT_HEALTH_CHECK_INTERVAL = Duration.ofSeconds(5);
+
+    /** Post construct property validation, which falls back to defaults for missing values. */
+    public Replication {
+      if (routing == null) {
+        routing = Routing.LEAST_IN_FLIGHT;
+      }
+
+      if (maxLag == null || maxLag.isNegative()) {
+        maxLag = DEFAULT_MAX_LAG;
+      }
+
+      if (healthCheckInterval == null
+          || healthCheckInterval.isNegative()
+          || healthCheckInterval.isZero()) {
+        healthCheckInterval = DEFAULT_HEALTH_CHECK_INTERVAL;
+      }
+    }
+  }
+
+  /** Ways to choose a read replica. */
+  public enum Routing {
+    /** Each healthy replica in turn. */
+    ROUND_ROBIN,
+
+    /** Healthy replica with the least amount of borrowed connections. */
+    LEAST_IN_FLIGHT
+  }
+
+  /**
+   * Basic immutable wrapper for outbox relay properties.
+   *
+   * @param enabled defines whether recorded changes should be relayed at all
+   * @param batchSize is the amount of events published at once at most
+   * @param pollInterval is the time between checks for new events once the outbox is drained
+   * @param sink defines where events are published to
+   * @param path of the file to append events to, if events are published to a file
+   */
+  public record Outbox(
+      boolean enabled, int batchSize, Duration pollInterval, Sink sink, String path) {
+    static final int DEFAULT_BATCH_SIZE = 100;
+    static final Duration DEFAULT_POLL_INTERVAL = Duration.ofMillis(100);
+    static final String DEFAULT_PATH = "outbox.ndjson";
+
+    /** Post construct property validation, which falls back to defaults for missing values. */
+    public Outbox {
+      if (batchSize <= 0) {
+        batchSize = DEFAULT_BATCH_SIZE;
+      }
+
+      if (pollInterval == null || pollInterval.isNegative() || pollInterval.isZero()) {
+        pollInterval = DEFAULT_POLL_INTERVAL;
+      }
+
+      if (sink == null) {
+        sink = Sink.IN_PROCESS;
+      }
+
+      if (path == null || path.isBlank()) {
+        path = DEFAULT_PATH;
+      }
+    }
+  }
+
+  /**
+   * Basic immutable wrapper for read model properties.
+   *
+   * @param enabled defines whether queries should be served from the read model maintained from the
+   *     outbox, which requires the outbox to be relayed in-process
+   * @param rebuildOnStart defines whether the read model should be rebuilt from the source table
+   *     when the application starts, catching up with changes made while it was disabled
+   * @param tombstoneRetention is the time deleted users are kept for, which has to exceed the time
+   *     events of the same user may arrive out of order for
+   * @param purgeInterval is the time between removals of tombstones past their retention
+   */
+  public record Projection(
+      boolean enabled,
+      boolean rebuildOnStart,
+      Duration tombstoneRetention,
+      Duration purgeInterval) {
+    static final Duration DEFAULT_TOMBSTONE_RETENTION = Duration.ofHours(1);
+    static final Duration DEFAULT_PURGE_INTERVAL = Duration.ofMinutes(5);
+
+    /** Post construct property validation, which falls back to defaults for missing values. */
+    public Projection {
+      if (tombstoneRetention == null
+          || tombstoneRetention.isNegative()
+          || tombstoneRetention.isZero()) {
+        tombstoneRetention = DEFAULT_TOMBSTONE_RETENTION;
+      }
+
+      if (purgeInterval == null || purgeInterval.isNegative() || purgeInterval.isZero()) {
+        purgeInterval = DEFAULT_PURGE_INTERVAL;
+      }
+    }
+  }
+
+  /**
+   * Basic immutable wrapper for properties of data held in memory.
+   *
+   * @param enabled defines whether queries should be served from memory kept up to date by database
+   *     notifications
+   * @param resyncInterval is the time after which all data is loaded again, in case any
+   *     notification was missed
+   */
+  public record InMemory(boolean enabled, Duration resyncInterval) {
+    static final Duration DEFAULT_RESYNC_INTERVAL = Duration.ofMinutes(5);
+
+    /** Post construct property validation, which falls back to defaults for missing values. */
+    public InMemory {
+      if (resyncInterval == null || resyncInterval.isNegative() || resyncInterval.isZero()) {
+        resyncInterval = DEFAULT_RESYNC_INTERVAL;
+      }
+    }
+  }
+
+  /** Destinations of events relayed from the outbox. */
+  public enum Sink {
+    /** Subscribers within the same process. */
+    IN_PROCESS,
+
+    /** Newline delimited JSON written to the standard output. */
+    STDOUT,
+
+    /** Newline delimited JSON appended to a file. */
+    FILE
+  }
+
+  /** Ways to generate identifiers. */
+  public enum IdGeneration {
+    /** Random UUIDv4, which scatter inserts all over indexes. */
+    RANDOM,
+
+    /** Time-ordered UUIDv7, which append inserts to indexes. */
+    TIME_ORDERED
+  }
+
+  /** Ways to update existing entities. */
+  public enum UpdateMode {
+    /** Loading the entity first and storing it with optimistic locking afterwards. */
+    LOAD_AND_STORE,
+
+    /** Single {@code UPDATE ... RETURNING} statement checking the version on its own. */
+    SINGLE_STATEMENT
+  }
+
+  /** Kinds of threads to handle requests on. */
+  public enum Threads {
+    /** Bounded pool of platform threads, each blocked for the whole duration of the request. */
+    PLATFORM,
+
+    /**
+     * Virtual thread per request, which releases its carrier thread while waiting for the database.
+     */
+    VIRTUAL
+  }
+
+  /**
+   * Basic immutable wrapper for in-process cache properties.
+   *
+   * @param maximumSize is the amount of entries after which the least valuable ones are evicted
+   * @param expireAfterWrite is the time after which an entry is evicted regardless of its usage
+   */
+  public record Cache(long maximumSize, Duration expireAfterWrite) {
+    private static final long DEFAULT_MAXIMUM_SIZE = 100_000;
+    private static final Duration DEFAULT_EXPIRE_AFTER_WRITE = Duration.ofMinutes(5);
+    static final Cache DEFAULT = new Cache(DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_AFTER_WRITE);
+
+    /** Post construct property validation, which falls back to defaults for missing values. */
+    public Cache {
+      if (maximumSize <= 0) {
+        maximumSize = DEFAULT_MAXIMUM_SIZE;
+      }
+
+      if (expireAfterWrite == null || expireAfterWrite.isNegative() || expireAfterWrite.isZero()) {
+        expireAfterWrite = DEFAULT_EXPIRE_AFTER_WRITE;
+      }
+    }
+  }
+
+  /**
+   * Basic immutable wrapper for write coalescing properties.
+   *
+   * @param enabled defines whether concurrent writes should be coalesced at all
+   * @param maxBatchSize is the amount of writes after which the batch is flushed immediately
+   * @param maxDelay is the time the first write in the batch waits for others to join at most
+   */
+  public record Coalescing(boolean enabled, int maxBatchSize, Duration maxDelay) {
+    private static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    private static final Duration DEFAULT_MAX_DELAY = Duration.ofNanos(500_000);
+    static final Coalescing DEFAULT =
+        new Coalescing(false, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY);
+
+    /** Post construct property validation, which falls back to defaults for missing values. */
+    public Coalescing {
+      if (maxBatchSize <= 0) {
+        maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+      }
+
+      if (maxDelay == null || maxDelay.isNegative()) {
+        maxDelay = DEFAULT_MAX_DELAY;
+      }
+    }
+  }
+
+  /**
+   * Basic immutable wrapper for adaptive admission control properties.
+   *
+   * @param enabled defines whether borrowing connections should be limited at all
+   * @param initialLimit is the amount of connections allowed to be borrowed at once on startup, the
+   *     connection pool size if not configured
+   * @param minLimit is the amount of connections allowed to be borrowed at once at least
+   * @param maxLimit is the amount of connections allowed to be borrowed at once at most, including
+   *     ones waiting for the pool, four times the connection pool size if not configured
+   * @param latencyThreshold is the time spent waiting for the pool and executing statements on a
+   *     borrowed connection, after which the pool is considered to be congested
+   */
+  public record Admission(
+      boolean enabled, int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold) {
+    private static final int DEFAULT_MIN_LIMIT = 1;
+    private static final int DEFAULT_MAX_LIMIT_PER_CONNECTION = 4;
+    private static final Duration DEFAULT_LATENCY_THRESHOLD = Duration.ofMillis(250);
+    static final Admission DEFAULT =
+        new Admission(false, 0, DEFAULT_MIN_LIMIT, 0, DEFAULT_LATENCY_THRESHOLD);
+
+    /** Post construct property validation, which falls back to defaults for missing values. */
+    public Admission {
+      if (minLimit <= 0) {
+        minLimit = DEFAULT_MIN_LIMIT;
+      }
+
+      if (latencyThreshold == null || latencyThreshold.isNegative() || latencyThreshold.isZero()) {
+        latencyThreshold = DEFAULT_LATENCY_THRESHOLD;
+      }
+    }
+
+    /**
+     * @param maximumPoolSize of the connection pool to derive missing limits from
+     * @return properties with all limits present
+     */
+    public Admission sizedTo(int maximumPoolSize) {
+      final int max = maxLimit > 0 ? maxLimit : maximumPoolSize * DEFAULT_MAX_LIMIT_PER_CONNECTION;
+      final int initial = initialLimit > 0 ? initialLimit : maximumPoolSize;
+      return new Admission(
+          enabled, Math.min(initial, max), Math.min(minLimit, max), max, latencyThreshold);
+    }
+  }
+
   /**
    * @see <a
    *     href="https://en.wikipedia.org/wiki/Initialization-on-demand_holder_idiom">Initialization-on-demand
@@ -0,0 +1,18 @@
+package io.github.suppierk.ddd.javalin.ids;
+
+import java.util.UUID;
+
+/** Source of identifiers for primary keys and domain messages, see {@link Ids}. */
+@FunctionalInterface
+public interface IdGenerator {
+  /** Random UUIDv4 from {@link java.security.SecureRandom}, as produced by the JDK. */
+  IdGenerator RANDOM = UUID::randomUUID;
+
+  /** Time-ordered UUIDv7, see {@link TimeOrderedIdGenerator}. */
+  IdGenerator TIME_ORDERED = new TimeOrderedIdGenerator();
+
+  /**
+   * @return new unique identifier
+   */
+  UUID next();
+}
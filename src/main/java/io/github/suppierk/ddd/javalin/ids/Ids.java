@@ -0,0 +1,29 @@
+package io.github.suppierk.ddd.javalin.ids;
+
+import java.util.UUID;
+
+/**
+ * Identifiers of the application, generated by the {@link IdGenerator} in use.
+ *
+ * <p>Domain messages generate their own identifiers in convenience constructors, which have no way
+ * to receive a generator, hence the generator is shared process-wide and chosen once on start.
+ */
+public final class Ids {
+  private static volatile IdGenerator generator = IdGenerator.TIME_ORDERED;
+
+  private Ids() {}
+
+  /**
+   * @return new unique identifier
+   */
+  public static UUID next() {
+    return generator.next();
+  }
+
+  /**
+   * @param generator to generate identifiers with from now on
+   */
+  public static void use(IdGenerator generator) {
+    Ids.generator = generator;
+  }
+}
@@ -0,0 +1,32 @@
+package io.github.suppierk.ddd.javalin.outbox;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link OutboxSink} which hands events over to subscribers within the same process, for example to
+ * keep read models up to date.
+ *
+ * <p>Subscribers are called on the relay thread with the whole batch at once, so that they can
+ * apply it in a single round trip. A subscriber throwing an exception fails the whole batch, which
+ * is then delivered to every subscriber again.
+ */
+public final class InProcessOutboxSink implements OutboxSink {
+  private final List<Consumer<List<OutboxEvent>>> subscribers = new CopyOnWriteArrayList<>();
+
+  /**
+   * @param subscriber to receive all batches of events published from now on
+   */
+  public void subscribe(Consumer<List<OutboxEvent>> subscriber) {
+    subscribers.add(subscriber);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void publish(List<OutboxEvent> events) {
+    for (Consumer<List<OutboxEvent>> subscriber : subscribers) {
+      subscriber.accept(events);
+    }
+  }
+}
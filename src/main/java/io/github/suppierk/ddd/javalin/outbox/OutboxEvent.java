@@ -0,0 +1,38 @@
+package io.github.suppierk.ddd.javalin.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import io.github.suppierk.example.tables.records.OutboxRecord;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Change of an aggregate, as recorded in the outbox within the transaction of the change itself.
+ *
+ * @param id of the event, increasing in the order of recording
+ * @param aggregateType is the kind of the changed aggregate, such as {@code users}
+ * @param aggregateId of the changed aggregate
+ * @param eventType is the kind of the change, such as {@code UserCreated}
+ * @param payload is the state of the aggregate after the change, or before it for deletions, as
+ *     JSON
+ * @param createdAt is the time the change was recorded at
+ */
+public record OutboxEvent(
+    long id,
+    String aggregateType,
+    UUID aggregateId,
+    String eventType,
+    @JsonRawValue String payload,
+    OffsetDateTime createdAt) {
+  /**
+   * @param outboxRecord to convert
+   */
+  public OutboxEvent(OutboxRecord outboxRecord) {
+    this(
+        outboxRecord.getId(),
+        outboxRecord.getAggregateType(),
+        outboxRecord.getAggregateId(),
+        outboxRecord.getEventType(),
+        outboxRecord.getPayload().data(),
+        outboxRecord.getCreatedAt());
+  }
+}
@@ -0,0 +1,181 @@
+package io.github.suppierk.ddd.javalin.outbox;
+
+import static io.github.suppierk.example.Tables.OUTBOX;
+
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background process draining the outbox into {@link OutboxSink}.
+ *
+ * <p>Each batch of up to {@link Configuration.Outbox#batchSize()} events is deleted and published
+ * within a single transaction, so that events are only removed once they were published. Rows are
+ * claimed with {@code FOR UPDATE SKIP LOCKED}, which lets several instances of the application
+ * drain the same outbox concurrently without waiting for each other, at the cost of events of
+ * different batches being published out of order.
+ *
+ * <p>Outbox is polled every {@link Configuration.Outbox#pollInterval()} and drained without pauses
+ * while batches are full.
+ */
+public final class OutboxRelay implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(OutboxRelay.class);
+  private static final String METRIC_PREFIX = "outbox.relay";
+  private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+  private final DSLContext readWriteDsl;
+  private final OutboxSink sink;
+  private final int batchSize;
+  private final ScheduledThreadPoolExecutor executor;
+
+  private final DistributionSummary batchSizes;
+  private final Timer lag;
+  private final Counter published;
+  private final Counter failures;
+
+  /**
+   * @param configuration of the relay
+   * @param readWriteDsl to drain the outbox with
+   * @param sink to publish events to
+   * @param meterRegistry to publish metrics to
+   */
+  public OutboxRelay(
+      Configuration.Outbox configuration,
+      DSLContext readWriteDsl,
+      OutboxSink sink,
+      MeterRegistry meterRegistry) {
+    this.readWriteDsl = readWriteDsl;
+    this.sink = sink;
+    this.batchSize = configuration.batchSize();
+
+    this.batchSizes =
+        DistributionSummary.builder(METRIC_PREFIX + ".batch.size")
+            .description("Amount of events published at once")
+            .register(meterRegistry);
+    this.lag =
+        Timer.builder(METRIC_PREFIX + ".lag")
+            .description("Time from recording an event until it is published")
+            .register(meterRegistry);
+    this.published =
+        Counter.builder(METRIC_PREFIX + ".events")
+            .description("Amount of published events")
+            .register(meterRegistry);
+    this.failures =
+        Counter.builder(METRIC_PREFIX + ".failures")
+            .description("Amount of batches which failed to be published and were kept")
+            .register(meterRegistry);
+
+    this.executor =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              final var thread = new Thread(runnable, "outbox-relay");
+              thread.setDaemon(true);
+              return thread;
+            });
+    final long interval = configuration.pollInterval().toNanos();
+    executor.scheduleWithFixedDelay(this::drain, interval, interval, TimeUnit.NANOSECONDS);
+  }
+
+  /** Publishes batches until the outbox is drained or publishing fails. */
+  void drain() {
+    try {
+      List<OutboxEvent> events;
+
+      // Full batch means there are likely more events waiting
+      do {
+        events = relayBatch();
+
+        final var now = OffsetDateTime.now();
+        for (OutboxEvent event : events) {
+          lag.record(Duration.between(event.createdAt(), now));
+        }
+
+        if (!events.isEmpty()) {
+          batchSizes.record(events.size());
+          published.increment(events.size());
+        }
+      } while (events.size() == batchSize && !executor.isShutdown());
+    } catch (RuntimeException e) {
+      // Events stay in the outbox until the next attempt
+      failures.increment();
+      LOGGER.warn("Failed to relay outbox events, retrying on the next poll", e);
+    }
+  }
+
+  /**
+   * @return events published and removed from the outbox
+   */
+  private List<OutboxEvent> relayBatch() {
+    return readWriteDsl.transactionResult(
+        configuration -> {
+          final var claimed =
+              configuration
+                  .dsl()
+                  .deleteFrom(OUTBOX)
+                  .where(
+                      OUTBOX.ID.in(
+                          configuration
+                              .dsl()
+                              .select(OUTBOX.ID)
+                              .from(OUTBOX)
+                              .orderBy(OUTBOX.ID)
+                              .limit(batchSize)
+                              .forUpdate()
+                              .skipLocked()))
+                  .returning()
+                  .fetch();
+
+          final List<OutboxEvent> events =
+              claimed.stream()
+                  .map(OutboxEvent::new)
+                  .sorted(Comparator.comparingLong(OutboxEvent::id))
+                  .toList();
+
+          if (!events.isEmpty()) {
+            try {
+              sink.publish(events);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          }
+
+          return events;
+        });
+  }
+
+  /** Stops polling, waiting for the batch in progress, and closes the sink. */
+  @Override
+  public void close() {
+    executor.shutdown();
+
+    try {
+      if (!executor.awaitTermination(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+
+    try {
+      sink.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package io.github.suppierk.ddd.javalin.outbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/** Destination {@link OutboxRelay} publishes recorded events to. */
+public interface OutboxSink extends Closeable {
+  /**
+   * Publishes events, which are removed from the outbox only if this method succeeds.
+   *
+   * <p>Hence, events are delivered at least once: a failed batch is delivered again as a whole.
+   *
+   * @param events to publish in the order of recording
+   * @throws IOException if events cannot be published
+   */
+  void publish(List<OutboxEvent> events) throws IOException;
+
+  /** Releases resources of the sink, nothing by default. */
+  @Override
+  default void close() throws IOException {}
+}
@@ -0,0 +1,72 @@
+package io.github.suppierk.ddd.javalin.outbox;
+
+import io.javalin.json.JsonMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * {@link OutboxSink} which writes events as newline delimited JSON, for example to inspect them
+ * during development or tests.
+ */
+public final class StreamOutboxSink implements OutboxSink {
+  private final OutputStream outputStream;
+  private final JsonMapper jsonMapper;
+  private final boolean owned;
+
+  private StreamOutboxSink(OutputStream outputStream, JsonMapper jsonMapper, boolean owned) {
+    this.outputStream = outputStream;
+    this.jsonMapper = jsonMapper;
+    this.owned = owned;
+  }
+
+  /**
+   * @param jsonMapper to serialize events with
+   * @return sink writing to the standard output, which is left open on close
+   */
+  public static StreamOutboxSink stdout(JsonMapper jsonMapper) {
+    return new StreamOutboxSink(System.out, jsonMapper, false);
+  }
+
+  /**
+   * @param path of the file to append events to, created if missing
+   * @param jsonMapper to serialize events with
+   * @return sink writing to the file
+   * @throws IOException if the file cannot be opened
+   */
+  public static StreamOutboxSink file(Path path, JsonMapper jsonMapper) throws IOException {
+    return new StreamOutboxSink(
+        Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+        jsonMapper,
+        true);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void publish(List<OutboxEvent> events) throws IOException {
+    final var lines = new StringBuilder();
+    for (OutboxEvent event : events) {
+      lines.append(jsonMapper.toJsonString(event, OutboxEvent.class)).append('\n');
+    }
+
+    // Single write per batch, so that concurrent relays do not interleave lines
+    synchronized (outputStream) {
+      outputStream.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+      outputStream.flush();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() throws IOException {
+    if (owned) {
+      outputStream.close();
+    } else {
+      outputStream.flush();
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package io.github.suppierk.ddd.javalin.replication;
+
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+
+/**
+ * Lets clients read their own writes from replicas by passing a consistency token along.
+ *
+ * <p>The token is the position in the write-ahead log of the primary after a write was committed.
+ * Reads bearing the token are only routed by {@link ReplicaRoutingDataSource} to replicas which
+ * have already replayed that position, falling back to the primary otherwise, so that replicas keep
+ * serving most reads without clients sticking to the primary after every write.
+ *
+ * @see <a href="https://www.postgresql.org/docs/current/datatype-pg-lsn.html">pg_lsn type</a>
+ */
+public final class ReadYourWrites {
+  /** Response header with the token issued by writes, as well as request header to pass it. */
+  public static final String HEADER = "X-Consistency-Token";
+
+  /**
+   * Cookie with the token issued by writes, used if the request header is missing.
+   *
+   * <p>The cookie expires once replicas are expected to have caught up anyway, so that clients
+   * keeping cookies do not carry the token along for the rest of their session.
+   */
+  public static final String COOKIE = "consistency-token";
+
+  private static final ThreadLocal<Long> REQUIRED_LSN = new ThreadLocal<>();
+
+  private final DSLContext readWriteDsl;
+  private final int cookieMaxAgeSeconds;
+
+  /**
+   * @param readWriteDsl to read the current position of the primary with
+   * @param maxLag is the time a replica can be behind the primary before it is skipped
+   */
+  public ReadYourWrites(DSLContext readWriteDsl, Duration maxLag) {
+    this.readWriteDsl = readWriteDsl;
+    this.cookieMaxAgeSeconds = (int) Math.max(1, maxLag.toSeconds());
+  }
+
+  /**
+   * Issues the token for all writes committed so far.
+   *
+   * @param ctx of the current request to respond with the token to
+   * @return position in the write-ahead log the token holds
+   */
+  public long issue(Context ctx) {
+    final var lsn = readWriteDsl.fetchValue(DSL.field("pg_current_wal_lsn()::text", String.class));
+    ctx.header(HEADER, lsn).cookie(COOKIE, lsn, cookieMaxAgeSeconds);
+    return parse(lsn);
+  }
+
+  /**
+   * @param handler to run
+   * @return handler which routes reads of the given one only to replicas which have replayed the
+   *     token of the request, if there is one
+   */
+  public static Handler consistent(Handler handler) {
+    return ctx -> {
+      final var token =
+          Optional.ofNullable(ctx.header(HEADER)).or(() -> Optional.ofNullable(ctx.cookie(COOKIE)));
+
+      if (token.isEmpty()) {
+        handler.handle(ctx);
+        return;
+      }
+
+      final long lsn;
+      try {
+        lsn = parse(token.get());
+      } catch (IllegalArgumentException e) {
+        throw new BadRequestResponse("Malformed consistency token: %s".formatted(token.get()));
+      }
+
+      requiring(
+          lsn,
+          () -> {
+            handler.handle(ctx);
+            return null;
+          });
+    };
+  }
+
+  /**
+   * @param lsn position in the write-ahead log reads must observe
+   * @param read to run
+   * @return result of the read
+   * @param <T> type of the result
+   * @throws Exception if the read fails
+   */
+  static <T> T requiring(long lsn, Callable<T> read) throws Exception {
+    REQUIRED_LSN.set(lsn);
+    try {
+      return read.call();
+    } finally {
+      REQUIRED_LSN.remove();
+    }
+  }
+
+  /**
+   * @return {@code true} if reads of the current thread must observe a particular write
+   */
+  public static boolean isRequired() {
+    return REQUIRED_LSN.get() != null;
+  }
+
+  /**
+   * @return position in the write-ahead log reads of the current thread must observe, if any
+   */
+  public static OptionalLong required() {
+    final var lsn = REQUIRED_LSN.get();
+    return lsn == null ? OptionalLong.empty() : OptionalLong.of(lsn);
+  }
+
+  /**
+   * @param dsl connected to either a replica or the primary
+   * @return position in the write-ahead log the database has replayed, which reads made later on
+   *     the same connection observe at least
+   */
+  public static long replayed(DSLContext dsl) {
+    return parse(
+        dsl.resultQuery(ReplicaRoutingDataSource.REPLAYED_LSN_QUERY).fetchOne(0, String.class));
+  }
+
+  /**
+   * @param lsn in the text form of Postgres, such as {@code 16/B374D848}
+   * @return comparable position in the write-ahead log
+   * @throws IllegalArgumentException if the value is not a valid position
+   */
+  static long parse(String lsn) {
+    final int separator = lsn.indexOf('/');
+    if (separator <= 0 || separator == lsn.length() - 1) {
+      throw new IllegalArgumentException("Not a log sequence number: %s".formatted(lsn));
+    }
+
+    final long high = Long.parseLong(lsn.substring(0, separator), 16);
+    final long low = Long.parseLong(lsn.substring(separator + 1), 16);
+    if (high < 0 || high > 0xFFFFFFFFL || low < 0 || low > 0xFFFFFFFFL) {
+      throw new IllegalArgumentException("Not a log sequence number: %s".formatted(lsn));
+    }
+
+    return (high << 32) | low;
+  }
+}
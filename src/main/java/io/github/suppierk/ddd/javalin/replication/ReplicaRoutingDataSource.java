@@ -0,0 +1,412 @@
+package io.github.suppierk.ddd.javalin.replication;
+
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * {@link DataSource} which spreads borrowing connections over several read replicas.
+ *
+ * <p>Each replica is health-checked periodically in the background, starting right away: a replica
+ * which cannot be queried or which replays changes of the primary later than {@link
+ * Configuration.Replication#maxLag()} is skipped until it catches up. Replicas are only used once
+ * their first check passes, so if no replica is healthy yet or anymore, connections are borrowed
+ * from the fallback, which is expected to be the primary.
+ *
+ * <p>Checks run over a dedicated connection of each replica rather than one of its pool, so that an
+ * exhausted pool neither delays checks nor makes a replica look unhealthy, and a query which does
+ * not answer within the check interval counts as a failure.
+ *
+ * <p>Reads which must observe a particular write, see {@link ReadYourWrites}, are only routed to
+ * replicas which have already replayed it, falling back to the primary as well.
+ */
+public final class ReplicaRoutingDataSource implements DataSource, Closeable {
+  /**
+   * Replay timestamp of an idle replica does not move, hence it is only compared with the current
+   * time while there are received changes which are not replayed yet.
+   */
+  static final String HEALTH_QUERY =
+      """
+      SELECT CASE
+        WHEN NOT pg_is_in_recovery() THEN 0
+        WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+      END,
+      (CASE
+        WHEN pg_is_in_recovery() THEN pg_last_wal_replay_lsn()
+        ELSE pg_current_wal_lsn()
+      END)::text
+      """;
+
+  /** Primary has nothing to replay, hence its own position counts as replayed. */
+  static final String REPLAYED_LSN_QUERY =
+      """
+      SELECT (CASE
+        WHEN pg_is_in_recovery() THEN pg_last_wal_replay_lsn()
+        ELSE pg_current_wal_lsn()
+      END)::text
+      """;
+
+  private final List<Replica> replicas;
+  private final DataSource fallback;
+  private final Configuration.Routing routing;
+  private final double maxLagSeconds;
+  private final int healthCheckTimeoutSeconds;
+  private final ScheduledThreadPoolExecutor healthChecker;
+  private final AtomicInteger next;
+  private final Counter unhealthyFallbacks;
+  private final Counter staleFallbacks;
+
+  /**
+   * @param replicas to borrow connections from by their names
+   * @param fallback to borrow connections from when no replica is healthy
+   * @param replication properties of routing between replicas
+   * @param meterRegistry to publish metrics to
+   */
+  public ReplicaRoutingDataSource(
+      Map<String, Host> replicas,
+      DataSource fallback,
+      Configuration.Replication replication,
+      MeterRegistry meterRegistry) {
+    this.replicas = new ArrayList<>(replicas.size());
+    this.fallback = fallback;
+    this.routing = replication.routing();
+    this.maxLagSeconds = replication.maxLag().toNanos() / 1e9;
+    this.healthCheckTimeoutSeconds = healthCheckTimeoutSeconds(replication);
+    this.next = new AtomicInteger();
+
+    replicas.forEach(
+        (name, host) -> {
+          final var replica = new Replica(name, host);
+          this.replicas.add(replica);
+
+          Gauge.builder("database.replica.lag", replica, r -> r.lagSeconds)
+              .description("Seconds the replica is behind the primary")
+              .baseUnit("seconds")
+              .tag("replica", name)
+              .register(meterRegistry);
+          Gauge.builder("database.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+              .description("Whether the replica receives queries")
+              .tag("replica", name)
+              .register(meterRegistry);
+          Gauge.builder("database.replica.in.flight", replica, r -> r.inFlight.get())
+              .description("Amount of connections currently borrowed from the replica")
+              .tag("replica", name)
+              .register(meterRegistry);
+        });
+
+    this.unhealthyFallbacks =
+        Counter.builder("database.replica.fallback")
+            .description("Amount of connections borrowed from the primary instead of replicas")
+            .tag("reason", "unhealthy")
+            .register(meterRegistry);
+    this.staleFallbacks =
+        Counter.builder("database.replica.fallback")
+            .description("Amount of connections borrowed from the primary instead of replicas")
+            .tag("reason", "stale")
+            .register(meterRegistry);
+
+    final var threadCounter = new AtomicInteger();
+    this.healthChecker =
+        new ScheduledThreadPoolExecutor(
+            this.replicas.size(),
+            runnable -> {
+              final var thread =
+                  new Thread(
+                      runnable,
+                      "replica-health-checker-%d".formatted(threadCounter.incrementAndGet()));
+              thread.setDaemon(true);
+              return thread;
+            });
+
+    // One thread per replica, so that an unreachable replica does not delay checks of others
+    final long interval = replication.healthCheckInterval().toNanos();
+    for (Replica replica : this.replicas) {
+      healthChecker.scheduleWithFixedDelay(() -> check(replica), 0, interval, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * @param replication properties of routing between replicas
+   * @return seconds a health check may take at most, which is the check interval, but not less than
+   *     the one second resolution of JDBC timeouts
+   */
+  public static int healthCheckTimeoutSeconds(Configuration.Replication replication) {
+    return (int) Math.max(1, replication.healthCheckInterval().toSeconds());
+  }
+
+  /** Checks health of every replica right away. */
+  void checkHealth() {
+    replicas.forEach(this::check);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection() throws SQLException {
+    final var candidates = candidates();
+    if (candidates.isEmpty()) {
+      unhealthyFallbacks.increment();
+      return fallback.getConnection();
+    }
+
+    final var required = ReadYourWrites.required();
+    if (required.isEmpty()) {
+      return borrow(candidates.getFirst());
+    }
+
+    for (Replica replica : candidates) {
+      if (Long.compareUnsigned(replica.replayedLsn, required.getAsLong()) >= 0) {
+        return borrow(replica);
+      }
+
+      // Known position is only as recent as the last check, hence asking the replica itself
+      final var connection = borrow(replica);
+      try {
+        if (Long.compareUnsigned(replayedLsn(connection, replica), required.getAsLong()) >= 0) {
+          return connection;
+        }
+      } catch (SQLException | RuntimeException e) {
+        connection.close();
+        throw e;
+      }
+
+      connection.close();
+    }
+
+    staleFallbacks.increment();
+    return fallback.getConnection();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    throw new SQLFeatureNotSupportedException("Replicas use credentials of their own pools");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return fallback.getLogWriter();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    fallback.setLogWriter(out);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    fallback.setLoginTimeout(seconds);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return fallback.getLoginTimeout();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    return fallback.getParentLogger();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+
+    throw new SQLException("%s is not a wrapper for %s".formatted(getClass(), iface));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return iface.isInstance(this);
+  }
+
+  /** Stops health checks and closes pools of all replicas. */
+  @Override
+  public void close() {
+    healthChecker.shutdownNow();
+
+    for (Replica replica : replicas) {
+      synchronized (replica.healthCheckLock) {
+        replica.closeHealthConnection();
+      }
+
+      if (replica.dataSource instanceof AutoCloseable closeable) {
+        try {
+          closeable.close();
+        } catch (Exception e) {
+          throw new IllegalStateException("Failed to close replica " + replica.name, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return healthy replicas in the order of preference
+   */
+  private List<Replica> candidates() {
+    final var healthy = replicas.stream().filter(replica -> replica.healthy).toList();
+    if (healthy.isEmpty()) {
+      return healthy;
+    }
+
+    // Starting from the next replica in turn spreads ties evenly
+    final int offset = Math.floorMod(next.getAndIncrement(), healthy.size());
+    final var rotated = new ArrayList<Replica>(healthy.size());
+    rotated.addAll(healthy.subList(offset, healthy.size()));
+    rotated.addAll(healthy.subList(0, offset));
+
+    if (routing == Configuration.Routing.LEAST_IN_FLIGHT) {
+      rotated.sort(Comparator.comparingInt(replica -> replica.inFlight.get()));
+    }
+
+    return rotated;
+  }
+
+  private Connection borrow(Replica replica) throws SQLException {
+    replica.inFlight.incrementAndGet();
+
+    try {
+      return releasingOnClose(replica.dataSource.getConnection(), replica);
+    } catch (SQLException | RuntimeException e) {
+      replica.inFlight.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /** Checks of the same replica run one at a time, as they share its dedicated connection. */
+  private void check(Replica replica) {
+    synchronized (replica.healthCheckLock) {
+      try (final var statement = replica.healthConnection().prepareStatement(HEALTH_QUERY)) {
+        statement.setQueryTimeout(healthCheckTimeoutSeconds);
+
+        try (final var resultSet = statement.executeQuery()) {
+          resultSet.next();
+          replica.lagSeconds = resultSet.getDouble(1);
+          replica.replayed(ReadYourWrites.parse(resultSet.getString(2)));
+          replica.healthy = replica.lagSeconds <= maxLagSeconds;
+        }
+      } catch (SQLException | RuntimeException e) {
+        // Unreachable until proven otherwise by the next check, which connects anew
+        replica.closeHealthConnection();
+        replica.healthy = false;
+      }
+    }
+  }
+
+  private static long replayedLsn(Connection connection, Replica replica) throws SQLException {
+    try (final var statement = connection.prepareStatement(REPLAYED_LSN_QUERY);
+        final var resultSet = statement.executeQuery()) {
+      resultSet.next();
+      replica.replayed(ReadYourWrites.parse(resultSet.getString(1)));
+      return replica.replayedLsn;
+    }
+  }
+
+  private static Connection releasingOnClose(Connection connection, Replica replica) {
+    final var released = new AtomicBoolean();
+    return (Connection)
+        Proxy.newProxyInstance(
+            ReplicaRoutingDataSource.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+              if ("close".equals(method.getName())
+                  && method.getParameterCount() == 0
+                  && released.compareAndSet(false, true)) {
+                replica.inFlight.decrementAndGet();
+              }
+
+              try {
+                return method.invoke(connection, args);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+            });
+  }
+
+  /**
+   * Connection sources of a single replica.
+   *
+   * @param pool to borrow connections for queries from
+   * @param healthCheck to open the dedicated connection of health checks with, which is expected to
+   *     give up connecting within the check interval
+   */
+  public record Host(DataSource pool, DataSource healthCheck) {}
+
+  private static final class Replica {
+    private final String name;
+    private final DataSource dataSource;
+    private final DataSource healthCheckDataSource;
+    private final AtomicInteger inFlight;
+    private final Object healthCheckLock;
+
+    private volatile boolean healthy;
+    private volatile double lagSeconds;
+    private volatile long replayedLsn;
+
+    /** Only used by health checks, which hold {@link #healthCheckLock}. */
+    private Connection healthConnection;
+
+    private Replica(String name, Host host) {
+      this.name = name;
+      this.dataSource = host.pool();
+      this.healthCheckDataSource = host.healthCheck();
+      this.inFlight = new AtomicInteger();
+      this.healthCheckLock = new Object();
+      this.healthy = false;
+    }
+
+    private Connection healthConnection() throws SQLException {
+      if (healthConnection == null) {
+        healthConnection = healthCheckDataSource.getConnection();
+      }
+
+      return healthConnection;
+    }
+
+    private void closeHealthConnection() {
+      if (healthConnection != null) {
+        try {
+          healthConnection.close();
+        } catch (SQLException e) {
+          // Connection is abandoned either way
+        } finally {
+          healthConnection = null;
+        }
+      }
+    }
+
+    /** Replayed position never goes back, even if an older one is reported late. */
+    private synchronized void replayed(long lsn) {
+      if (Long.compareUnsigned(lsn, replayedLsn) > 0) {
+        replayedLsn = lsn;
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package io.github.suppierk.ddd.javalin.users;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Helpers to produce and compare HTTP entity tags of users.
+ *
+ * <p>User representation changes only together with its {@code version}, which makes {@code id} and
+ * {@code version} sufficient to produce a strong entity tag without hashing the payload.
+ *
+ * @see <a href="https://www.rfc-editor.org/rfc/rfc9110#name-etag">RFC 9110 ETag</a>
+ */
+final class EntityTags {
+  private static final String WEAK_PREFIX = "W/";
+  private static final String ANY = "*";
+
+  private EntityTags() {
+    // Utility class
+  }
+
+  /**
+   * @param id of the user
+   * @param version of the user
+   * @return strong entity tag of the given user state
+   */
+  static String of(UUID id, int version) {
+    return "\"%s-%d\"".formatted(id, version);
+  }
+
+  /**
+   * Checks {@code If-None-Match} header value using weak comparison.
+   *
+   * @param ifNoneMatch header value, may be {@code null}
+   * @param etag of the current representation
+   * @return {@code true} if the client already has the current representation
+   */
+  static boolean isNotModified(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+      return false;
+    }
+
+    for (String candidate : ifNoneMatch.split(",")) {
+      final var trimmed = candidate.trim();
+
+      if (ANY.equals(trimmed) || etag.equals(stripWeakness(trimmed))) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Extracts the version from {@code If-Match} header value using strong comparison.
+   *
+   * <p>Only a single entity tag is supported, because updates are conditional on exactly one
+   * version.
+   *
+   * @param ifMatch header value, must not be {@code *}
+   * @param id of the user the header was sent for
+   * @return expected version or empty if the header does not describe any state of the given user
+   */
+  static Optional<Integer> expectedVersion(String ifMatch, UUID id) {
+    final var trimmed = ifMatch.trim();
+    final var prefix = "\"%s-".formatted(id);
+
+    if (!trimmed.startsWith(prefix) || !trimmed.endsWith("\"")) {
+      return Optional.empty();
+    }
+
+    try {
+      return Optional.of(
+          Integer.parseInt(trimmed.substring(prefix.length(), trimmed.length() - 1)));
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * @param ifMatch header value, may be {@code null}
+   * @return {@code true} if the header does not restrict which state of the user is expected
+   */
+  static boolean isUnconditional(String ifMatch) {
+    return ifMatch == null || ifMatch.isBlank() || ANY.equals(ifMatch.trim());
+  }
+
+  private static String stripWeakness(String etag) {
+    return etag.startsWith(WEAK_PREFIX) ? etag.substring(WEAK_PREFIX.length()) : etag;
+  }
+}
@@ -0,0 +1,367 @@
+package io.github.suppierk.ddd.javalin.users;
+
+import static io.github.suppierk.example.Tables.USERS;
+
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.github.suppierk.ddd.javalin.users.queries.GetAllUsers;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import io.javalin.json.JsonMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * Public columns of all users held in memory, kept up to date through {@code LISTEN/NOTIFY}.
+ *
+ * <p>A trigger on {@code users} notifies the {@value #CHANNEL} channel with the new state of every
+ * changed user once its transaction commits. A dedicated connection to the primary listens on the
+ * channel and applies notifications on its own daemon thread, only ever moving a user to a higher
+ * {@code version}, so lookups and pages of users need no database round trip at all.
+ *
+ * <p>Users are loaded in bulk on the listening connection right after it starts listening, so that
+ * every change is either part of the load or notified after it. Notifications are lost while the
+ * connection is broken, hence users are loaded again once it is restored, as well as every {@link
+ * Configuration.InMemory#resyncInterval()} as a safety net. Until then, as well as while loading,
+ * {@link #isSynced()} is {@code false} and queries are expected to be served from the database
+ * instead.
+ */
+public final class InMemoryUsers implements Closeable {
+  static final String CHANNEL = "users_changes";
+
+  private static final String METRIC_PREFIX = "memory.users";
+  private static final String DELETE = "DELETE";
+  private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+  private static final Duration RECONNECT_DELAY = Duration.ofSeconds(1);
+  private static final int LOAD_FETCH_SIZE = 10_000;
+
+  /** Same order as {@code (created_at, id)} in Postgres, which compares UUIDs as unsigned bytes. */
+  private static final Comparator<GetAllUsers.Cursor> ORDER =
+      Comparator.comparing(GetAllUsers.Cursor::createdAt)
+          .thenComparing(cursor -> cursor.id().getMostSignificantBits(), Long::compareUnsigned)
+          .thenComparing(cursor -> cursor.id().getLeastSignificantBits(), Long::compareUnsigned);
+
+  private final Configuration.Database database;
+  private final JsonMapper jsonMapper;
+  private final long resyncIntervalNanos;
+  private final Thread listener;
+
+  private final Counter notifications;
+  private final Counter resyncs;
+  private final Timer lag;
+
+  private volatile Snapshot snapshot = new Snapshot();
+  private volatile boolean synced;
+  private volatile boolean closed;
+
+  private Connection connection;
+  private long lastSyncNanos;
+
+  /**
+   * Loads all users right away and starts listening for their changes.
+   *
+   * @param configuration of the in-memory users
+   * @param database properties of the primary to listen to
+   * @param jsonMapper to parse notifications with
+   * @param meterRegistry to publish metrics to
+   * @throws IllegalStateException if users cannot be loaded
+   */
+  public InMemoryUsers(
+      Configuration.InMemory configuration,
+      Configuration.Database database,
+      JsonMapper jsonMapper,
+      MeterRegistry meterRegistry) {
+    this.database = database;
+    this.jsonMapper = jsonMapper;
+    this.resyncIntervalNanos = configuration.resyncInterval().toNanos();
+
+    Gauge.builder(METRIC_PREFIX + ".size", this, users -> users.snapshot.byId.size())
+        .description("Amount of users held in memory")
+        .register(meterRegistry);
+    Gauge.builder(METRIC_PREFIX + ".synced", this, users -> users.synced ? 1 : 0)
+        .description("Whether users in memory receive changes and serve queries")
+        .register(meterRegistry);
+    this.notifications =
+        Counter.builder(METRIC_PREFIX + ".notifications")
+            .description("Amount of changes applied to users in memory")
+            .register(meterRegistry);
+    this.resyncs =
+        Counter.builder(METRIC_PREFIX + ".resyncs")
+            .description("Amount of times users were loaded into memory from scratch")
+            .register(meterRegistry);
+    this.lag =
+        Timer.builder(METRIC_PREFIX + ".lag")
+            .description("Time from changing a user until the change is applied in memory")
+            .register(meterRegistry);
+
+    try {
+      sync();
+    } catch (SQLException e) {
+      disconnect();
+      throw new IllegalStateException("Failed to load users into memory", e);
+    }
+
+    this.listener = new Thread(this::listen, "users-listener");
+    this.listener.setDaemon(true);
+    this.listener.start();
+  }
+
+  /**
+   * @return {@code true} if users in memory are known to be up to date
+   */
+  public boolean isSynced() {
+    return synced;
+  }
+
+  /**
+   * Same as {@link io.github.suppierk.ddd.javalin.users.queries.GetUser.Handler}, but served from
+   * memory.
+   *
+   * @param id of the user
+   * @return existing user or empty
+   */
+  public Optional<UsersRecord> getUser(UUID id) {
+    return Optional.ofNullable(snapshot.byId.get(id)).map(Entry::toUsersRecord);
+  }
+
+  /**
+   * Same as {@link GetAllUsers.Handler}, but served from memory.
+   *
+   * @param query to run
+   * @return page of users with one extra record if there is a next page
+   */
+  public List<UsersRecord> getAllUsers(GetAllUsers query) {
+    final var ordered = snapshot.ordered;
+    final Map<GetAllUsers.Cursor, Entry> page =
+        query.after().isPresent() ? ordered.tailMap(query.after().get(), false) : ordered;
+
+    return page.values().stream().limit(query.limit() + 1L).map(Entry::toUsersRecord).toList();
+  }
+
+  /** Stops listening and closes the listening connection. */
+  @Override
+  public void close() {
+    closed = true;
+    synced = false;
+    listener.interrupt();
+
+    try {
+      listener.join(RECONNECT_DELAY.plus(POLL_TIMEOUT).toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Applies notifications until closed, reconnecting and loading users again on failures. */
+  private void listen() {
+    while (!closed) {
+      try {
+        if (connection == null || System.nanoTime() - lastSyncNanos >= resyncIntervalNanos) {
+          sync();
+        }
+
+        final var received =
+            connection.unwrap(PGConnection.class).getNotifications((int) POLL_TIMEOUT.toMillis());
+        if (received != null) {
+          for (PGNotification notification : received) {
+            apply(notification.getParameter());
+          }
+        }
+      } catch (SQLException | RuntimeException e) {
+        // Changes made until reconnecting are only observed by loading users again
+        synced = false;
+        disconnect();
+
+        if (!closed) {
+          try {
+            TimeUnit.NANOSECONDS.sleep(RECONNECT_DELAY.toNanos());
+          } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    }
+
+    disconnect();
+  }
+
+  /**
+   * Starts listening, if not yet, and replaces users in memory with all users in the database.
+   *
+   * @throws SQLException if the database cannot be reached
+   */
+  private void sync() throws SQLException {
+    if (connection == null) {
+      final var properties = new Properties();
+      properties.setProperty("user", database.username());
+      properties.setProperty("password", database.password());
+      connection = DriverManager.getConnection(database.url(), properties);
+
+      // Takes effect immediately in auto-commit mode, before users are loaded
+      try (final var statement = connection.createStatement()) {
+        statement.execute("LISTEN " + CHANNEL);
+      }
+    }
+
+    // Cursor-based fetching requires a transaction, notifications are held until it ends, hence
+    // users in memory are not kept up to date meanwhile
+    synced = false;
+    final var loaded = new Snapshot();
+    connection.setAutoCommit(false);
+    try {
+      DSL.using(connection, SQLDialect.POSTGRES)
+          .select(USERS.ID, USERS.VERSION, USERS.CREATED_AT, USERS.USERNAME, USERS.EMAIL)
+          .from(USERS)
+          .fetchSize(LOAD_FETCH_SIZE)
+          .forEach(
+              record ->
+                  loaded.put(
+                      new Entry(
+                          record.value1(),
+                          record.value2(),
+                          record.value3(),
+                          record.value4(),
+                          record.value5())));
+      connection.commit();
+    } finally {
+      connection.setAutoCommit(true);
+    }
+
+    snapshot = loaded;
+    synced = true;
+    lastSyncNanos = System.nanoTime();
+    resyncs.increment();
+  }
+
+  /**
+   * @param payload of the notification to apply
+   */
+  private void apply(String payload) {
+    final Change change = jsonMapper.fromJsonString(payload, Change.class);
+
+    if (DELETE.equals(change.operation())) {
+      snapshot.remove(change.id(), change.version());
+    } else {
+      snapshot.put(
+          new Entry(
+              change.id(),
+              change.version(),
+              change.createdAt(),
+              change.username(),
+              change.email()));
+    }
+
+    notifications.increment();
+    lag.record(Duration.between(change.changedAt(), OffsetDateTime.now()));
+  }
+
+  private void disconnect() {
+    if (connection != null) {
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        // Connection is abandoned either way
+      }
+
+      connection = null;
+    }
+  }
+
+  /**
+   * Users indexed by their IDs and ordered for pagination, modified by the listener thread only.
+   */
+  private static final class Snapshot {
+    private final ConcurrentHashMap<UUID, Entry> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<GetAllUsers.Cursor, Entry> ordered =
+        new ConcurrentSkipListMap<>(ORDER);
+
+    /** Stores the user, unless a newer version of it is already stored. */
+    private void put(Entry entry) {
+      final var existing = byId.get(entry.id());
+      if (existing != null && existing.version() >= entry.version()) {
+        return;
+      }
+
+      byId.put(entry.id(), entry);
+      ordered.put(entry.position(), entry);
+
+      if (existing != null && !existing.position().equals(entry.position())) {
+        ordered.remove(existing.position());
+      }
+    }
+
+    /** Removes the user, unless a newer version of it is stored. */
+    private void remove(UUID id, int version) {
+      final var existing = byId.get(id);
+      if (existing == null || existing.version() > version) {
+        return;
+      }
+
+      byId.remove(id);
+      ordered.remove(existing.position());
+    }
+  }
+
+  /**
+   * Public state of the user.
+   *
+   * @param id of the user
+   * @param version of the user
+   * @param createdAt is the time the user was created at
+   * @param username of the user
+   * @param email of the user
+   */
+  private record Entry(
+      UUID id, int version, LocalDateTime createdAt, String username, String email) {
+    private GetAllUsers.Cursor position() {
+      return new GetAllUsers.Cursor(createdAt, id);
+    }
+
+    /**
+     * @return record of the source table without the password, which is not held in memory
+     */
+    private UsersRecord toUsersRecord() {
+      return new UsersRecord(id, version, createdAt, username, null, email);
+    }
+  }
+
+  /**
+   * Payload of the notification, as produced by the {@code users_notify} trigger.
+   *
+   * @param operation which changed the user, such as {@code INSERT}
+   * @param id of the user
+   * @param version of the user after the change, or before it for deletions
+   * @param createdAt is the time the user was created at, absent for deletions
+   * @param username of the user, absent for deletions
+   * @param email of the user, absent for deletions
+   * @param changedAt is the time the change was made at
+   */
+  record Change(
+      String operation,
+      UUID id,
+      int version,
+      LocalDateTime createdAt,
+      String username,
+      String email,
+      OffsetDateTime changedAt) {}
+}
@@ -1,43 +1,159 @@
 package io.github.suppierk.ddd.javalin.users;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.github.suppierk.ddd.async.DomainNotificationProducer;
 import io.github.suppierk.ddd.cqrs.BoundedContext;
+import io.github.suppierk.ddd.javalin.async.DatabaseExecutor;
+import io.github.suppierk.ddd.javalin.batching.BatchLoader;
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.github.suppierk.ddd.javalin.replication.ReadYourWrites;
+import io.github.suppierk.ddd.javalin.users.commands.BatchUsers;
 import io.github.suppierk.ddd.javalin.users.commands.CreateUser;
+import io.github.suppierk.ddd.javalin.users.commands.CreateUserCoalescer;
 import io.github.suppierk.ddd.javalin.users.commands.DeleteUser;
 import io.github.suppierk.ddd.javalin.users.commands.UpdateUser;
+import io.github.suppierk.ddd.javalin.users.dto.BatchUsersResponse;
 import io.github.suppierk.ddd.javalin.users.dto.User;
+import io.github.suppierk.ddd.javalin.users.dto.UsersLookup;
+import io.github.suppierk.ddd.javalin.users.dto.UsersPage;
+import io.github.suppierk.ddd.javalin.users.queries.ExportUsers;
 import io.github.suppierk.ddd.javalin.users.queries.GetAllUsers;
 import io.github.suppierk.ddd.javalin.users.queries.GetUser;
+import io.github.suppierk.ddd.javalin.users.queries.GetUserByEmail;
+import io.github.suppierk.ddd.javalin.users.queries.GetUserByUsername;
+import io.github.suppierk.ddd.javalin.users.queries.GetUsersByIds;
+import io.github.suppierk.ddd.javalin.users.queries.SearchUsers;
 import io.github.suppierk.ddd.jooq.DslContextProvider;
 import io.github.suppierk.example.tables.Users;
 import io.github.suppierk.example.tables.records.UsersRecord;
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
 import io.javalin.http.Handler;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
+import io.javalin.json.JavalinJackson;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.jooq.DSLContext;
+import org.jooq.exception.DataChangedException;
 
 /**
  * Represents {@link BoundedContext} for {@link UsersRecord}.
  *
  * <p>In addition, implements {@link UsersRestResource} to be used in REST API definition.
+ *
+ * <p>Single statement updates and deletes, batches and coalesced creates run their handlers against
+ * the read-write DSL directly, hence they are not passed to the {@link DomainNotificationProducer}
+ * of this context, unlike commands run through it. Consumers are expected to learn about changes
+ * made by any write path alike from the outbox instead, which the database records while it is
+ * relayed, see {@link io.github.suppierk.ddd.javalin.outbox.OutboxRelay}.
  */
 public final class UsersBoundedContext extends BoundedContext<UsersRecord>
-    implements UsersRestResource {
+    implements UsersRestResource, Closeable {
+  private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+  /** SQLSTATE of violating a unique index, such as the ones of usernames and emails. */
+  private static final String UNIQUE_VIOLATION = "23505";
+
+  private final DSLContext readWriteDsl;
+  private final DSLContext readOnlyDsl;
+  private final UsersCache usersCache;
+  private final Optional<CreateUserCoalescer> createUserCoalescer;
+  private final Optional<BatchLoader<UUID, UsersCache.Loaded>> usersLoader;
+  private final Optional<DatabaseExecutor> databaseExecutor;
+  private final Optional<ReadYourWrites> readYourWrites;
+  private final Optional<UsersProjection> usersProjection;
+  private final Optional<InMemoryUsers> inMemoryUsers;
+  private final Configuration.UpdateMode updateUserMode;
+  private final GetUser.Handler getUserHandler;
+  private final GetUsersByIds.Handler getUsersByIdsHandler;
+  private final UpdateUser.Handler updateUserHandler;
+  private final DeleteUser.Handler deleteUserHandler;
+  private final BatchUsers.Handler batchUsersHandler;
+
   public UsersBoundedContext(
       DslContextProvider readWriteDslContextProvider,
       DslContextProvider readOnlyDslContextProvider,
-      DomainNotificationProducer domainNotificationProducer) {
+      DomainNotificationProducer domainNotificationProducer,
+      DSLContext readWriteDsl,
+      DSLContext readOnlyDsl,
+      UsersCache usersCache,
+      Optional<CreateUserCoalescer> createUserCoalescer,
+      Configuration.Coalescing getUserCoalescing,
+      Configuration.UpdateMode updateUserMode,
+      Optional<DatabaseExecutor> databaseExecutor,
+      Optional<ReadYourWrites> readYourWrites,
+      Optional<UsersProjection> usersProjection,
+      Optional<InMemoryUsers> inMemoryUsers,
+      MeterRegistry meterRegistry) {
     super(
         Users.USERS,
         readWriteDslContextProvider,
         readOnlyDslContextProvider,
         domainNotificationProducer);
 
+    this.readWriteDsl = readWriteDsl;
+    this.readOnlyDsl = readOnlyDsl;
+    this.usersCache = usersCache;
+    this.createUserCoalescer = createUserCoalescer;
+    this.databaseExecutor = databaseExecutor;
+    this.readYourWrites = readYourWrites;
+    this.usersProjection = usersProjection;
+    this.inMemoryUsers = inMemoryUsers;
+    this.usersLoader =
+        getUserCoalescing.enabled()
+            ? Optional.of(
+                new BatchLoader<>("users", getUserCoalescing, this::fetchUsersByIds, meterRegistry))
+            : Optional.empty();
+    this.updateUserMode = updateUserMode;
+    this.getUserHandler = new GetUser.Handler();
+    this.getUsersByIdsHandler = new GetUsersByIds.Handler();
+    this.updateUserHandler = new UpdateUser.Handler();
+    this.deleteUserHandler = new DeleteUser.Handler();
+    this.batchUsersHandler = new BatchUsers.Handler();
+
     // Single entity operations
     addDomainCommandHandler(new CreateUser.Handler());
-    addDomainQueryHandler(new GetUser.Handler());
+    addDomainQueryHandler(getUserHandler);
+    addDomainQueryHandler(new GetUserByUsername.Handler());
+    addDomainQueryHandler(new GetUserByEmail.Handler());
     addDomainQueryHandler(new GetAllUsers.Handler());
-    addDomainCommandHandler(new UpdateUser.Handler());
-    addDomainCommandHandler(new DeleteUser.Handler());
+    addDomainQueryHandler(getUsersByIdsHandler);
+    addDomainQueryHandler(new ExportUsers.Handler());
+    addDomainQueryHandler(new SearchUsers.Handler());
+    addDomainCommandHandler(updateUserHandler);
+    addDomainCommandHandler(deleteUserHandler);
+  }
+
+  @Override
+  public Handler dispatch(Handler handler) {
+    // Token has to be applied on the thread which runs the handler
+    final Handler consistent =
+        readYourWrites.isPresent() ? ReadYourWrites.consistent(handler) : handler;
+    return databaseExecutor.map(executor -> executor.offload(consistent)).orElse(consistent);
+  }
+
+  /** Resolves lookups already waiting for their batch and stops batching new ones. */
+  @Override
+  public void close() {
+    usersLoader.ifPresent(BatchLoader::close);
   }
 
   @Override
@@ -45,31 +161,242 @@ public final class UsersBoundedContext extends BoundedContext<UsersRecord>
     return ctx -> {
       final var body = ctx.bodyAsClass(CreateUser.CreateUserRequest.class);
       final var command = new CreateUser(body);
-      final var databaseRecord = createModel(command);
-      final var json = new User(databaseRecord);
-      ctx.json(json);
+      final UsersRecord databaseRecord;
+
+      try {
+        databaseRecord =
+            createUserCoalescer.isPresent()
+                ? join(createUserCoalescer.get().submit(command))
+                : createModel(command);
+      } catch (RuntimeException e) {
+        if (isUniqueViolation(e)) {
+          sendConflict(ctx);
+          return;
+        }
+
+        throw e;
+      }
+
+      writeUser(ctx, usersCache.put(databaseRecord, issueToken(ctx)));
     };
   }
 
   @Override
   public Handler getAllUsers() {
     return ctx -> {
-      final var command = new GetAllUsers();
-      final var databaseRecords = queryManyModels(command);
-      ctx.json(databaseRecords.stream().map(User::new).toList());
+      // Fetching particular users requires neither pagination, nor ordering
+      if (ctx.queryParamMap().containsKey("ids")) {
+        getUsersByIds(ctx);
+        return;
+      }
+
+      // Unique columns match a single user at most, which the page consists of
+      if (ctx.queryParamMap().containsKey("email")) {
+        writeUsers(ctx, queryOneModel(new GetUserByEmail(ctx.queryParam("email"))));
+        return;
+      }
+
+      if (ctx.queryParamMap().containsKey("username")) {
+        writeUsers(ctx, queryOneModel(new GetUserByUsername(ctx.queryParam("username"))));
+        return;
+      }
+
+      final var limit =
+          ctx.queryParamAsClass("limit", Integer.class).getOrDefault(GetAllUsers.DEFAULT_LIMIT);
+      final var after =
+          Optional.ofNullable(ctx.queryParam("after")).map(GetAllUsers.Cursor::decode);
+      final var command = new GetAllUsers(limit, after);
+      final var databaseRecords =
+          inMemory()
+              .map(users -> users.getAllUsers(command))
+              .or(() -> projection().map(projection -> projection.getAllUsers(command)))
+              .orElseGet(() -> queryManyModels(command));
+
+      // Handler fetches one extra record to signal that there is a next page
+      if (databaseRecords.size() > limit) {
+        final var page = databaseRecords.subList(0, limit);
+        final var next = GetAllUsers.Cursor.of(page.get(limit - 1)).encode();
+        ctx.json(new UsersPage(page.stream().map(User::new).toList(), next));
+      } else {
+        ctx.json(new UsersPage(databaseRecords.stream().map(User::new).toList(), null));
+      }
+    };
+  }
+
+  /**
+   * Responds with users in the order of requested IDs, fetching all of them in one query.
+   *
+   * @param ctx of the current request
+   */
+  private void getUsersByIds(Context ctx) {
+    final var ids =
+        ctx.queryParams("ids").stream()
+            .flatMap(value -> Arrays.stream(value.split(",")))
+            .map(String::trim)
+            .filter(value -> !value.isEmpty())
+            .map(UUID::fromString)
+            .toList();
+    final var query = new GetUsersByIds(List.copyOf(new LinkedHashSet<>(ids)));
+    final var usersById =
+        projection()
+            .map(projection -> projection.getUsersByIds(query))
+            .orElseGet(() -> queryManyModels(query))
+            .stream()
+            .collect(Collectors.toMap(UsersRecord::getId, Function.identity()));
+
+    ctx.json(
+        new UsersLookup(
+            ids.stream()
+                .map(
+                    id -> {
+                      final var usersRecord = usersById.get(id);
+                      return usersRecord == null
+                          ? new UsersLookup.Item(id, false, null)
+                          : new UsersLookup.Item(id, true, new User(usersRecord));
+                    })
+                .toList()));
+  }
+
+  @Override
+  public Handler exportUsers() {
+    return ctx -> {
+      final var ndjson =
+          switch (Objects.requireNonNullElse(ctx.queryParam("format"), "json")) {
+            case "json" -> false;
+            case "ndjson" -> true;
+            default -> throw new IllegalArgumentException("Format must be either json or ndjson");
+          };
+
+      // Generator writes straight into the response, blocking whenever the client reads slower
+      final var mapper = ((JavalinJackson) ctx.jsonMapper()).getMapper();
+      ctx.contentType(ndjson ? NDJSON_CONTENT_TYPE : ContentType.APPLICATION_JSON.getMimeType());
+
+      try (final var generator = mapper.createGenerator(ctx.outputStream())) {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        if (!ndjson) {
+          generator.writeStartArray();
+        }
+
+        final var command =
+            new ExportUsers(
+                usersRecord -> {
+                  try {
+                    generator.writeObject(new User(usersRecord));
+
+                    if (ndjson) {
+                      generator.writeRaw('\n');
+                    }
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                });
+        queryManyModels(command);
+
+        if (!ndjson) {
+          generator.writeEndArray();
+        }
+      }
+    };
+  }
+
+  @Override
+  public Handler searchUsers() {
+    return ctx -> {
+      final var limit =
+          ctx.queryParamAsClass("limit", Integer.class).getOrDefault(SearchUsers.DEFAULT_LIMIT);
+      final var after =
+          Optional.ofNullable(ctx.queryParam("after")).map(SearchUsers.Cursor::decode);
+      final var query = new SearchUsers(ctx.queryParam("q"), limit, after);
+
+      // Neither the read model, nor users in memory have the trigram indexes to search with
+      final var databaseRecords = queryManyModels(query);
+
+      // Handler fetches one extra record to signal that there is a next page
+      if (databaseRecords.size() > limit && !query.isLast()) {
+        final var page = databaseRecords.subList(0, limit);
+        ctx.json(new UsersPage(page.stream().map(User::new).toList(), query.next().encode()));
+      } else {
+        ctx.json(
+            new UsersPage(databaseRecords.stream().limit(limit).map(User::new).toList(), null));
+      }
+    };
+  }
+
+  @Override
+  public Handler batchUsers() {
+    return ctx -> {
+      final var body = ctx.bodyAsClass(BatchUsers.BatchUsersRequest.class);
+      final var batch = new BatchUsers(body);
+      final BatchUsers.Result result;
+
+      try {
+        result = batchUsersHandler.run(batch, readWriteDsl);
+      } catch (RuntimeException e) {
+        // Whole batch is rolled back, hence there are no outcomes of particular items to report
+        if (isUniqueViolation(e)) {
+          sendConflict(ctx);
+          return;
+        }
+
+        throw e;
+      }
+
+      // Cache is only refreshed once the whole batch has been committed
+      final long lsn = issueToken(ctx);
+      result.created().forEach(usersRecord -> usersCache.put(usersRecord, lsn));
+      result
+          .updated()
+          .forEach(
+              outcome ->
+                  outcome.usersRecord().ifPresent(usersRecord -> usersCache.put(usersRecord, lsn)));
+      result.deleted().stream()
+          .filter(outcome -> outcome.status() == BatchUsers.Status.APPLIED)
+          .forEach(outcome -> usersCache.delete(outcome.id()));
+
+      ctx.json(
+          new BatchUsersResponse(
+              result.created().stream()
+                  .map(
+                      usersRecord ->
+                          new BatchUsersResponse.Item(
+                              usersRecord.getId(), HttpStatus.OK.getCode(), new User(usersRecord)))
+                  .toList(),
+              result.updated().stream().map(UsersBoundedContext::toBatchItem).toList(),
+              result.deleted().stream().map(UsersBoundedContext::toBatchItem).toList()));
     };
   }
 
   @Override
   public Handler getUser(final UUID userId) {
     return ctx -> {
-      final var command = new GetUser(userId);
-      final var databaseRecord = queryOneModel(command);
+      // Cache might not have observed the write the client is after yet, while users in memory
+      // might not have been notified of the writes the cache was refreshed by
+      final var inMemory = inMemory();
+      final var requiredLsn = ReadYourWrites.required();
+      final var cachedUser =
+          requiredLsn.isPresent()
+              ? usersCache.get(
+                  userId, requiredLsn.getAsLong(), id -> queryOneModel(new GetUser(id)))
+              : usersCache.get(
+                  userId,
+                  inMemory.isPresent()
+                      ? id ->
+                          inMemory
+                              .get()
+                              .getUser(id)
+                              .map(usersRecord -> new UsersCache.Loaded(usersRecord, 0))
+                      : this::fetchUserById);
 
-      if (databaseRecord.isPresent()) {
-        final var existingRecord = databaseRecord.get();
-        final var json = new User(existingRecord);
-        ctx.json(json);
+      if (cachedUser.isPresent()) {
+        final var existingUser = cachedUser.get();
+
+        if (EntityTags.isNotModified(ctx.header(Header.IF_NONE_MATCH), existingUser.etag())) {
+          ctx.header(Header.ETAG, existingUser.etag()).status(HttpStatus.NOT_MODIFIED);
+        } else {
+          writeUser(ctx, existingUser);
+        }
       } else {
         ctx.res()
             .sendError(
@@ -81,14 +408,50 @@ public final class UsersBoundedContext extends BoundedContext<UsersRecord>
   @Override
   public Handler updateUser(final UUID userId) {
     return ctx -> {
+      final var ifMatch = ctx.header(Header.IF_MATCH);
+      final var expectedVersion =
+          EntityTags.isUnconditional(ifMatch)
+              ? Optional.<Integer>empty()
+              : EntityTags.expectedVersion(ifMatch, userId);
+
+      if (!EntityTags.isUnconditional(ifMatch) && expectedVersion.isEmpty()) {
+        ctx.res()
+            .sendError(
+                HttpServletResponse.SC_PRECONDITION_FAILED,
+                "Entity tag does not match resource with ID: %s".formatted(userId));
+        return;
+      }
+
       final var body = ctx.bodyAsClass(UpdateUser.UpdateUserRequest.class);
-      final var command = new UpdateUser(userId, body);
-      final var databaseRecord = updateModel(command);
+      final var command = new UpdateUser(userId, expectedVersion, body);
+      final Optional<UsersRecord> databaseRecord;
+
+      try {
+        databaseRecord =
+            switch (updateUserMode) {
+              case LOAD_AND_STORE -> updateModel(command);
+              case SINGLE_STATEMENT -> updateUserHandler.run(command, readWriteDsl);
+            };
+      } catch (RuntimeException e) {
+        if (expectedVersion.isPresent() && isCausedBy(e, DataChangedException.class)) {
+          ctx.res()
+              .sendError(
+                  HttpServletResponse.SC_PRECONDITION_FAILED,
+                  "Resource with ID %s has been modified".formatted(userId));
+          return;
+        }
+
+        if (isUniqueViolation(e)) {
+          sendConflict(ctx);
+          return;
+        }
+
+        throw e;
+      }
 
       if (databaseRecord.isPresent()) {
         final var existingRecord = databaseRecord.get();
-        final var json = new User(existingRecord);
-        ctx.json(json);
+        writeUser(ctx, usersCache.put(existingRecord, issueToken(ctx)));
       } else {
         ctx.res()
             .sendError(
@@ -101,8 +464,229 @@ public final class UsersBoundedContext extends BoundedContext<UsersRecord>
   @Override
   public Handler deleteUser(final UUID userId) {
     return ctx -> {
-      final var command = new DeleteUser(userId);
-      deleteModel(command);
+      final var ifMatch = ctx.header(Header.IF_MATCH);
+      final var expectedVersion =
+          EntityTags.isUnconditional(ifMatch)
+              ? Optional.<Integer>empty()
+              : EntityTags.expectedVersion(ifMatch, userId);
+
+      if (!EntityTags.isUnconditional(ifMatch) && expectedVersion.isEmpty()) {
+        ctx.res()
+            .sendError(
+                HttpServletResponse.SC_PRECONDITION_FAILED,
+                "Entity tag does not match resource with ID: %s".formatted(userId));
+        return;
+      }
+
+      final var command = new DeleteUser(userId, expectedVersion);
+      final Optional<UsersRecord> deletedRecord;
+
+      try {
+        deletedRecord = deleteUserHandler.run(command, readWriteDsl);
+      } catch (RuntimeException e) {
+        if (isCausedBy(e, DataChangedException.class)) {
+          ctx.res()
+              .sendError(
+                  HttpServletResponse.SC_PRECONDITION_FAILED,
+                  "Resource with ID %s has been modified".formatted(userId));
+          return;
+        }
+
+        throw e;
+      }
+
+      // Cache might still hold a user deleted by someone else
+      usersCache.delete(userId);
+
+      if (deletedRecord.isPresent()) {
+        issueToken(ctx);
+      } else {
+        ctx.res()
+            .sendError(
+                HttpServletResponse.SC_NOT_FOUND,
+                "Cannot find resource with ID: %s".formatted(userId));
+      }
     };
   }
+
+  /**
+   * Fetches a single user to be cached, joining concurrent lookups into a single query if batching
+   * is enabled.
+   *
+   * @param id of the user
+   * @return existing user or empty
+   */
+  private Optional<UsersCache.Loaded> fetchUserById(UUID id) {
+    return usersLoader.isPresent()
+        ? join(usersLoader.get().load(id))
+        : readReplayed(
+            (dsl, lsn) ->
+                getUserHandler
+                    .run(new GetUser(id), dsl)
+                    .map(usersRecord -> new UsersCache.Loaded(usersRecord, lsn)));
+  }
+
+  /**
+   * Waits for the work handed over to another thread, rethrowing its failure unwrapped, so that it
+   * is answered the same way as if the handler did the work itself, e.g. with {@code 503} once
+   * admission control rejects it.
+   *
+   * @param future of the work
+   * @param <T> type of the result
+   * @return result of the work
+   */
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+
+      throw e;
+    }
+  }
+
+  /**
+   * Fetches users to be cached, same as {@link #fetchUserById(UUID)}.
+   *
+   * @param ids of the users
+   * @return existing users by their IDs
+   */
+  private Map<UUID, UsersCache.Loaded> fetchUsersByIds(Set<UUID> ids) {
+    return readReplayed(
+        (dsl, lsn) ->
+            getUsersByIdsHandler.run(new GetUsersByIds(List.copyOf(ids)), dsl).stream()
+                .collect(
+                    Collectors.toMap(
+                        UsersRecord::getId,
+                        usersRecord -> new UsersCache.Loaded(usersRecord, lsn))));
+  }
+
+  /**
+   * Reads from a single read-only connection, which might be a replica lagging behind, after asking
+   * it for the position in the write-ahead log it has replayed, so that the cache is able to tell
+   * whether the read observed writes made through this instance.
+   *
+   * @param read to run with the connection and the position it observes at least
+   * @param <T> type of the result
+   * @return result of the read
+   */
+  private <T> T readReplayed(BiFunction<DSLContext, Long, T> read) {
+    return readOnlyDsl.connectionResult(
+        connection -> {
+          final var dsl = readOnlyDsl.configuration().derive(connection).dsl();
+          return read.apply(dsl, ReadYourWrites.replayed(dsl));
+        });
+  }
+
+  /**
+   * Single users are not served from the read model: the cache is refreshed by writes right away,
+   * while a lagging read model would put a deleted or outdated user back into it.
+   *
+   * @return read model to serve queries from, unless the current request must observe its own
+   *     writes, which the read model might not have caught up with yet
+   */
+  private Optional<UsersProjection> projection() {
+    return ReadYourWrites.isRequired() ? Optional.empty() : usersProjection;
+  }
+
+  /**
+   * @return users in memory to serve queries from, unless they might have missed changes or the
+   *     current request must observe its own writes, which they might not have been notified of yet
+   */
+  private Optional<InMemoryUsers> inMemory() {
+    return ReadYourWrites.isRequired()
+        ? Optional.empty()
+        : inMemoryUsers.filter(InMemoryUsers::isSynced);
+  }
+
+  /**
+   * Issues the consistency token for the write of the current request, if enabled.
+   *
+   * @param ctx of the current request
+   * @return position in the write-ahead log the token holds, {@code 0} if none was issued
+   */
+  private long issueToken(Context ctx) {
+    return readYourWrites.map(consistency -> consistency.issue(ctx)).orElse(0L);
+  }
+
+  /**
+   * Writes the only page of users matching a lookup by a unique column.
+   *
+   * @param ctx of the current request
+   * @param usersRecord matching the lookup, if any
+   */
+  private static void writeUsers(Context ctx, Optional<UsersRecord> usersRecord) {
+    ctx.json(new UsersPage(usersRecord.map(User::new).stream().toList(), null));
+  }
+
+  /**
+   * Writes already serialized user into the response, bypassing JSON mapping.
+   *
+   * @param ctx of the current request
+   * @param cachedUser to write
+   */
+  private static void writeUser(Context ctx, UsersCache.Entry cachedUser) {
+    ctx.header(Header.ETAG, cachedUser.etag())
+        .contentType(ContentType.APPLICATION_JSON)
+        .result(cachedUser.json());
+  }
+
+  /**
+   * @param outcome of a single change within the batch
+   * @return respective response item
+   */
+  private static BatchUsersResponse.Item toBatchItem(BatchUsers.Outcome outcome) {
+    final var status =
+        switch (outcome.status()) {
+          case APPLIED -> HttpStatus.OK;
+          case NOT_FOUND -> HttpStatus.NOT_FOUND;
+          case VERSION_MISMATCH -> HttpStatus.PRECONDITION_FAILED;
+        };
+
+    return new BatchUsersResponse.Item(
+        outcome.id(), status.getCode(), outcome.usersRecord().map(User::new).orElse(null));
+  }
+
+  /**
+   * Responds that the username or the email is already taken by another user.
+   *
+   * @param ctx of the current request
+   * @throws IOException if the response cannot be written
+   */
+  private static void sendConflict(Context ctx) throws IOException {
+    ctx.res()
+        .sendError(
+            HttpServletResponse.SC_CONFLICT, "User with such username or email already exists");
+  }
+
+  /**
+   * @param throwable to inspect
+   * @return {@code true} if a unique index is violated anywhere in the chain of causes
+   */
+  private static boolean isUniqueViolation(Throwable throwable) {
+    for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLException e && UNIQUE_VIOLATION.equals(e.getSQLState())) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @param throwable to inspect
+   * @param type of the cause to look for
+   * @return {@code true} if the given type is found anywhere in the chain of causes
+   */
+  private static boolean isCausedBy(Throwable throwable, Class<? extends Throwable> type) {
+    for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+      if (type.isInstance(cause)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
 }
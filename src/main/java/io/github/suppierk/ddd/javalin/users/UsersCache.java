@@ -0,0 +1,293 @@
+package io.github.suppierk.ddd.javalin.users;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.github.suppierk.ddd.javalin.users.dto.User;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import io.javalin.json.JsonMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process read-through cache of users keyed by their ID.
+ *
+ * <p>Users are stored already serialized into the JSON representation of {@link User} together with
+ * their entity tag, so that serving a cached user requires neither a database round trip, nor any
+ * object mapping.
+ *
+ * <p>Write paths are expected to refresh or delete entries after their transaction commits. Entries
+ * are only ever replaced by records with the same or a higher {@code version}, so a slow reader is
+ * not able to overwrite the result of a concurrent update with stale data. Deleted users leave a
+ * tombstone behind for the expiration time, which refuses any record of them, so a slow reader is
+ * not able to bring a deleted user back either.
+ *
+ * <p>Users missing from the cache might be loaded from a replica, which has not replayed a write
+ * made through this instance yet, while the entry refreshed by the write has already been evicted.
+ * Hence writes are remembered for as long as replicas are allowed to lag behind, and loaded users
+ * are only cached if they are known to reflect the last write of them, see {@link Loaded#lsn()}.
+ *
+ * <p>Each application instance has its own cache, therefore changes made through other instances
+ * become visible here no later than after the configured expiration time.
+ */
+public final class UsersCache {
+  private final Cache<UUID, Entry> cache;
+  private final Cache<UUID, Long> writes;
+  private final JsonMapper jsonMapper;
+
+  /**
+   * @param configuration of the cache
+   * @param maxLag is the time replicas are allowed to lag behind writes made through this instance
+   * @param jsonMapper to serialize users with
+   * @param meterRegistry to publish metrics to
+   */
+  public UsersCache(
+      Configuration.Cache configuration,
+      Duration maxLag,
+      JsonMapper jsonMapper,
+      MeterRegistry meterRegistry) {
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(configuration.maximumSize())
+            .expireAfterWrite(configuration.expireAfterWrite())
+            .recordStats()
+            .build();
+    this.writes =
+        Caffeine.newBuilder()
+            .maximumSize(configuration.maximumSize())
+            .expireAfterWrite(maxLag)
+            .build();
+    this.jsonMapper = jsonMapper;
+
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+  }
+
+  /**
+   * Returns cached user or loads it and stores the result, unless a newer version of the user was
+   * stored or the user was deleted while loading.
+   *
+   * <p>Loading happens outside of the cache, which would otherwise lock other keys as well for the
+   * whole load, hence concurrent loads of the same ID are expected to be coalesced by the loader.
+   *
+   * <p>Loaded user which might not reflect the last write of it made through this instance is
+   * returned without being cached.
+   *
+   * @param id of the user
+   * @param loader to fetch the user with on cache miss, absent users are not cached
+   * @return cached or freshly loaded user
+   */
+  public Optional<Entry> get(UUID id, Function<UUID, Optional<Loaded>> loader) {
+    final var cached = cache.getIfPresent(id);
+    if (cached != null) {
+      return Optional.of(cached).filter(entry -> !entry.isTombstone());
+    }
+
+    final var loaded = loader.apply(id);
+    if (loaded.isEmpty()) {
+      return Optional.empty();
+    }
+
+    final var entry = toEntry(loaded.get().usersRecord(), loaded.get().lsn());
+    if (!hasObservedWrites(entry)) {
+      return Optional.ofNullable(cache.getIfPresent(id))
+          .map(current -> newer(current, entry))
+          .or(() -> Optional.of(entry))
+          .filter(current -> !current.isTombstone());
+    }
+
+    return Optional.of(cache.asMap().merge(id, entry, UsersCache::newer))
+        .filter(current -> !current.isTombstone());
+  }
+
+  /**
+   * Returns cached user if it is known to reflect the given position in the write-ahead log or
+   * loads it otherwise, so that reads which must observe a particular write still hit the cache
+   * once it has caught up.
+   *
+   * @param id of the user
+   * @param lsn is the position in the write-ahead log the user must reflect
+   * @param loader to fetch the user with, observing the given position
+   * @return cached or freshly loaded user
+   */
+  public Optional<Entry> get(UUID id, long lsn, Function<UUID, Optional<UsersRecord>> loader) {
+    final var cached = cache.getIfPresent(id);
+    if (cached != null && (cached.isTombstone() || cached.lsn() >= lsn)) {
+      return Optional.of(cached).filter(entry -> !entry.isTombstone());
+    }
+
+    final var loaded = loader.apply(id);
+    if (loaded.isEmpty()) {
+      invalidate(id);
+    }
+
+    return loaded.map(usersRecord -> store(toEntry(usersRecord, lsn)));
+  }
+
+  /**
+   * Stores the user, unless the cache already holds a newer version of it or it was deleted.
+   *
+   * @param usersRecord which was committed to the database
+   * @return cache entry representing exactly the given record
+   */
+  public Entry put(UsersRecord usersRecord) {
+    return put(usersRecord, 0);
+  }
+
+  /**
+   * Stores the user, unless the cache already holds a newer version of it or it was deleted.
+   *
+   * @param usersRecord which was committed to the database
+   * @param lsn is the position in the write-ahead log the record is known to reflect
+   * @return cache entry representing exactly the given record
+   */
+  public Entry put(UsersRecord usersRecord, long lsn) {
+    written(usersRecord.getId(), lsn);
+    return store(toEntry(usersRecord, lsn));
+  }
+
+  /**
+   * @param id of the user to remove from the cache
+   */
+  public void invalidate(UUID id) {
+    // Tombstone is kept, as it tells more than a missing entry does
+    cache.asMap().computeIfPresent(id, (key, entry) -> entry.isTombstone() ? entry : null);
+  }
+
+  /**
+   * Replaces the user with a tombstone, which refuses any record of the user until it expires.
+   *
+   * <p>IDs are never reused, hence any record of a deleted user put into the cache afterwards can
+   * only be a stale one, e.g. read from a replica which has not replayed the deletion yet.
+   *
+   * @param id of the deleted user
+   */
+  public void delete(UUID id) {
+    written(id, 0);
+    cache.put(id, Entry.tombstone(id));
+  }
+
+  /**
+   * @param usersRecord to serialize
+   * @return entry representing exactly the given record, without caching it
+   */
+  public Entry toEntry(UsersRecord usersRecord) {
+    return toEntry(usersRecord, 0);
+  }
+
+  /**
+   * @param usersRecord to serialize
+   * @param lsn is the position in the write-ahead log the record is known to reflect
+   * @return entry representing exactly the given record, without caching it
+   */
+  private Entry toEntry(UsersRecord usersRecord, long lsn) {
+    final var json = jsonMapper.toJsonString(new User(usersRecord), User.class);
+    return new Entry(
+        usersRecord.getId(),
+        usersRecord.getVersion(),
+        EntityTags.of(usersRecord.getId(), usersRecord.getVersion()),
+        json.getBytes(StandardCharsets.UTF_8),
+        lsn);
+  }
+
+  /**
+   * @param entry to store, unless the cache already holds a newer version of it or it was deleted
+   * @return the given entry
+   */
+  private Entry store(Entry entry) {
+    cache.asMap().merge(entry.id(), entry, UsersCache::newer);
+    return entry;
+  }
+
+  /**
+   * Remembers the write of the user, keeping the position unknown if any write of it is unknown.
+   *
+   * @param id of the written user
+   * @param lsn is the position in the write-ahead log the write is known to be at, {@code 0} if
+   *     unknown
+   */
+  private void written(UUID id, long lsn) {
+    writes
+        .asMap()
+        .merge(
+            id,
+            lsn,
+            (previous, next) ->
+                previous == 0 || next == 0
+                    ? 0
+                    : Long.compareUnsigned(previous, next) >= 0 ? previous : next);
+  }
+
+  /**
+   * @param entry which was loaded
+   * @return {@code true} if the entry reflects the last write of the user made through this
+   *     instance, or if there was none recently
+   */
+  private boolean hasObservedWrites(Entry entry) {
+    final var written = writes.getIfPresent(entry.id());
+    return written == null || (written != 0 && Long.compareUnsigned(entry.lsn(), written) >= 0);
+  }
+
+  /**
+   * @param cached entry
+   * @param fresh entry
+   * @return tombstone of either, entry of the higher version, or of the later position if both
+   *     versions are the same
+   */
+  private static Entry newer(Entry cached, Entry fresh) {
+    if (cached.isTombstone() || fresh.isTombstone()) {
+      return cached.isTombstone() ? cached : fresh;
+    }
+
+    if (fresh.version() != cached.version()) {
+      return fresh.version() > cached.version() ? fresh : cached;
+    }
+
+    return fresh.lsn() >= cached.lsn() ? fresh : cached;
+  }
+
+  /**
+   * User as loaded from the database.
+   *
+   * @param usersRecord which was loaded
+   * @param lsn is the position in the write-ahead log the database had replayed before loading,
+   *     {@code 0} if unknown
+   */
+  public record Loaded(UsersRecord usersRecord, long lsn) {}
+
+  /**
+   * Immutable cached state of the user.
+   *
+   * <p>The {@code json} array is shared between requests and must not be modified.
+   *
+   * <p>Tombstones of deleted users have neither {@code etag}, nor {@code json}, and are never
+   * returned by the cache.
+   *
+   * @param id of the user
+   * @param version of the user
+   * @param etag is the strong entity tag of this state
+   * @param json is the UTF-8 encoded {@link User} representation
+   * @param lsn is the position in the write-ahead log this state was read at or written up to,
+   *     {@code 0} if unknown
+   */
+  public record Entry(UUID id, int version, String etag, byte[] json, long lsn) {
+    /**
+     * @param id of the deleted user
+     * @return tombstone of the deleted user
+     */
+    static Entry tombstone(UUID id) {
+      return new Entry(id, Integer.MAX_VALUE, null, null, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return {@code true} if the user was deleted
+     */
+    boolean isTombstone() {
+      return json == null;
+    }
+  }
+}
@@ -0,0 +1,282 @@
+package io.github.suppierk.ddd.javalin.users;
+
+import static io.github.suppierk.example.Tables.USERS;
+import static io.github.suppierk.example.Tables.USERS_VIEW;
+
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.github.suppierk.ddd.javalin.outbox.OutboxEvent;
+import io.github.suppierk.ddd.javalin.users.queries.GetAllUsers;
+import io.github.suppierk.ddd.javalin.users.queries.GetUsersByIds;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Record5;
+import org.jooq.Records;
+import org.jooq.SelectConditionStep;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Query-optimized read model of users, maintained from changes relayed out of the outbox.
+ *
+ * <p>The {@code users_view} table holds only the public columns of users, so that listing users
+ * never touches password hashes and can be indexed for reads independently of the source table.
+ *
+ * <p>Events are delivered at least once and possibly out of order, therefore each of them is
+ * applied as an upsert which only ever moves a row to a higher {@code version}. Deletions are kept
+ * as tombstones one version above the last known state, so that an update arriving late cannot
+ * bring a deleted user back. Tombstones are purged every {@link
+ * Configuration.Projection#purgeInterval()} once they are older than {@link
+ * Configuration.Projection#tombstoneRetention()}, by which no event of the deleted user is expected
+ * to be in flight anymore.
+ *
+ * <p>The read model is eventually consistent with the source table, lagging behind it by the outbox
+ * poll interval, which is published as a metric.
+ */
+public final class UsersProjection implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(UsersProjection.class);
+  private static final String METRIC_PREFIX = "projection.users";
+  private static final String AGGREGATE_TYPE = "users";
+  private static final String USER_DELETED = "UserDeleted";
+  private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+  /** Payload has the same shape as the source row, so the database parses it by the row type. */
+  static final String UPSERT =
+      """
+      INSERT INTO users_view(id, version, created_at, username, email, deleted, deleted_at)
+      SELECT id, version + ?, created_at, username, email, ?, CASE WHEN ? THEN LOCALTIMESTAMP END
+      FROM jsonb_populate_record(NULL::users, ?::jsonb)
+      ON CONFLICT (id) DO UPDATE SET
+        version = EXCLUDED.version,
+        created_at = EXCLUDED.created_at,
+        username = EXCLUDED.username,
+        email = EXCLUDED.email,
+        deleted = EXCLUDED.deleted,
+        deleted_at = EXCLUDED.deleted_at
+      WHERE users_view.version < EXCLUDED.version
+      """;
+
+  private final DSLContext readWriteDsl;
+  private final DSLContext readOnlyDsl;
+  private final Duration tombstoneRetention;
+  private final ScheduledThreadPoolExecutor executor;
+
+  private final Timer lag;
+  private final Counter applied;
+  private final Timer rebuilds;
+  private final Counter purged;
+
+  /**
+   * @param configuration of the read model
+   * @param readWriteDsl to maintain the read model with
+   * @param readOnlyDsl to query the read model with
+   * @param meterRegistry to publish metrics to
+   */
+  public UsersProjection(
+      Configuration.Projection configuration,
+      DSLContext readWriteDsl,
+      DSLContext readOnlyDsl,
+      MeterRegistry meterRegistry) {
+    this.readWriteDsl = readWriteDsl;
+    this.readOnlyDsl = readOnlyDsl;
+    this.tombstoneRetention = configuration.tombstoneRetention();
+
+    this.lag =
+        Timer.builder(METRIC_PREFIX + ".lag")
+            .description("Time from recording a change until it is applied to the read model")
+            .register(meterRegistry);
+    this.applied =
+        Counter.builder(METRIC_PREFIX + ".events")
+            .description("Amount of changes applied to the read model")
+            .register(meterRegistry);
+    this.rebuilds =
+        Timer.builder(METRIC_PREFIX + ".rebuild")
+            .description("Time taken to rebuild the read model from scratch")
+            .register(meterRegistry);
+    this.purged =
+        Counter.builder(METRIC_PREFIX + ".purged")
+            .description("Amount of tombstones removed from the read model past their retention")
+            .register(meterRegistry);
+
+    this.executor =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              final var thread = new Thread(runnable, "users-projection-purge");
+              thread.setDaemon(true);
+              return thread;
+            });
+    final long interval = configuration.purgeInterval().toNanos();
+    executor.scheduleWithFixedDelay(this::purge, interval, interval, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Applies changes of users to the read model in a single batch, ignoring other aggregates.
+   *
+   * @param events relayed from the outbox
+   */
+  public void apply(List<OutboxEvent> events) {
+    final var userEvents =
+        events.stream().filter(event -> AGGREGATE_TYPE.equals(event.aggregateType())).toList();
+    if (userEvents.isEmpty()) {
+      return;
+    }
+
+    final var batch =
+        readWriteDsl.batch(
+            readWriteDsl.query(
+                UPSERT, DSL.val(0), DSL.val(false), DSL.val(false), DSL.val((String) null)));
+    for (OutboxEvent event : userEvents) {
+      final boolean deleted = USER_DELETED.equals(event.eventType());
+      batch.bind(deleted ? 1 : 0, deleted, deleted, event.payload());
+    }
+    batch.execute();
+
+    final var now = OffsetDateTime.now();
+    for (OutboxEvent event : userEvents) {
+      lag.record(Duration.between(event.createdAt(), now));
+    }
+    applied.increment(userEvents.size());
+  }
+
+  /**
+   * Replaces the read model with the current state of the source table.
+   *
+   * <p>Changes applied concurrently wait for the rebuild to finish, after which only those newer
+   * than the copied state take effect.
+   */
+  public void rebuild() {
+    rebuilds.record(
+        () ->
+            readWriteDsl.transaction(
+                configuration -> {
+                  final var dsl = configuration.dsl();
+                  dsl.execute("LOCK TABLE users_view IN EXCLUSIVE MODE");
+                  dsl.deleteFrom(USERS_VIEW).execute();
+                  dsl.insertInto(
+                          USERS_VIEW,
+                          USERS_VIEW.ID,
+                          USERS_VIEW.VERSION,
+                          USERS_VIEW.CREATED_AT,
+                          USERS_VIEW.USERNAME,
+                          USERS_VIEW.EMAIL)
+                      .select(
+                          DSL.select(
+                                  USERS.ID,
+                                  USERS.VERSION,
+                                  USERS.CREATED_AT,
+                                  USERS.USERNAME,
+                                  USERS.EMAIL)
+                              .from(USERS))
+                      .execute();
+                }));
+  }
+
+  /**
+   * Removes tombstones older than the retention, measured by the clock of the database which set
+   * their time of deletion, and keeps them until the next attempt on failure.
+   */
+  void purge() {
+    try {
+      final int removed =
+          readWriteDsl
+              .deleteFrom(USERS_VIEW)
+              .where(USERS_VIEW.DELETED.isTrue())
+              .and(
+                  DSL.condition(
+                      "{0} < LOCALTIMESTAMP - {1}::interval",
+                      USERS_VIEW.DELETED_AT, DSL.val(tombstoneRetention.toString())))
+              .execute();
+      purged.increment(removed);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to purge tombstones of the users read model, retrying later", e);
+    }
+  }
+
+  /**
+   * Same as {@link GetAllUsers.Handler}, but served from the read model.
+   *
+   * @param query to run
+   * @return page of users with one extra record if there is a next page
+   */
+  public List<UsersRecord> getAllUsers(GetAllUsers query) {
+    final Condition afterCursor =
+        query
+            .after()
+            .map(
+                cursor ->
+                    DSL.row(USERS_VIEW.CREATED_AT, USERS_VIEW.ID)
+                        .gt(cursor.createdAt(), cursor.id()))
+            .orElse(DSL.noCondition());
+
+    return selectUsers(afterCursor)
+        .orderBy(USERS_VIEW.CREATED_AT, USERS_VIEW.ID)
+        .limit(query.limit() + 1)
+        .fetch(Records.mapping(UsersProjection::toUsersRecord));
+  }
+
+  /**
+   * Same as {@link GetUsersByIds.Handler}, but served from the read model.
+   *
+   * @param query to run
+   * @return existing users in no particular order, missing ones are skipped
+   */
+  public List<UsersRecord> getUsersByIds(GetUsersByIds query) {
+    return selectUsers(
+            USERS_VIEW.ID.eq(DSL.any(query.ids().stream().distinct().toArray(UUID[]::new))))
+        .fetch(Records.mapping(UsersProjection::toUsersRecord));
+  }
+
+  /**
+   * @param condition to filter users with
+   * @return public columns of users which are not deleted
+   */
+  private SelectConditionStep<Record5<UUID, Integer, LocalDateTime, String, String>> selectUsers(
+      Condition condition) {
+    return readOnlyDsl
+        .select(
+            USERS_VIEW.ID,
+            USERS_VIEW.VERSION,
+            USERS_VIEW.CREATED_AT,
+            USERS_VIEW.USERNAME,
+            USERS_VIEW.EMAIL)
+        .from(USERS_VIEW)
+        .where(USERS_VIEW.DELETED.isFalse())
+        .and(condition);
+  }
+
+  /**
+   * @return record of the source table without the password, which the read model does not have
+   */
+  private static UsersRecord toUsersRecord(
+      UUID id, Integer version, LocalDateTime createdAt, String username, String email) {
+    return new UsersRecord(id, version, createdAt, username, null, email);
+  }
+
+  /** Stops purging tombstones, waiting for the purge in progress. */
+  @Override
+  public void close() {
+    executor.shutdown();
+
+    try {
+      if (!executor.awaitTermination(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+}
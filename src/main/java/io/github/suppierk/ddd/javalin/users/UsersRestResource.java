@@ -7,9 +7,12 @@ import static io.javalin.apibuilder.ApiBuilder.post;
 import static io.javalin.apibuilder.ApiBuilder.put;
 
 import io.github.suppierk.ddd.cqrs.BoundedContext;
+import io.github.suppierk.ddd.javalin.users.commands.BatchUsers;
 import io.github.suppierk.ddd.javalin.users.commands.CreateUser;
 import io.github.suppierk.ddd.javalin.users.commands.UpdateUser;
+import io.github.suppierk.ddd.javalin.users.dto.BatchUsersResponse;
 import io.github.suppierk.ddd.javalin.users.dto.User;
+import io.github.suppierk.ddd.javalin.users.dto.UsersPage;
 import io.javalin.apibuilder.EndpointGroup;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
@@ -31,22 +34,37 @@ public interface UsersRestResource extends EndpointGroup {
   /** Describing the structure of this REST resource. */
   @Override
   default void addEndpoints() {
+    post("/users:batch", dispatch(batchUsers()));
     path(
         "/users",
         () -> {
-          post(createUser());
-          get(getAllUsers());
+          post(dispatch(createUser()));
+          get(dispatch(getAllUsers()));
+
+          // Streaming holds its thread for the whole export, so it is never dispatched
+          get("/export", exportUsers());
+          get("/search", dispatch(searchUsers()));
 
           path(
               "/{id}",
               () -> {
-                get(ctx -> getUser(getUserId(ctx)).handle(ctx));
-                put(ctx -> updateUser(getUserId(ctx)).handle(ctx));
-                delete(ctx -> deleteUser(getUserId(ctx)).handle(ctx));
+                get(dispatch(ctx -> getUser(getUserId(ctx)).handle(ctx)));
+                put(dispatch(ctx -> updateUser(getUserId(ctx)).handle(ctx)));
+                delete(dispatch(ctx -> deleteUser(getUserId(ctx)).handle(ctx)));
               });
         });
   }
 
+  /**
+   * Hook to change how endpoint handlers are executed, for example, to run them asynchronously.
+   *
+   * @param handler of the endpoint
+   * @return handler to register instead, the given one by default
+   */
+  default Handler dispatch(final Handler handler) {
+    return handler;
+  }
+
   /**
    * Helper to retrieve the correct user ID parameter during implementation.
    *
@@ -73,7 +91,10 @@ public interface UsersRestResource extends EndpointGroup {
       requestBody =
           @OpenApiRequestBody(
               content = {@OpenApiContent(from = CreateUser.CreateUserRequest.class)}),
-      responses = {@OpenApiResponse(status = "200", content = @OpenApiContent(from = User.class))})
+      responses = {
+        @OpenApiResponse(status = "200", content = @OpenApiContent(from = User.class)),
+        @OpenApiResponse(status = "409")
+      })
   Handler createUser();
 
   @OpenApi(
@@ -81,12 +102,110 @@ public interface UsersRestResource extends EndpointGroup {
       operationId = "getAllUsers",
       path = "/users",
       methods = HttpMethod.GET,
+      queryParams = {
+        @OpenApiParam(
+            name = "limit",
+            type = Integer.class,
+            description = "Maximum amount of users on the page, 100 by default and 1000 at most"),
+        @OpenApiParam(
+            name = "after",
+            type = String.class,
+            description = "Cursor from the previous page to continue after"),
+        @OpenApiParam(
+            name = "ids",
+            type = UUID[].class,
+            description =
+                "Comma separated IDs of particular users to fetch instead of a page, 1000 at most."
+                    + " Responds with UsersLookup listing users in the order of requested IDs"),
+        @OpenApiParam(
+            name = "email",
+            type = String.class,
+            description = "Email of the particular user to fetch instead of a page of all users"),
+        @OpenApiParam(
+            name = "username",
+            type = String.class,
+            description = "Username of the particular user to fetch instead of a page of all users")
+      },
       tags = {"Users"},
       responses = {
-        @OpenApiResponse(status = "200", content = @OpenApiContent(from = User[].class))
+        @OpenApiResponse(status = "200", content = @OpenApiContent(from = UsersPage.class))
       })
   Handler getAllUsers();
 
+  @OpenApi(
+      summary = "Export all users",
+      operationId = "exportUsers",
+      path = "/users/export",
+      methods = HttpMethod.GET,
+      queryParams = {
+        @OpenApiParam(
+            name = "format",
+            type = String.class,
+            description = "Either 'json' for a JSON array (default) or 'ndjson' for JSON lines")
+      },
+      tags = {"Users"},
+      responses = {
+        @OpenApiResponse(
+            status = "200",
+            content = {
+              @OpenApiContent(from = User[].class, type = "application/json"),
+              @OpenApiContent(from = User.class, type = "application/x-ndjson")
+            })
+      })
+  Handler exportUsers();
+
+  @OpenApi(
+      summary = "Search users",
+      description =
+          "Matches users whose username or email contains the query or has a word similar to it. "
+              + "Users whose username or email starts with the query come first, "
+              + "then the most similar ones. Only the first 1000 matches can be paged through",
+      operationId = "searchUsers",
+      path = "/users/search",
+      methods = HttpMethod.GET,
+      queryParams = {
+        @OpenApiParam(
+            name = "q",
+            type = String.class,
+            description = "Fragment of the username or the email, from 3 to 100 characters",
+            required = true),
+        @OpenApiParam(
+            name = "limit",
+            type = Integer.class,
+            description = "Maximum amount of users on the page, 20 by default and 100 at most"),
+        @OpenApiParam(
+            name = "after",
+            type = String.class,
+            description = "Cursor from the previous page to continue after")
+      },
+      tags = {"Users"},
+      responses = {
+        @OpenApiResponse(status = "200", content = @OpenApiContent(from = UsersPage.class))
+      })
+  Handler searchUsers();
+
+  @OpenApi(
+      summary = "Create, update and delete users in a single transaction",
+      description =
+          "Each item reports the status it would have had as a standalone request: "
+              + "200 when applied, 404 when the user does not exist "
+              + "and 412 when the user does not have the expected version. "
+              + "Responds with 409 without applying anything if any username or email is taken",
+      operationId = "batchUsers",
+      path = "/users:batch",
+      methods = HttpMethod.POST,
+      tags = {"Users"},
+      requestBody =
+          @OpenApiRequestBody(
+              content = {@OpenApiContent(from = BatchUsers.BatchUsersRequest.class)}),
+      responses = {
+        @OpenApiResponse(
+            status = "200",
+            content = @OpenApiContent(from = BatchUsersResponse.class)),
+        @OpenApiResponse(status = "409")
+      })
+  Handler batchUsers();
+
   @OpenApi(
       summary = "Get user",
       operationId = "getUser",
@@ -95,9 +214,16 @@ public interface UsersRestResource extends EndpointGroup {
       pathParams = {
         @OpenApiParam(name = "id", type = UUID.class, description = "Account ID", required = true)
       },
+      headers = {
+        @OpenApiParam(
+            name = "If-None-Match",
+            type = String.class,
+            description = "Entity tag of the user copy the client already has")
+      },
       tags = {"Users"},
       responses = {
         @OpenApiResponse(status = "200", content = @OpenApiContent(from = User.class)),
+        @OpenApiResponse(status = "304"),
         @OpenApiResponse(status = "404")
       })
   Handler getUser(final UUID userId);
@@ -110,13 +236,21 @@ public interface UsersRestResource extends EndpointGroup {
       pathParams = {
         @OpenApiParam(name = "id", type = UUID.class, description = "Account ID", required = true)
       },
+      headers = {
+        @OpenApiParam(
+            name = "If-Match",
+            type = String.class,
+            description = "Entity tag of the user version this update is based on")
+      },
       requestBody =
           @OpenApiRequestBody(
               content = {@OpenApiContent(from = UpdateUser.UpdateUserRequest.class)}),
       tags = {"Users"},
       responses = {
         @OpenApiResponse(status = "200", content = @OpenApiContent(from = User.class)),
-        @OpenApiResponse(status = "404")
+        @OpenApiResponse(status = "404"),
+        @OpenApiResponse(status = "409"),
+        @OpenApiResponse(status = "412")
       })
   Handler updateUser(final UUID userId);
 
@@ -128,7 +262,17 @@ public interface UsersRestResource extends EndpointGroup {
       pathParams = {
         @OpenApiParam(name = "id", type = UUID.class, description = "Account ID", required = true)
       },
+      headers = {
+        @OpenApiParam(
+            name = "If-Match",
+            type = String.class,
+            description = "Entity tag of the user version this deletion is based on")
+      },
       tags = {"Users"},
-      responses = {@OpenApiResponse(status = "200")})
+      responses = {
+        @OpenApiResponse(status = "200"),
+        @OpenApiResponse(status = "404"),
+        @OpenApiResponse(status = "412")
+      })
   Handler deleteUser(final UUID userId);
 }
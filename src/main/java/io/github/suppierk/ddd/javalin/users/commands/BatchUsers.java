@@ -0,0 +1,260 @@
+package io.github.suppierk.ddd.javalin.users.commands;
+
+import static io.github.suppierk.example.Tables.USERS;
+
+import io.github.suppierk.ddd.cqrs.DomainCommand;
+import io.github.suppierk.ddd.cqrs.DomainCommandHandler;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import io.javalin.openapi.Nullability;
+import io.javalin.openapi.OpenApiPropertyType;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.jooq.DSLContext;
+import org.jooq.exception.DataChangedException;
+
+/**
+ * Batch of {@link CreateUser}, {@link UpdateUser} and {@link DeleteUser} commands to be executed in
+ * a single transaction.
+ *
+ * <p>This is not a {@link DomainCommand} by itself, because the library dispatches exactly one
+ * record per command. Instead, {@link Handler} reuses the logic of respective {@link
+ * DomainCommandHandler}s and sends each kind of change to the database as a single JDBC batch.
+ *
+ * @param create commands to create new users
+ * @param update commands to update existing users
+ * @param delete commands to delete existing users
+ */
+public record BatchUsers(
+    List<CreateUser> create, List<UpdateUser> update, List<DeleteUser> delete) {
+  public static final int MAX_SIZE = 1000;
+
+  /**
+   * Alternative constructor, which translates the API request into respective commands.
+   *
+   * @param batchUsersRequest from the API to fetch parameters from
+   */
+  public BatchUsers(BatchUsersRequest batchUsersRequest) {
+    this(
+        batchUsersRequest.create.stream().map(CreateUser::new).toList(),
+        batchUsersRequest.update.stream()
+            .map(item -> new UpdateUser(item.id, item.version, item.changes))
+            .toList(),
+        batchUsersRequest.delete.stream()
+            .map(item -> new DeleteUser(item.id, item.version))
+            .toList());
+  }
+
+  /** Post construct property validation. */
+  public BatchUsers {
+    create = create == null ? List.of() : List.copyOf(create);
+    update = update == null ? List.of() : List.copyOf(update);
+    delete = delete == null ? List.of() : List.copyOf(delete);
+
+    if (create.size() + update.size() + delete.size() > MAX_SIZE) {
+      throw new IllegalArgumentException(
+          "Batch cannot contain more than %d items".formatted(MAX_SIZE));
+    }
+
+    final var changedIds = new HashSet<UUID>();
+    for (UUID id :
+        Stream.concat(update.stream().map(UpdateUser::id), delete.stream().map(DeleteUser::id))
+            .toList()) {
+      if (!changedIds.add(id)) {
+        throw new IllegalArgumentException(
+            "User %s cannot be changed twice in a batch".formatted(id));
+      }
+    }
+  }
+
+  /**
+   * Publicly exposed Data Transfer Object which can be translated into the current batch.
+   *
+   * @param create users to create
+   * @param update users to update
+   * @param delete users to delete
+   */
+  public record BatchUsersRequest(
+      @OpenApiPropertyType(
+              definedBy = CreateUser.CreateUserRequest[].class,
+              nullability = Nullability.NULLABLE)
+          List<CreateUser.CreateUserRequest> create,
+      @OpenApiPropertyType(definedBy = UpdateItem[].class, nullability = Nullability.NULLABLE)
+          List<UpdateItem> update,
+      @OpenApiPropertyType(definedBy = DeleteItem[].class, nullability = Nullability.NULLABLE)
+          List<DeleteItem> delete) {
+    /** Post construct property validation. */
+    public BatchUsersRequest {
+      create = create == null ? List.of() : create;
+      update = update == null ? List.of() : update;
+      delete = delete == null ? List.of() : delete;
+    }
+  }
+
+  /**
+   * Publicly exposed Data Transfer Object to update a single user within the batch.
+   *
+   * @param id of the existing user to update
+   * @param version of the existing user, if the update is conditional
+   * @param changes to apply
+   */
+  public record UpdateItem(
+      @OpenApiPropertyType(definedBy = UUID.class, nullability = Nullability.NOT_NULL) UUID id,
+      @OpenApiPropertyType(definedBy = Integer.class, nullability = Nullability.NULLABLE)
+          Optional<Integer> version,
+      @OpenApiPropertyType(
+              definedBy = UpdateUser.UpdateUserRequest.class,
+              nullability = Nullability.NOT_NULL)
+          UpdateUser.UpdateUserRequest changes) {
+    /** Post construct property validation. */
+    public UpdateItem {
+      if (id == null) {
+        throw new IllegalArgumentException("Id cannot be null");
+      }
+
+      if (changes == null) {
+        throw new IllegalArgumentException("Changes cannot be null");
+      }
+
+      version = version == null ? Optional.empty() : version;
+    }
+  }
+
+  /**
+   * Publicly exposed Data Transfer Object to delete a single user within the batch.
+   *
+   * @param id of the existing user to delete
+   * @param version of the existing user, if the deletion is conditional
+   */
+  public record DeleteItem(
+      @OpenApiPropertyType(definedBy = UUID.class, nullability = Nullability.NOT_NULL) UUID id,
+      @OpenApiPropertyType(definedBy = Integer.class, nullability = Nullability.NULLABLE)
+          Optional<Integer> version) {
+    /** Post construct property validation. */
+    public DeleteItem {
+      if (id == null) {
+        throw new IllegalArgumentException("Id cannot be null");
+      }
+
+      version = version == null ? Optional.empty() : version;
+    }
+  }
+
+  /** Outcome of a single update or deletion within the batch. */
+  public enum Status {
+    APPLIED,
+    NOT_FOUND,
+    VERSION_MISMATCH
+  }
+
+  /**
+   * @param id of the user
+   * @param status of the change
+   * @param usersRecord is the state of the user after the change, if it still exists
+   */
+  public record Outcome(UUID id, Status status, Optional<UsersRecord> usersRecord) {}
+
+  /**
+   * @param created users in the order of {@link #create()}
+   * @param updated outcomes in the order of {@link #update()}
+   * @param deleted outcomes in the order of {@link #delete()}
+   */
+  public record Result(List<UsersRecord> created, List<Outcome> updated, List<Outcome> deleted) {}
+
+  /**
+   * Executes the batch against the read-write database.
+   *
+   * <p>Users to update or delete are locked with a single {@code SELECT ... FOR UPDATE} first, so
+   * version checks made against them hold until the transaction commits. Failing items are reported
+   * individually and do not prevent the rest of the batch from being applied.
+   */
+  public static class Handler {
+    private final CreateUser.Handler createUserHandler = new CreateUser.Handler();
+    private final UpdateUser.Handler updateUserHandler = new UpdateUser.Handler();
+
+    /**
+     * @param batch to execute
+     * @param dsl with read-write capability
+     * @return outcome of each item in the batch
+     */
+    public Result run(BatchUsers batch, DSLContext dsl) {
+      return dsl.transactionResult(
+          configuration -> {
+            final var transactional = configuration.dsl();
+
+            final var created =
+                batch.create.stream()
+                    .map(
+                        command ->
+                            createUserHandler.fillBlankRecord(
+                                command, transactional.newRecord(USERS)))
+                    .toList();
+            if (!created.isEmpty()) {
+              transactional.batchInsert(created).execute();
+            }
+
+            final var changedIds =
+                Stream.concat(
+                        batch.update.stream().map(UpdateUser::id),
+                        batch.delete.stream().map(DeleteUser::id))
+                    .toList();
+            final Map<UUID, UsersRecord> existing =
+                changedIds.isEmpty()
+                    ? Map.of()
+                    : transactional
+                        .selectFrom(USERS)
+                        .where(USERS.ID.in(changedIds))
+                        .forUpdate()
+                        .fetchMap(USERS.ID);
+
+            final var updated = new ArrayList<Outcome>(batch.update.size());
+            final var toUpdate = new ArrayList<UsersRecord>(batch.update.size());
+            for (UpdateUser command : batch.update) {
+              final var usersRecord = existing.get(command.id());
+
+              if (usersRecord == null) {
+                updated.add(new Outcome(command.id(), Status.NOT_FOUND, Optional.empty()));
+                continue;
+              }
+
+              try {
+                toUpdate.add(updateUserHandler.updateRecordValues(command, usersRecord));
+                updated.add(new Outcome(command.id(), Status.APPLIED, Optional.of(usersRecord)));
+              } catch (DataChangedException e) {
+                updated.add(
+                    new Outcome(command.id(), Status.VERSION_MISMATCH, Optional.of(usersRecord)));
+              }
+            }
+            if (!toUpdate.isEmpty()) {
+              transactional.batchUpdate(toUpdate).execute();
+            }
+
+            final var deleted = new ArrayList<Outcome>(batch.delete.size());
+            final var toDelete = new ArrayList<UsersRecord>(batch.delete.size());
+            for (DeleteUser command : batch.delete) {
+              final var usersRecord = existing.get(command.id());
+
+              if (usersRecord == null) {
+                deleted.add(new Outcome(command.id(), Status.NOT_FOUND, Optional.empty()));
+              } else if (command.expectedVersion().isPresent()
+                  && !command.expectedVersion().get().equals(usersRecord.getVersion())) {
+                deleted.add(
+                    new Outcome(command.id(), Status.VERSION_MISMATCH, Optional.of(usersRecord)));
+              } else {
+                toDelete.add(usersRecord);
+                deleted.add(new Outcome(command.id(), Status.APPLIED, Optional.empty()));
+              }
+            }
+            if (!toDelete.isEmpty()) {
+              transactional.batchDelete(toDelete).execute();
+            }
+
+            return new Result(created, updated, deleted);
+          });
+    }
+  }
+}
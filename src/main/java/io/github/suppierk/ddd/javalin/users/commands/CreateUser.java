@@ -3,6 +3,7 @@ package io.github.suppierk.ddd.javalin.users.commands;
 import io.github.suppierk.ddd.cqrs.DomainCommand;
 import io.github.suppierk.ddd.cqrs.DomainCommandHandler;
 import io.github.suppierk.ddd.cqrs.DomainMessage;
+import io.github.suppierk.ddd.javalin.ids.Ids;
 import io.github.suppierk.example.tables.records.UsersRecord;
 import io.javalin.openapi.Nullability;
 import io.javalin.openapi.OpenApiPropertyType;
@@ -35,7 +36,7 @@ public record CreateUser(
    */
   public CreateUser(CreateUserRequest createUserRequest) {
     this(
-        UUID.randomUUID(),
+        Ids.next(),
         Instant.now(),
         createUserRequest.username,
         createUserRequest.password,
@@ -90,7 +91,7 @@ public record CreateUser(
     /** {@inheritDoc} */
     @Override
     protected UsersRecord fillBlankRecord(CreateUser command, UsersRecord blankRecord) {
-      blankRecord.setId(UUID.randomUUID());
+      blankRecord.setId(Ids.next());
       blankRecord.setVersion(0);
       blankRecord.setCreatedAt(LocalDateTime.now());
       blankRecord.setUsername(command.username());
@@ -0,0 +1,250 @@
+package io.github.suppierk.ddd.javalin.users.commands;
+
+import static io.github.suppierk.example.Tables.USERS;
+
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.jooq.DSLContext;
+
+/**
+ * Group commit pipeline for {@link CreateUser} commands.
+ *
+ * <p>Concurrent commands are collected by a single flusher thread for up to {@link
+ * Configuration.Coalescing#maxDelay()} or {@link Configuration.Coalescing#maxBatchSize()} commands,
+ * whichever comes first, and written with a single multi-row {@code INSERT ... RETURNING} in one
+ * transaction. This way many concurrent callers share one commit instead of waiting for their own.
+ *
+ * <p>Records are filled exactly as {@link CreateUser.Handler} does. If the batch fails as a whole,
+ * for example due to a constraint violation, its commands are retried one by one, so that a single
+ * invalid command fails only its own caller.
+ *
+ * <p>The queue is unbounded, because every caller waits for its own result: the amount of pending
+ * commands is therefore limited by the amount of request handling threads.
+ */
+public final class CreateUserCoalescer implements Closeable {
+  private static final String METRIC_PREFIX = "users.create.coalescer";
+  private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+  private final DSLContext readWriteDsl;
+  private final int maxBatchSize;
+  private final long maxDelayNanos;
+
+  private final CreateUser.Handler createUserHandler;
+  private final BlockingQueue<Pending> queue;
+  private final Thread flusher;
+  private volatile boolean running;
+
+  private final DistributionSummary flushSize;
+  private final Timer flushLatency;
+  private final Timer waitLatency;
+
+  public CreateUserCoalescer(
+      Configuration.Coalescing configuration,
+      DSLContext readWriteDsl,
+      MeterRegistry meterRegistry) {
+    this.readWriteDsl = readWriteDsl;
+    this.maxBatchSize = configuration.maxBatchSize();
+    this.maxDelayNanos = configuration.maxDelay().toNanos();
+
+    this.createUserHandler = new CreateUser.Handler();
+    this.queue = new LinkedBlockingQueue<>();
+
+    this.flushSize =
+        DistributionSummary.builder(METRIC_PREFIX + ".flush.size")
+            .description("Amount of users created by a single flush")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    this.flushLatency =
+        Timer.builder(METRIC_PREFIX + ".flush.latency")
+            .description("Time spent writing a single flush to the database")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    this.waitLatency =
+        Timer.builder(METRIC_PREFIX + ".wait.latency")
+            .description("Time between submitting a command and receiving its result")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    Gauge.builder(METRIC_PREFIX + ".queue.depth", queue, BlockingQueue::size)
+        .description("Amount of commands waiting for the next flush")
+        .register(meterRegistry);
+
+    this.running = true;
+    this.flusher = new Thread(this::run, "create-user-coalescer");
+    this.flusher.setDaemon(true);
+    this.flusher.start();
+  }
+
+  /**
+   * @param command to execute as a part of the next flush
+   * @return future completed with the created user once its flush is committed
+   */
+  public CompletableFuture<UsersRecord> submit(CreateUser command) {
+    final var pending = new Pending(command, new CompletableFuture<>(), System.nanoTime());
+
+    if (!running) {
+      pending.future.completeExceptionally(
+          new IllegalStateException("Coalescer has already been closed"));
+      return pending.future;
+    }
+
+    queue.add(pending);
+
+    // Closing might have drained the queue right before the command was added
+    if (!running && queue.remove(pending)) {
+      pending.future.completeExceptionally(
+          new IllegalStateException("Coalescer has already been closed"));
+    }
+
+    return pending.future;
+  }
+
+  /** Flushes already submitted commands and stops accepting new ones. */
+  @Override
+  public void close() {
+    running = false;
+
+    try {
+      flusher.join(CLOSE_TIMEOUT.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    // Anything left behind would otherwise block its caller forever
+    Pending pending;
+    while ((pending = queue.poll()) != null) {
+      pending.future.completeExceptionally(
+          new IllegalStateException("Coalescer has been closed before flushing the command"));
+    }
+  }
+
+  private void run() {
+    final var batch = new ArrayList<Pending>(maxBatchSize);
+
+    while (running || !queue.isEmpty()) {
+      try {
+        // Waking up periodically to notice closing
+        final var first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+
+        batch.add(first);
+        collect(batch, System.nanoTime() + maxDelayNanos);
+        flush(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        batch.forEach(pending -> pending.future.completeExceptionally(e));
+        return;
+      } catch (RuntimeException e) {
+        batch.forEach(pending -> pending.future.completeExceptionally(e));
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void collect(List<Pending> batch, long deadline) throws InterruptedException {
+    while (batch.size() < maxBatchSize) {
+      final long remaining = deadline - System.nanoTime();
+
+      if (remaining <= 0) {
+        queue.drainTo(batch, maxBatchSize - batch.size());
+        return;
+      }
+
+      final var next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+
+      batch.add(next);
+    }
+  }
+
+  private void flush(List<Pending> batch) {
+    final var commands = batch.stream().map(Pending::command).toList();
+    final List<UsersRecord> created;
+
+    try {
+      created = flushLatency.record(() -> insert(commands));
+    } catch (RuntimeException e) {
+      if (batch.size() == 1) {
+        complete(batch.get(0), null, e);
+      } else {
+        batch.forEach(this::flushAlone);
+      }
+      return;
+    }
+
+    flushSize.record(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      complete(batch.get(i), created.get(i), null);
+    }
+  }
+
+  private void flushAlone(Pending pending) {
+    try {
+      final var created = flushLatency.record(() -> insert(List.of(pending.command)));
+      flushSize.record(1);
+      complete(pending, created.get(0), null);
+    } catch (RuntimeException e) {
+      complete(pending, null, e);
+    }
+  }
+
+  private List<UsersRecord> insert(List<CreateUser> commands) {
+    return readWriteDsl.transactionResult(
+        configuration -> {
+          final var transactional = configuration.dsl();
+          final var records =
+              commands.stream()
+                  .map(
+                      command ->
+                          createUserHandler.fillBlankRecord(
+                              command, transactional.newRecord(USERS)))
+                  .toList();
+
+          // PostgreSQL does not guarantee RETURNING order, hence matching by generated ID
+          final Map<UUID, UsersRecord> returned =
+              transactional
+                  .insertInto(USERS, USERS.fields())
+                  .valuesOfRecords(records)
+                  .returning()
+                  .fetchMap(USERS.ID);
+
+          return records.stream().map(usersRecord -> returned.get(usersRecord.getId())).toList();
+        });
+  }
+
+  private void complete(Pending pending, UsersRecord created, Throwable failure) {
+    waitLatency.record(System.nanoTime() - pending.submittedAt, TimeUnit.NANOSECONDS);
+
+    if (failure == null) {
+      pending.future.complete(created);
+    } else {
+      pending.future.completeExceptionally(failure);
+    }
+  }
+
+  /**
+   * @param command to execute
+   * @param future to complete with the result of the command
+   * @param submittedAt is the {@link System#nanoTime()} of the submission
+   */
+  private record Pending(
+      CreateUser command, CompletableFuture<UsersRecord> future, long submittedAt) {}
+}
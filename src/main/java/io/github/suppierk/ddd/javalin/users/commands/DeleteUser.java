@@ -5,10 +5,15 @@ import static io.github.suppierk.example.tables.Users.USERS;
 import io.github.suppierk.ddd.cqrs.DomainCommand;
 import io.github.suppierk.ddd.cqrs.DomainCommandHandler;
 import io.github.suppierk.ddd.cqrs.DomainMessage;
+import io.github.suppierk.ddd.javalin.ids.Ids;
 import io.github.suppierk.example.tables.records.UsersRecord;
 import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.exception.DataChangedException;
+import org.jooq.impl.DSL;
 
 /**
  * Domain command to delete a user from the system.
@@ -21,8 +26,10 @@ import org.jooq.Condition;
  * @param messageId to identify this command
  * @param createdAt is the time when this command was requested
  * @param id of the existing user to be deleted
+ * @param expectedVersion of the existing user, if the deletion is conditional
  */
-public record DeleteUser(UUID messageId, Instant createdAt, UUID id)
+public record DeleteUser(
+    UUID messageId, Instant createdAt, UUID id, Optional<Integer> expectedVersion)
     implements DomainCommand.Delete<UUID, Instant> {
 
   /**
@@ -31,7 +38,7 @@ public record DeleteUser(UUID messageId, Instant createdAt, UUID id)
    */
   @Override
   public Condition condition() {
-    return USERS.ID.eq(id);
+    return USERS.ID.eq(id).and(expectedVersion.map(USERS.VERSION::eq).orElse(DSL.noCondition()));
   }
 
   /**
@@ -41,7 +48,18 @@ public record DeleteUser(UUID messageId, Instant createdAt, UUID id)
    * @param id of the existing user to be deleted
    */
   public DeleteUser(UUID id) {
-    this(UUID.randomUUID(), Instant.now(), id);
+    this(id, Optional.empty());
+  }
+
+  /**
+   * Alternative constructor, which automatically generates some of the {@link DomainMessage}
+   * options.
+   *
+   * @param id of the existing user to be deleted
+   * @param expectedVersion of the existing user, if the deletion is conditional
+   */
+  public DeleteUser(UUID id, Optional<Integer> expectedVersion) {
+    this(Ids.next(), Instant.now(), id, expectedVersion);
   }
 
   /**
@@ -57,5 +75,39 @@ public record DeleteUser(UUID messageId, Instant createdAt, UUID id)
     public Handler() {
       super(DeleteUser.class);
     }
+
+    /**
+     * Deletes the user with a single {@code DELETE ... RETURNING} statement, which needs no user
+     * loaded beforehand and tells whether there was one to delete.
+     *
+     * <p>Expected version is checked by the {@code WHERE} clause, so only a failed conditional
+     * deletion takes another round trip, telling a missing user from an outdated one.
+     *
+     * @param command to execute
+     * @param dsl with read-write capability
+     * @return ID and version of the deleted user or empty if the user does not exist
+     * @throws DataChangedException if the existing user does not have the expected version
+     */
+    public Optional<UsersRecord> run(DeleteUser command, DSLContext dsl) {
+      final var usersRecord =
+          dsl.deleteFrom(USERS)
+              .where(command.condition())
+              .returning(USERS.ID, USERS.VERSION)
+              .fetchOptional();
+
+      if (usersRecord.isPresent() || command.expectedVersion().isEmpty()) {
+        return usersRecord;
+      }
+
+      final var version =
+          dsl.select(USERS.VERSION).from(USERS).where(USERS.ID.eq(command.id())).fetchOptional();
+      if (version.isPresent()) {
+        throw new DataChangedException(
+            "User %s has version %d, but %d was expected"
+                .formatted(command.id(), version.get().value1(), command.expectedVersion().get()));
+      }
+
+      return Optional.empty();
+    }
   }
 }
@@ -5,13 +5,20 @@ import static io.github.suppierk.example.Tables.USERS;
 import io.github.suppierk.ddd.cqrs.DomainCommand;
 import io.github.suppierk.ddd.cqrs.DomainCommandHandler;
 import io.github.suppierk.ddd.cqrs.DomainMessage;
+import io.github.suppierk.ddd.javalin.ids.Ids;
 import io.github.suppierk.example.tables.records.UsersRecord;
 import io.javalin.openapi.Nullability;
 import io.javalin.openapi.OpenApiPropertyType;
 import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.exception.DataChangedException;
+import org.jooq.impl.DSL;
 
 /**
  * Domain command to create new user in the system.
@@ -27,6 +34,7 @@ import org.jooq.Condition;
  * @param newUsername to set
  * @param newPassword to set
  * @param newEmail to set
+ * @param expectedVersion of the existing user, if the update is conditional
  */
 public record UpdateUser(
     UUID messageId,
@@ -34,7 +42,8 @@ public record UpdateUser(
     UUID id,
     Optional<String> newUsername,
     Optional<String> newPassword,
-    Optional<String> newEmail)
+    Optional<String> newEmail,
+    Optional<Integer> expectedVersion)
     implements DomainCommand.Update<UUID, Instant> {
   /**
    * It is better to define {@link Condition} as a method rather than {@link Record} field due to
@@ -53,8 +62,21 @@ public record UpdateUser(
    * @param updateUserRequest from the API to fetch parameters from
    */
   public UpdateUser(UUID id, UpdateUserRequest updateUserRequest) {
+    this(id, Optional.empty(), updateUserRequest);
+  }
+
+  /**
+   * Alternative constructor, which automatically generates some of the {@link DomainMessage}
+   * options.
+   *
+   * @param id of the existing user to update
+   * @param expectedVersion of the existing user, if the update is conditional
+   * @param updateUserRequest from the API to fetch parameters from
+   */
+  public UpdateUser(
+      UUID id, Optional<Integer> expectedVersion, UpdateUserRequest updateUserRequest) {
     this(
-        UUID.randomUUID(),
+        Ids.next(),
         Instant.now(),
         id,
         updateUserRequest.username.flatMap(
@@ -62,7 +84,8 @@ public record UpdateUser(
         updateUserRequest.password.flatMap(
             value -> value.isBlank() ? Optional.empty() : Optional.of(value)),
         updateUserRequest.email.flatMap(
-            value -> value.isBlank() ? Optional.empty() : Optional.of(value)));
+            value -> value.isBlank() ? Optional.empty() : Optional.of(value)),
+        expectedVersion);
   }
 
   /**
@@ -95,13 +118,77 @@ public record UpdateUser(
       super(UpdateUser.class);
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * @throws DataChangedException if the existing user does not have the expected version
+     */
     @Override
     protected UsersRecord updateRecordValues(UpdateUser command, UsersRecord databaseRecord) {
+      if (command.expectedVersion().isPresent()
+          && !command.expectedVersion().get().equals(databaseRecord.getVersion())) {
+        throw new DataChangedException(
+            "User %s has version %d, but %d was expected"
+                .formatted(
+                    command.id(), databaseRecord.getVersion(), command.expectedVersion().get()));
+      }
+
       command.newUsername().ifPresent(databaseRecord::setUsername);
       command.newPassword().ifPresent(databaseRecord::setPassword);
       command.newEmail().ifPresent(databaseRecord::setEmail);
       return databaseRecord;
     }
+
+    /**
+     * Updates the user with a single {@code UPDATE ... RETURNING} statement instead of loading the
+     * user first and storing it afterwards, incrementing the version the same way storing does.
+     *
+     * <p>Expected version is checked by the {@code WHERE} clause, so only a failed conditional
+     * update takes another round trip, telling a missing user from an outdated one.
+     *
+     * @param command to execute
+     * @param dsl with read-write capability
+     * @return updated user or empty if the user does not exist
+     * @throws DataChangedException if the existing user does not have the expected version
+     */
+    public Optional<UsersRecord> run(UpdateUser command, DSLContext dsl) {
+      final Map<Field<?>, Object> values = new LinkedHashMap<>();
+      command.newUsername().ifPresent(value -> values.put(USERS.USERNAME, value));
+      command.newPassword().ifPresent(value -> values.put(USERS.PASSWORD, value));
+      command.newEmail().ifPresent(value -> values.put(USERS.EMAIL, value));
+
+      final Condition expectedVersion =
+          command.expectedVersion().map(USERS.VERSION::eq).orElse(DSL.noCondition());
+
+      // Storing an unchanged record does not touch it, neither should an empty update
+      final Optional<UsersRecord> usersRecord;
+      if (values.isEmpty()) {
+        usersRecord =
+            dsl.selectFrom(USERS).where(command.condition()).and(expectedVersion).fetchOptional();
+      } else {
+        values.put(USERS.VERSION, USERS.VERSION.plus(1));
+        usersRecord =
+            dsl.update(USERS)
+                .set(values)
+                .where(command.condition())
+                .and(expectedVersion)
+                .returning()
+                .fetchOptional();
+      }
+
+      if (usersRecord.isPresent() || command.expectedVersion().isEmpty()) {
+        return usersRecord;
+      }
+
+      final var version =
+          dsl.select(USERS.VERSION).from(USERS).where(command.condition()).fetchOptional();
+      if (version.isPresent()) {
+        throw new DataChangedException(
+            "User %s has version %d, but %d was expected"
+                .formatted(command.id(), version.get().value1(), command.expectedVersion().get()));
+      }
+
+      return Optional.empty();
+    }
   }
 }
@@ -0,0 +1,29 @@
+package io.github.suppierk.ddd.javalin.users.dto;
+
+import io.javalin.openapi.Nullability;
+import io.javalin.openapi.OpenApiPropertyType;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Publicly exposed Data Transfer Object which represents the outcome of a batch of changes.
+ *
+ * <p>Each list follows the order of the respective list in the request.
+ *
+ * @param create outcomes of user creations
+ * @param update outcomes of user updates
+ * @param delete outcomes of user deletions
+ */
+public record BatchUsersResponse(List<Item> create, List<Item> update, List<Item> delete) {
+  /**
+   * Outcome of a single change within the batch.
+   *
+   * @param id of the user
+   * @param status is the HTTP status the change would have had as a standalone request
+   * @param user is the state of the user after the change, {@code null} if it does not exist
+   */
+  public record Item(
+      UUID id,
+      int status,
+      @OpenApiPropertyType(definedBy = User.class, nullability = Nullability.NULLABLE) User user) {}
+}
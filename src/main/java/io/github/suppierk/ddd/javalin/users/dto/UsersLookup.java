@@ -0,0 +1,26 @@
+package io.github.suppierk.ddd.javalin.users.dto;
+
+import io.javalin.openapi.Nullability;
+import io.javalin.openapi.OpenApiPropertyType;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Publicly exposed Data Transfer Object which represents the result of fetching several {@link
+ * User}s by their IDs.
+ *
+ * @param users in the order of requested IDs
+ */
+public record UsersLookup(List<Item> users) {
+  /**
+   * Result of fetching a single user.
+   *
+   * @param id which was requested
+   * @param found is {@code true} if the user exists
+   * @param user is the existing user, {@code null} if it was not found
+   */
+  public record Item(
+      UUID id,
+      boolean found,
+      @OpenApiPropertyType(definedBy = User.class, nullability = Nullability.NULLABLE) User user) {}
+}
@@ -0,0 +1,16 @@
+package io.github.suppierk.ddd.javalin.users.dto;
+
+import io.javalin.openapi.Nullability;
+import io.javalin.openapi.OpenApiPropertyType;
+import java.util.List;
+
+/**
+ * Publicly exposed Data Transfer Object which represents a single page of {@link User}s.
+ *
+ * @param users on this page
+ * @param next is the cursor to request the following page with, {@code null} on the last page
+ */
+public record UsersPage(
+    List<User> users,
+    @OpenApiPropertyType(definedBy = String.class, nullability = Nullability.NULLABLE)
+        String next) {}
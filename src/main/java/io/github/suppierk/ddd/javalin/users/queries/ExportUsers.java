@@ -0,0 +1,95 @@
+package io.github.suppierk.ddd.javalin.users.queries;
+
+import static io.github.suppierk.example.Tables.USERS;
+
+import io.github.suppierk.ddd.cqrs.DomainMessage;
+import io.github.suppierk.ddd.cqrs.DomainQuery;
+import io.github.suppierk.ddd.cqrs.DomainQueryHandler;
+import io.github.suppierk.ddd.javalin.ids.Ids;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+
+/**
+ * Domain query to stream every existing user from the system.
+ *
+ * <p>This is just an example of {@link DomainQuery} definition.
+ *
+ * <p>Unlike {@link GetAllUsers}, records are not collected: each one is pushed into {@link
+ * #consumer()} as soon as it is read from the database, so memory stays flat regardless of the
+ * amount of users.
+ *
+ * @param messageId to identify this command
+ * @param createdAt is the time when this command was requested
+ * @param fetchSize is the amount of rows to fetch from the database cursor per round trip
+ * @param consumer to receive users one by one
+ */
+public record ExportUsers(
+    UUID messageId, Instant createdAt, int fetchSize, Consumer<UsersRecord> consumer)
+    implements DomainQuery.Many<UUID, Instant> {
+  public static final int DEFAULT_FETCH_SIZE = 1000;
+
+  /**
+   * Alternative constructor, which automatically generates some of the {@link DomainMessage}
+   * options.
+   *
+   * @param consumer to receive users one by one
+   */
+  public ExportUsers(Consumer<UsersRecord> consumer) {
+    this(Ids.next(), Instant.now(), DEFAULT_FETCH_SIZE, consumer);
+  }
+
+  /** Post construct property validation. */
+  public ExportUsers {
+    if (fetchSize < 1) {
+      throw new IllegalArgumentException("Fetch size must be positive");
+    }
+
+    if (consumer == null) {
+      throw new IllegalArgumentException("Consumer cannot be null");
+    }
+  }
+
+  /**
+   * Respective {@link DomainQueryHandler} for the current {@link DomainQuery}.
+   *
+   * <p>This is just an example of {@link DomainQueryHandler} definition.
+   *
+   * <p>Note that since the library enforces 1-to-1 relationship between {@link DomainQuery} and
+   * {@link DomainQueryHandler} it makes sense to have both defined in the same file - but this is
+   * not required.
+   */
+  public static class Handler extends DomainQueryHandler.Many<ExportUsers, UsersRecord> {
+    public Handler() {
+      super(ExportUsers.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>PostgreSQL driver only uses a server-side cursor when auto-commit is disabled, hence the
+     * transaction. Any exception thrown by the consumer, such as a client disconnect, closes the
+     * cursor and returns the connection to the pool.
+     *
+     * @return always an empty list, because records are handed over to the consumer instead
+     */
+    @Override
+    protected List<UsersRecord> run(ExportUsers query, DSLContext dsl) {
+      dsl.transaction(
+          configuration -> {
+            try (final Cursor<UsersRecord> cursor =
+                configuration.dsl().selectFrom(USERS).fetchSize(query.fetchSize).fetchLazy()) {
+              for (final UsersRecord usersRecord : cursor) {
+                query.consumer.accept(usersRecord);
+              }
+            }
+          });
+
+      return List.of();
+    }
+  }
+}
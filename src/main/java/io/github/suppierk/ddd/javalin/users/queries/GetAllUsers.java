@@ -5,31 +5,116 @@ import static io.github.suppierk.example.Tables.USERS;
 import io.github.suppierk.ddd.cqrs.DomainMessage;
 import io.github.suppierk.ddd.cqrs.DomainQuery;
 import io.github.suppierk.ddd.cqrs.DomainQueryHandler;
+import io.github.suppierk.ddd.javalin.ids.Ids;
 import io.github.suppierk.example.tables.records.UsersRecord;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
 
 /**
- * Domain query to fetch existing user from the system.
+ * Domain query to fetch a single page of existing users from the system.
  *
  * <p>This is just an example of {@link DomainQuery} definition.
  *
  * <p>Note that extending {@link DomainQuery.Many} interface for record works nicely with Java
  * {@link Record}s.
  *
+ * <p>Pages are defined by keyset over {@code (created_at, id)} rather than by offset, so the cost
+ * of fetching any page does not depend on how deep into the table it is.
+ *
  * @param messageId to identify this command
  * @param createdAt is the time when this command was requested
+ * @param limit is the maximum amount of users on the page
+ * @param after is the position of the last user from the previous page, if any
  */
-public record GetAllUsers(UUID messageId, Instant createdAt)
+public record GetAllUsers(UUID messageId, Instant createdAt, int limit, Optional<Cursor> after)
     implements DomainQuery.Many<UUID, Instant> {
+  public static final int DEFAULT_LIMIT = 100;
+  public static final int MAX_LIMIT = 1000;
+
   /**
    * Alternative constructor, which automatically generates some of the {@link DomainMessage}
    * options.
    */
   public GetAllUsers() {
-    this(UUID.randomUUID(), Instant.now());
+    this(DEFAULT_LIMIT, Optional.empty());
+  }
+
+  /**
+   * Alternative constructor, which automatically generates some of the {@link DomainMessage}
+   * options.
+   *
+   * @param limit is the maximum amount of users on the page
+   * @param after is the position of the last user from the previous page, if any
+   */
+  public GetAllUsers(int limit, Optional<Cursor> after) {
+    this(Ids.next(), Instant.now(), limit, after);
+  }
+
+  /** Post construct property validation. */
+  public GetAllUsers {
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new IllegalArgumentException("Limit must be between 1 and %d".formatted(MAX_LIMIT));
+    }
+
+    if (after == null) {
+      throw new IllegalArgumentException("After cannot be null");
+    }
+  }
+
+  /**
+   * Position of the user within the {@code (created_at, id)} ordering.
+   *
+   * <p>Clients receive it as an opaque string, which is why it is able to encode and decode itself.
+   *
+   * @param createdAt of the user
+   * @param id of the user
+   */
+  public record Cursor(LocalDateTime createdAt, UUID id) {
+    private static final String SEPARATOR = "|";
+
+    /**
+     * @param usersRecord to take the position from
+     * @return cursor pointing at the given record
+     */
+    public static Cursor of(UsersRecord usersRecord) {
+      return new Cursor(usersRecord.getCreatedAt(), usersRecord.getId());
+    }
+
+    /**
+     * @param value previously produced by {@link #encode()}
+     * @return decoded cursor
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static Cursor decode(String value) {
+      try {
+        final var decoded =
+            new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        final var separatorIndex = decoded.indexOf(SEPARATOR);
+        return new Cursor(
+            LocalDateTime.parse(decoded.substring(0, separatorIndex)),
+            UUID.fromString(decoded.substring(separatorIndex + 1)));
+      } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+        throw new IllegalArgumentException("Invalid cursor: %s".formatted(value), e);
+      }
+    }
+
+    /**
+     * @return opaque URL-safe representation of this cursor
+     */
+    public String encode() {
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString((createdAt + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
   }
 
   /**
@@ -46,9 +131,26 @@ public record GetAllUsers(UUID messageId, Instant createdAt)
       super(GetAllUsers.class);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Fetches one extra row beyond the limit, so that the caller can tell whether there is
+     * another page without issuing a second query.
+     */
     @Override
     protected List<UsersRecord> run(GetAllUsers query, DSLContext dsl) {
-      return dsl.selectFrom(USERS).fetchStream().toList();
+      final Condition afterCursor =
+          query
+              .after()
+              .map(
+                  cursor -> DSL.row(USERS.CREATED_AT, USERS.ID).gt(cursor.createdAt(), cursor.id()))
+              .orElse(DSL.noCondition());
+
+      return dsl.selectFrom(USERS)
+          .where(afterCursor)
+          .orderBy(USERS.CREATED_AT, USERS.ID)
+          .limit(query.limit() + 1)
+          .fetch();
     }
   }
 }
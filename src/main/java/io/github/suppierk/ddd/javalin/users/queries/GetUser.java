@@ -5,6 +5,7 @@ import static io.github.suppierk.example.Tables.USERS;
 import io.github.suppierk.ddd.cqrs.DomainMessage;
 import io.github.suppierk.ddd.cqrs.DomainQuery;
 import io.github.suppierk.ddd.cqrs.DomainQueryHandler;
+import io.github.suppierk.ddd.javalin.ids.Ids;
 import io.github.suppierk.example.tables.records.UsersRecord;
 import java.time.Instant;
 import java.util.Optional;
@@ -32,7 +33,7 @@ public record GetUser(UUID messageId, Instant createdAt, UUID id)
    * @param id of the existing user to fetch
    */
   public GetUser(UUID id) {
-    this(UUID.randomUUID(), Instant.now(), id);
+    this(Ids.next(), Instant.now(), id);
   }
 
   /** Post construct property validation. */
@@ -58,7 +59,7 @@ public record GetUser(UUID messageId, Instant createdAt, UUID id)
 
     /** {@inheritDoc} */
     @Override
-    protected Optional<UsersRecord> run(GetUser query, DSLContext dsl) {
+    public Optional<UsersRecord> run(GetUser query, DSLContext dsl) {
       return dsl.selectFrom(USERS).where(USERS.ID.eq(query.id)).fetchOptional();
     }
   }
@@ -0,0 +1,70 @@
+package io.github.suppierk.ddd.javalin.users.queries;
+
+import static io.github.suppierk.example.Tables.USERS;
+
+import io.github.suppierk.ddd.cqrs.DomainMessage;
+import io.github.suppierk.ddd.cqrs.DomainQuery;
+import io.github.suppierk.ddd.cqrs.DomainQueryHandler;
+import io.github.suppierk.ddd.javalin.ids.Ids;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import org.jooq.DSLContext;
+
+/**
+ * Domain query to fetch existing user by email from the system.
+ *
+ * <p>This is just an example of {@link DomainQuery} definition.
+ *
+ * <p>Note that extending {@link DomainQuery.One} interface for record works nicely with Java {@link
+ * Record}s.
+ *
+ * @param messageId to identify this command
+ * @param createdAt is the time when this command was requested
+ * @param email of the existing user
+ */
+public record GetUserByEmail(UUID messageId, Instant createdAt, String email)
+    implements DomainQuery.One<UUID, Instant> {
+  /**
+   * Alternative constructor, which automatically generates some of the {@link DomainMessage}
+   * options.
+   *
+   * @param email of the existing user to fetch
+   */
+  public GetUserByEmail(String email) {
+    this(Ids.next(), Instant.now(), email);
+  }
+
+  /** Post construct property validation. */
+  public GetUserByEmail {
+    if (email == null || email.isBlank()) {
+      throw new IllegalArgumentException("Email cannot be null or blank");
+    }
+  }
+
+  /**
+   * Respective {@link DomainQueryHandler} for the current {@link DomainQuery}.
+   *
+   * <p>This is just an example of {@link DomainQueryHandler} definition.
+   *
+   * <p>Note that since the library enforces 1-to-1 relationship between {@link DomainQuery} and
+   * {@link DomainQueryHandler} it makes sense to have both defined in the same file - but this is
+   * not required.
+   */
+  public static class Handler extends DomainQueryHandler.One<GetUserByEmail, UsersRecord> {
+    public Handler() {
+      super(GetUserByEmail.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Served by the unique {@code users_email_idx} index.
+     */
+    @Override
+    protected Optional<UsersRecord> run(GetUserByEmail query, DSLContext dsl) {
+      return dsl.selectFrom(USERS).where(USERS.EMAIL.eq(query.email)).fetchOptional();
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package io.github.suppierk.ddd.javalin.users.queries;
+
+import static io.github.suppierk.example.Tables.USERS;
+
+import io.github.suppierk.ddd.cqrs.DomainMessage;
+import io.github.suppierk.ddd.cqrs.DomainQuery;
+import io.github.suppierk.ddd.cqrs.DomainQueryHandler;
+import io.github.suppierk.ddd.javalin.ids.Ids;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import org.jooq.DSLContext;
+
+/**
+ * Domain query to fetch existing user by username from the system.
+ *
+ * <p>This is just an example of {@link DomainQuery} definition.
+ *
+ * <p>Note that extending {@link DomainQuery.One} interface for record works nicely with Java {@link
+ * Record}s.
+ *
+ * @param messageId to identify this command
+ * @param createdAt is the time when this command was requested
+ * @param username of the existing user
+ */
+public record GetUserByUsername(UUID messageId, Instant createdAt, String username)
+    implements DomainQuery.One<UUID, Instant> {
+  /**
+   * Alternative constructor, which automatically generates some of the {@link DomainMessage}
+   * options.
+   *
+   * @param username of the existing user to fetch
+   */
+  public GetUserByUsername(String username) {
+    this(Ids.next(), Instant.now(), username);
+  }
+
+  /** Post construct property validation. */
+  public GetUserByUsername {
+    if (username == null || username.isBlank()) {
+      throw new IllegalArgumentException("Username cannot be null or blank");
+    }
+  }
+
+  /**
+   * Respective {@link DomainQueryHandler} for the current {@link DomainQuery}.
+   *
+   * <p>This is just an example of {@link DomainQueryHandler} definition.
+   *
+   * <p>Note that since the library enforces 1-to-1 relationship between {@link DomainQuery} and
+   * {@link DomainQueryHandler} it makes sense to have both defined in the same file - but this is
+   * not required.
+   */
+  public static class Handler extends DomainQueryHandler.One<GetUserByUsername, UsersRecord> {
+    public Handler() {
+      super(GetUserByUsername.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Served by the unique {@code users_username_idx} index.
+     */
+    @Override
+    protected Optional<UsersRecord> run(GetUserByUsername query, DSLContext dsl) {
+      return dsl.selectFrom(USERS).where(USERS.USERNAME.eq(query.username)).fetchOptional();
+    }
+  }
+}
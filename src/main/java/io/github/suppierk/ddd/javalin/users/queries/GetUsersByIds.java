@@ -0,0 +1,84 @@
+package io.github.suppierk.ddd.javalin.users.queries;
+
+import static io.github.suppierk.example.Tables.USERS;
+
+import io.github.suppierk.ddd.cqrs.DomainMessage;
+import io.github.suppierk.ddd.cqrs.DomainQuery;
+import io.github.suppierk.ddd.cqrs.DomainQueryHandler;
+import io.github.suppierk.ddd.javalin.ids.Ids;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+
+/**
+ * Domain query to fetch several existing users from the system at once.
+ *
+ * <p>This is just an example of {@link DomainQuery} definition.
+ *
+ * <p>Note that extending {@link DomainQuery.Many} interface for record works nicely with Java
+ * {@link Record}s.
+ *
+ * @param messageId to identify this command
+ * @param createdAt is the time when this command was requested
+ * @param ids of the existing users
+ */
+public record GetUsersByIds(UUID messageId, Instant createdAt, List<UUID> ids)
+    implements DomainQuery.Many<UUID, Instant> {
+  public static final int MAX_IDS = 1000;
+
+  /**
+   * Alternative constructor, which automatically generates some of the {@link DomainMessage}
+   * options.
+   *
+   * @param ids of the existing users to fetch
+   */
+  public GetUsersByIds(List<UUID> ids) {
+    this(Ids.next(), Instant.now(), ids);
+  }
+
+  /** Post construct property validation. */
+  public GetUsersByIds {
+    if (ids == null || ids.isEmpty()) {
+      throw new IllegalArgumentException("Ids cannot be null or empty");
+    }
+
+    if (ids.size() > MAX_IDS) {
+      throw new IllegalArgumentException("Cannot fetch more than %d users".formatted(MAX_IDS));
+    }
+
+    ids = List.copyOf(ids);
+  }
+
+  /**
+   * Respective {@link DomainQueryHandler} for the current {@link DomainQuery}.
+   *
+   * <p>This is just an example of {@link DomainQueryHandler} definition.
+   *
+   * <p>Note that since the library enforces 1-to-1 relationship between {@link DomainQuery} and
+   * {@link DomainQueryHandler} it makes sense to have both defined in the same file - but this is
+   * not required.
+   */
+  public static class Handler extends DomainQueryHandler.Many<GetUsersByIds, UsersRecord> {
+    public Handler() {
+      super(GetUsersByIds.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>IDs are bound as a single array parameter of {@code = ANY(?)}, so the statement text is
+     * the same for any amount of IDs and can be reused as a prepared statement.
+     *
+     * @return existing users in no particular order, missing ones are skipped
+     */
+    @Override
+    public List<UsersRecord> run(GetUsersByIds query, DSLContext dsl) {
+      return dsl.selectFrom(USERS)
+          .where(USERS.ID.eq(DSL.any(query.ids.stream().distinct().toArray(UUID[]::new))))
+          .fetch();
+    }
+  }
+}
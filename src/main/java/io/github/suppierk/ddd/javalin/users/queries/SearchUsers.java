@@ -0,0 +1,247 @@
+package io.github.suppierk.ddd.javalin.users.queries;
+
+import static io.github.suppierk.example.Tables.USERS;
+
+import io.github.suppierk.ddd.cqrs.DomainMessage;
+import io.github.suppierk.ddd.cqrs.DomainQuery;
+import io.github.suppierk.ddd.cqrs.DomainQueryHandler;
+import io.github.suppierk.ddd.javalin.ids.Ids;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+
+/**
+ * Domain query to search existing users by fragments of their usernames or emails.
+ *
+ * <p>This is just an example of {@link DomainQuery} definition.
+ *
+ * <p>Note that extending {@link DomainQuery.Many} interface for record works nicely with Java
+ * {@link Record}s.
+ *
+ * <p>Unlike {@link GetAllUsers}, pages are defined by offset, because users are ordered by how well
+ * they match rather than by any indexed column. Offset is bounded by {@link #MAX_RESULTS}, which
+ * keeps the cost of the deepest page close to the cost of the first one.
+ *
+ * @param messageId to identify this command
+ * @param createdAt is the time when this command was requested
+ * @param query is the fragment of the username or the email to search for
+ * @param limit is the maximum amount of users on the page
+ * @param after is the position of the last user from the previous page, if any
+ */
+public record SearchUsers(
+    UUID messageId, Instant createdAt, String query, int limit, Optional<Cursor> after)
+    implements DomainQuery.Many<UUID, Instant> {
+  public static final int MIN_QUERY_LENGTH = 3;
+  public static final int MAX_QUERY_LENGTH = 100;
+  public static final int DEFAULT_LIMIT = 20;
+  public static final int MAX_LIMIT = 100;
+  public static final int MAX_RESULTS = 1000;
+
+  /**
+   * Alternative constructor, which automatically generates some of the {@link DomainMessage}
+   * options.
+   *
+   * @param query is the fragment of the username or the email to search for
+   * @param limit is the maximum amount of users on the page
+   * @param after is the position of the last user from the previous page, if any
+   */
+  public SearchUsers(String query, int limit, Optional<Cursor> after) {
+    this(Ids.next(), Instant.now(), query, limit, after);
+  }
+
+  /** Post construct property validation. */
+  public SearchUsers {
+    if (query == null
+        || query.strip().length() < MIN_QUERY_LENGTH
+        || query.strip().length() > MAX_QUERY_LENGTH) {
+      throw new IllegalArgumentException(
+          "Query must be between %d and %d characters"
+              .formatted(MIN_QUERY_LENGTH, MAX_QUERY_LENGTH));
+    }
+
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new IllegalArgumentException("Limit must be between 1 and %d".formatted(MAX_LIMIT));
+    }
+
+    if (after == null) {
+      throw new IllegalArgumentException("After cannot be null");
+    }
+
+    query = query.strip();
+  }
+
+  /**
+   * @return amount of users preceding this page
+   */
+  public int offset() {
+    return after.map(Cursor::offset).orElse(0);
+  }
+
+  /**
+   * @return cursor pointing at the page following this one
+   */
+  public Cursor next() {
+    return new Cursor(offset() + limit);
+  }
+
+  /**
+   * @return {@code true} if pages beyond this one would exceed {@link #MAX_RESULTS}
+   */
+  public boolean isLast() {
+    return offset() + limit >= MAX_RESULTS;
+  }
+
+  /**
+   * Position of the user within the search results.
+   *
+   * <p>Clients receive it as an opaque string, which is why it is able to encode and decode itself.
+   *
+   * @param offset is the amount of users preceding the next page
+   */
+  public record Cursor(int offset) {
+    /** Post construct property validation. */
+    public Cursor {
+      if (offset < 0 || offset >= MAX_RESULTS) {
+        throw new IllegalArgumentException(
+            "Cannot search beyond first %d users".formatted(MAX_RESULTS));
+      }
+    }
+
+    /**
+     * @param value previously produced by {@link #encode()}
+     * @return decoded cursor
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static Cursor decode(String value) {
+      try {
+        return new Cursor(
+            Integer.parseInt(
+                new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8)));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid cursor: %s".formatted(value), e);
+      }
+    }
+
+    /**
+     * @return opaque URL-safe representation of this cursor
+     */
+    public String encode() {
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(Integer.toString(offset).getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Respective {@link DomainQueryHandler} for the current {@link DomainQuery}.
+   *
+   * <p>This is just an example of {@link DomainQueryHandler} definition.
+   *
+   * <p>Note that since the library enforces 1-to-1 relationship between {@link DomainQuery} and
+   * {@link DomainQueryHandler} it makes sense to have both defined in the same file - but this is
+   * not required.
+   */
+  public static class Handler extends DomainQueryHandler.Many<SearchUsers, UsersRecord> {
+    private static final char ESCAPE = '!';
+
+    public Handler() {
+      super(SearchUsers.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Users match if either column contains the query or has a word similar to it. Users whose
+     * username or email starts with the query come first, then the ones with the most similar
+     * words.
+     *
+     * <p>Only the first {@link #MAX_RESULTS} users nearest to the query are ranked among the ones
+     * starting with it, containing it and having a similar word, by each column, so that short
+     * fragments shared by most users, like {@code com}, do not make the database score and sort
+     * every row of the table. Each of these candidates is found by a nearest-neighbour scan of the
+     * trigram index of its column, ordered by distance and ID, so that every page ranks the same
+     * candidates. Fragments shared by that many users should be refined by the client anyway, as
+     * nobody reads that far.
+     *
+     * <p>Fetches one extra row beyond the limit, so that the caller can tell whether there is
+     * another page without issuing a second query.
+     */
+    @Override
+    protected List<UsersRecord> run(SearchUsers query, DSLContext dsl) {
+      final var value = DSL.val(query.query());
+      final var escaped = escape(query.query());
+
+      final Condition startsWith =
+          USERS
+              .USERNAME
+              .likeIgnoreCase(escaped + "%", ESCAPE)
+              .or(USERS.EMAIL.likeIgnoreCase(escaped + "%", ESCAPE));
+      final Field<Float> similarity =
+          DSL.greatest(
+              DSL.function("word_similarity", SQLDataType.REAL, value, USERS.USERNAME),
+              DSL.function("word_similarity", SQLDataType.REAL, value, USERS.EMAIL));
+
+      return dsl.selectFrom(USERS)
+          .where(
+              USERS.ID.in(
+                  candidates(USERS.USERNAME, value, escaped)
+                      .union(candidates(USERS.EMAIL, value, escaped))))
+          .orderBy(DSL.when(startsWith, 0).otherwise(1), similarity.desc(), USERS.ID)
+          .limit(query.limit() + 1)
+          .offset(query.offset())
+          .fetch();
+    }
+
+    /**
+     * @param column to search in
+     * @param value of the query
+     * @param escaped query, which matches literally within {@code LIKE} patterns
+     * @return IDs of users starting with the query, containing it and having a similar word in the
+     *     given column, up to {@link #MAX_RESULTS} nearest to the query of each
+     */
+    private static Select<Record1<UUID>> candidates(
+        Field<String> column, Field<String> value, String escaped) {
+      return nearest(column, value, column.likeIgnoreCase(escaped + "%", ESCAPE))
+          .union(nearest(column, value, column.likeIgnoreCase("%" + escaped + "%", ESCAPE)))
+          .union(nearest(column, value, DSL.condition("{0} %> {1}", column, value)));
+    }
+
+    /**
+     * @param column to search in
+     * @param value of the query
+     * @param matches is the condition on the column the trigram index serves
+     * @return IDs of up to {@link #MAX_RESULTS} matching users nearest to the query, ties broken by
+     *     ID
+     */
+    private static Select<Record1<UUID>> nearest(
+        Field<String> column, Field<String> value, Condition matches) {
+      return DSL.select(USERS.ID)
+          .from(USERS)
+          .where(matches)
+          .orderBy(DSL.field("{0} <->> {1}", SQLDataType.REAL, column, value), USERS.ID)
+          .limit(MAX_RESULTS);
+    }
+
+    /**
+     * @param query to search for
+     * @return query, which matches literally within {@code LIKE} patterns
+     */
+    private static String escape(String query) {
+      return query
+          .replace(String.valueOf(ESCAPE), String.valueOf(ESCAPE) + ESCAPE)
+          .replace("%", ESCAPE + "%")
+          .replace("_", ESCAPE + "_");
+    }
+  }
+}
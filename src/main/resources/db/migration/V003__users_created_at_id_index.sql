@@ -0,0 +1,7 @@
+-- Supports keyset pagination over (created_at, id) without blocking writes on a live table
+CREATE
+  INDEX CONCURRENTLY IF NOT EXISTS users_created_at_id_idx ON
+  users(
+    created_at,
+    id
+  );
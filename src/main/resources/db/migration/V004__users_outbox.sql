@@ -0,0 +1,40 @@
+-- Events are written by a trigger within the transaction of the change itself, so that they are never lost or made up
+CREATE
+  TABLE
+    outbox(
+      id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+      aggregate_type VARCHAR(50) NOT NULL,
+      aggregate_id UUID NOT NULL,
+      event_type VARCHAR(50) NOT NULL,
+      payload JSONB NOT NULL,
+      created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT clock_timestamp()
+    );
+
+CREATE
+  OR REPLACE FUNCTION users_outbox() RETURNS TRIGGER LANGUAGE plpgsql AS $$
+BEGIN
+  IF TG_OP = 'DELETE' THEN
+    INSERT INTO outbox(aggregate_type, aggregate_id, event_type, payload)
+    VALUES ('users', OLD.id, 'UserDeleted', to_jsonb(OLD) - 'password');
+
+    RETURN OLD;
+  END IF;
+
+  INSERT INTO outbox(aggregate_type, aggregate_id, event_type, payload)
+  VALUES (
+    'users',
+    NEW.id,
+    CASE TG_OP WHEN 'INSERT' THEN 'UserCreated' ELSE 'UserUpdated' END,
+    to_jsonb(NEW) - 'password'
+  );
+
+  RETURN NEW;
+END;
+$$;
+
+CREATE
+  TRIGGER users_outbox AFTER INSERT
+  OR UPDATE
+    OR DELETE
+      ON
+      users FOR EACH ROW EXECUTE FUNCTION users_outbox();
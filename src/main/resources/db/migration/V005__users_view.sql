@@ -0,0 +1,20 @@
+-- Read model maintained from the outbox, deletions are kept as tombstones to reject late updates
+CREATE
+  TABLE
+    users_view(
+      id UUID PRIMARY KEY,
+      version INT NOT NULL,
+      created_at TIMESTAMP NOT NULL,
+      username VARCHAR(50) NOT NULL,
+      email VARCHAR(255) NOT NULL,
+      deleted BOOLEAN NOT NULL DEFAULT FALSE
+    );
+
+CREATE
+  INDEX users_view_created_at_id_idx ON
+  users_view(
+    created_at,
+    id
+  )
+WHERE
+  NOT deleted;
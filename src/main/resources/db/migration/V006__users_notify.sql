@@ -0,0 +1,41 @@
+-- Notifications are delivered to listeners on commit only, carrying the public columns to avoid a round trip back
+CREATE
+  OR REPLACE FUNCTION users_notify() RETURNS TRIGGER LANGUAGE plpgsql AS $$
+BEGIN
+  IF TG_OP = 'DELETE' THEN
+    PERFORM pg_notify(
+      'users_changes',
+      json_build_object(
+        'operation', TG_OP,
+        'id', OLD.id,
+        'version', OLD.version,
+        'changedAt', clock_timestamp()
+      )::text
+    );
+
+    RETURN OLD;
+  END IF;
+
+  PERFORM pg_notify(
+    'users_changes',
+    json_build_object(
+      'operation', TG_OP,
+      'id', NEW.id,
+      'version', NEW.version,
+      'createdAt', NEW.created_at,
+      'username', NEW.username,
+      'email', NEW.email,
+      'changedAt', clock_timestamp()
+    )::text
+  );
+
+  RETURN NEW;
+END;
+$$;
+
+CREATE
+  TRIGGER users_notify AFTER INSERT
+  OR UPDATE
+    OR DELETE
+      ON
+      users FOR EACH ROW EXECUTE FUNCTION users_notify();
@@ -0,0 +1,8 @@
+-- Supports lookups by username and keeps usernames unique without blocking writes on a live table
+-- Dropping a leftover of a failed concurrent build first, which would be INVALID, so that retrying always ends up valid
+DROP
+  INDEX CONCURRENTLY IF EXISTS users_username_idx;
+
+CREATE
+  UNIQUE INDEX CONCURRENTLY users_username_idx ON
+  users(username);
@@ -0,0 +1,8 @@
+-- Supports lookups by email and keeps emails unique without blocking writes on a live table
+-- Dropping a leftover of a failed concurrent build first, which would be INVALID, so that retrying always ends up valid
+DROP
+  INDEX CONCURRENTLY IF EXISTS users_email_idx;
+
+CREATE
+  UNIQUE INDEX CONCURRENTLY users_email_idx ON
+  users(email);
@@ -0,0 +1,3 @@
+-- Trigram matching for searching users by fragments of their usernames and emails
+CREATE
+  EXTENSION IF NOT EXISTS pg_trgm;
@@ -0,0 +1,9 @@
+-- Supports searching users by fragments of usernames, nearest first, without blocking writes on a live table
+-- Dropping a leftover of a failed concurrent build first, which would be INVALID, so that retrying always ends up valid
+DROP
+  INDEX CONCURRENTLY IF EXISTS users_username_trgm_idx;
+
+CREATE
+  INDEX CONCURRENTLY users_username_trgm_idx ON
+  users
+    USING gist(username gist_trgm_ops);
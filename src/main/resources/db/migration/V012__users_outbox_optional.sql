@@ -0,0 +1,47 @@
+-- Triggers on users are enabled or disabled for the whole database, so that writes of every session are treated alike
+-- Applications toggle them on start through this function, as altering the table requires owning it
+CREATE
+  OR REPLACE FUNCTION enable_users_trigger(
+    trigger_name NAME,
+    enabled BOOLEAN
+  ) RETURNS VOID LANGUAGE plpgsql SECURITY DEFINER
+SET
+  search_path = public AS $$
+BEGIN
+  IF trigger_name NOT IN ('users_outbox', 'users_notify') THEN
+    RAISE EXCEPTION 'Trigger % of users cannot be toggled', trigger_name;
+  END IF;
+
+  -- Altering the table waits for transactions using it, hence it is skipped if nothing changes
+  IF EXISTS (
+    SELECT 1 FROM pg_trigger
+    WHERE tgrelid = 'users'::regclass AND tgname = trigger_name AND (tgenabled <> 'D') = enabled
+  ) THEN
+    RETURN;
+  END IF;
+
+  EXECUTE format(
+    'ALTER TABLE users %s TRIGGER %I',
+    CASE WHEN enabled THEN 'ENABLE' ELSE 'DISABLE' END,
+    trigger_name
+  );
+END;
+$$;
+
+REVOKE ALL ON
+FUNCTION enable_users_trigger(
+  NAME,
+  BOOLEAN
+)
+FROM
+PUBLIC;
+
+GRANT EXECUTE ON
+FUNCTION enable_users_trigger(
+  NAME,
+  BOOLEAN
+) TO read_write;
+
+-- Events are only recorded while they are relayed, which the application enables the trigger for
+ALTER TABLE
+  users DISABLE TRIGGER users_outbox;
@@ -0,0 +1,4 @@
+-- Notifications are only sent while users are held in memory, which the application enables the trigger for, as NOTIFY
+-- serialises commits
+ALTER TABLE
+  users DISABLE TRIGGER users_notify;
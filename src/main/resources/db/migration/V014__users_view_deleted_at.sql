@@ -0,0 +1,16 @@
+-- Time of deletion, after which tombstones are purged once late events can no longer arrive
+ALTER TABLE
+  users_view ADD COLUMN deleted_at TIMESTAMP;
+
+UPDATE
+  users_view
+SET
+  deleted_at = LOCALTIMESTAMP
+WHERE
+  deleted;
+
+CREATE
+  INDEX users_view_deleted_at_idx ON
+  users_view(deleted_at)
+WHERE
+  deleted;
@@ -1,19 +1,50 @@
 package io.github.suppierk.ddd.javalin;
 
+import static io.github.suppierk.example.tables.Outbox.OUTBOX;
 import static io.github.suppierk.example.tables.Users.USERS;
+import static io.github.suppierk.example.tables.UsersView.USERS_VIEW;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.github.suppierk.ddd.javalin.replication.ReadYourWrites;
+import io.github.suppierk.ddd.javalin.users.commands.BatchUsers;
 import io.github.suppierk.ddd.javalin.users.commands.CreateUser;
 import io.github.suppierk.ddd.javalin.users.commands.UpdateUser;
+import io.github.suppierk.ddd.javalin.users.dto.BatchUsersResponse;
 import io.github.suppierk.ddd.javalin.users.dto.User;
+import io.github.suppierk.ddd.javalin.users.dto.UsersLookup;
+import io.github.suppierk.ddd.javalin.users.dto.UsersPage;
+import io.github.suppierk.ddd.javalin.users.queries.GetAllUsers;
+import io.github.suppierk.ddd.javalin.users.queries.SearchUsers;
+import io.github.suppierk.example.tables.records.UsersRecord;
 import io.github.suppierk.test.AbstractDatabaseTest;
+import io.javalin.http.Header;
+import io.javalin.testtools.HttpClient;
 import io.javalin.testtools.JavalinTest;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.awaitility.Awaitility;
 import org.github.gestalt.config.Gestalt;
 import org.github.gestalt.config.builder.GestaltBuilder;
 import org.github.gestalt.config.source.ConfigSourcePackage;
@@ -29,26 +60,73 @@ class ApplicationTest extends AbstractDatabaseTest {
 
   @BeforeEach
   void setUp() throws Exception {
-    final ConfigSourcePackage configSourcePackage =
+    application = createApplication(Map.of());
+  }
+
+  Application createApplication(Map<String, String> customConfig) throws Exception {
+    final MapConfigSourceBuilder configSourceBuilder =
         MapConfigSourceBuilder.builder()
             .addCustomConfig("database.read-write.url", getJdbcUrl())
             .addCustomConfig("database.read-write.username", "test_rw_user")
             .addCustomConfig("database.read-write.password", "test_rw_password")
             .addCustomConfig("database.read-only.url", getJdbcUrl())
             .addCustomConfig("database.read-only.username", "test_ro_user")
-            .addCustomConfig("database.read-only.password", "test_ro_password")
-            .build();
+            .addCustomConfig("database.read-only.password", "test_ro_password");
+    customConfig.forEach(configSourceBuilder::addCustomConfig);
+
+    final ConfigSourcePackage configSourcePackage = configSourceBuilder.build();
 
     final Gestalt gestalt = new GestaltBuilder().addSource(configSourcePackage).build();
 
     gestalt.loadConfigs();
 
-    application = new Application(Configuration.with(gestalt));
+    return new Application(Configuration.with(gestalt));
+  }
+
+  /**
+   * Replaces the application of the current test with one using the given configuration.
+   *
+   * @param customConfig to override the defaults with
+   */
+  void restartApplication(Map<String, String> customConfig) throws Exception {
+    application.close();
+    application = createApplication(customConfig);
+  }
+
+  /**
+   * Creates a user with unique username and email through the API.
+   *
+   * @param client of the application under test
+   * @return created user
+   */
+  static User createUser(HttpClient client) throws IOException {
+    return createUser(client, "user");
+  }
+
+  /**
+   * Creates a user with unique username and email through the API.
+   *
+   * @param client of the application under test
+   * @param prefix of the username and email
+   * @return created user
+   */
+  static User createUser(HttpClient client, String prefix) throws IOException {
+    final var suffix = System.nanoTime();
+    final var request =
+        new CreateUser.CreateUserRequest(
+            prefix + suffix, "password" + suffix, prefix + suffix + "@email.com");
+
+    try (final var createUserResponse = client.post("/users", request)) {
+      assertEquals(200, createUserResponse.code());
+
+      return MAPPER.readValue(
+          Objects.requireNonNull(createUserResponse.body()).string(), User.class);
+    }
   }
 
   @AfterEach
   void tearDown() {
-    truncate(USERS);
+    truncate(USERS, USERS_VIEW);
     application.close();
   }
 
@@ -70,6 +148,7 @@ class ApplicationTest extends AbstractDatabaseTest {
                 MAPPER.readValue(
                     Objects.requireNonNull(createUserResponse.body()).string(), User.class);
             assertNotNull(createUserResponseBody.id());
+            assertEquals(7, createUserResponseBody.id().version());
             assertEquals(request.username(), createUserResponseBody.username());
             assertEquals(request.email(), createUserResponseBody.email());
 
@@ -79,42 +158,131 @@ class ApplicationTest extends AbstractDatabaseTest {
   }
 
   @Test
-  void getUserHappyPath() {
+  void createUserWithRandomIdsHappyPath() throws Exception {
+    restartApplication(Map.of("ids.generation", "random"));
+
     JavalinTest.test(
         application.javalin,
         (server, client) -> {
-          final var request =
-              new CreateUser.CreateUserRequest(
-                  "user" + System.currentTimeMillis(),
-                  "password" + System.currentTimeMillis(),
-                  "email" + System.currentTimeMillis() + "@email.com");
+          final var createUserResponseBody = createUser(client);
+          assertEquals(4, createUserResponseBody.id().version());
+        });
+  }
 
-          try (final var createUserResponse = client.post("/users", request)) {
-            assertEquals(200, createUserResponse.code());
+  @Test
+  void createUserOnVirtualThreadsHappyPath() throws Exception {
+    restartApplication(Map.of("server.threads", "virtual"));
 
-            final var createUserResponseBody =
+    final var handlerThreads = new CopyOnWriteArrayList<Thread>();
+    application.javalin.before(ctx -> handlerThreads.add(Thread.currentThread()));
+
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+
+          try (final var getUserResponse =
+              client.get("/users/%s".formatted(createUserResponseBody.id()))) {
+            assertEquals(200, getUserResponse.code());
+          }
+        });
+
+    assertEquals(2, handlerThreads.size());
+    assertTrue(handlerThreads.stream().allMatch(Thread::isVirtual));
+  }
+
+  @Test
+  void updateUserAsynchronouslyHappyPath() throws Exception {
+    restartApplication(Map.of("server.async.enabled", "true"));
+
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+          final var userUrl = "/users/%s".formatted(createUserResponseBody.id());
+
+          final var updateRequest =
+              new UpdateUser.UpdateUserRequest(
+                  Optional.of("updated" + System.currentTimeMillis()),
+                  Optional.empty(),
+                  Optional.empty());
+
+          try (final var updateUserResponse = client.put(userUrl, updateRequest)) {
+            assertEquals(200, updateUserResponse.code());
+          }
+
+          try (final var getUserResponse = client.get(userUrl)) {
+            assertEquals(200, getUserResponse.code());
+
+            final var getUserResponseBody =
                 MAPPER.readValue(
-                    Objects.requireNonNull(createUserResponse.body()).string(), User.class);
-            assertEquals(1, count(USERS, USERS.ID.eq(createUserResponseBody.id())));
+                    Objects.requireNonNull(getUserResponse.body()).string(), User.class);
+            assertEquals(updateRequest.username().get(), getUserResponseBody.username());
+          }
 
-            try (final var getUserResponse =
-                client.get("/users/%s".formatted(createUserResponseBody.id()))) {
-              assertEquals(200, getUserResponse.code());
+          try (final var deleteUserResponse = client.delete(userUrl)) {
+            assertEquals(200, deleteUserResponse.code());
+          }
 
-              final var readUserResponseBody =
-                  MAPPER.readValue(
-                      Objects.requireNonNull(getUserResponse.body()).string(), User.class);
+          try (final var getUserResponse = client.get(userUrl)) {
+            assertEquals(404, getUserResponse.code());
+          }
+        });
 
-              assertEquals(readUserResponseBody.id(), createUserResponseBody.id());
-              assertEquals(readUserResponseBody.username(), createUserResponseBody.username());
-              assertEquals(readUserResponseBody.email(), createUserResponseBody.email());
-            }
+    // Every request above was handed over to the database executor, which rejected none of them
+    final var completed =
+        application.meterRegistry.get("database.executor.completed").functionCounter();
+    Awaitility.await().until(() -> completed.count() == 5);
+    assertEquals(0, application.meterRegistry.get("database.executor.rejected").counter().count());
+  }
+
+  @Test
+  void createUserWithAdmissionControlHappyPath() throws Exception {
+    restartApplication(Map.of("admission.read-write.enabled", "true"));
+
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+
+          try (final var getUserResponse =
+              client.get("/users/%s".formatted(createUserResponseBody.id()))) {
+            assertEquals(200, getUserResponse.code());
+          }
+
+          try (final var metricsResponse = client.get("/metrics")) {
+            final var metrics = Objects.requireNonNull(metricsResponse.body()).string();
+            assertTrue(metrics.contains("admission_limit{"));
+            assertTrue(metrics.contains("admission_in_flight{"));
+            assertTrue(metrics.contains("admission_rejected_total{"));
           }
         });
+
+    // Connections are admitted while borrowed and released once given back
+    final var inFlight =
+        application.meterRegistry.get("admission.in.flight").tag("pool", "read-write").gauge();
+    application.readWriteDsl.connection(connection -> assertEquals(1, inFlight.value()));
+    assertEquals(0, inFlight.value());
+    assertEquals(
+        0,
+        application
+            .meterRegistry
+            .get("admission.rejected")
+            .tag("pool", "read-write")
+            .counter()
+            .count());
   }
 
   @Test
-  void getAllUsersHappyPath() {
+  void createUserCoalescedRejectedByAdmissionControl() throws Exception {
+    restartApplication(
+        Map.of(
+            "admission.read-write.enabled", "true",
+            "admission.read-write.initial-limit", "1",
+            "admission.read-write.min-limit", "1",
+            "admission.read-write.max-limit", "1",
+            "coalescing.create-user.enabled", "true"));
+
     JavalinTest.test(
         application.javalin,
         (server, client) -> {
@@ -124,34 +292,40 @@ class ApplicationTest extends AbstractDatabaseTest {
                   "password" + System.currentTimeMillis(),
                   "email" + System.currentTimeMillis() + "@email.com");
 
+          // Holding the only connection admitted, so that the coalescer is rejected
+          application.readWriteDsl.connection(
+              connection -> {
+                try (final var createUserResponse = client.post("/users", request)) {
+                  assertEquals(503, createUserResponse.code());
+                  assertNotNull(createUserResponse.header(Header.RETRY_AFTER));
+                }
+              });
+
           try (final var createUserResponse = client.post("/users", request)) {
             assertEquals(200, createUserResponse.code());
+          }
+        });
+  }
 
-            final var createUserResponseBody =
-                MAPPER.readValue(
-                    Objects.requireNonNull(createUserResponse.body()).string(), User.class);
-            assertEquals(1, count(USERS, USERS.ID.eq(createUserResponseBody.id())));
-
-            try (final var getAllUsersResponse = client.get("/users")) {
-              assertEquals(200, getAllUsersResponse.code());
-
-              final var readAllUsersResponseBody =
-                  MAPPER.readValue(
-                      Objects.requireNonNull(getAllUsersResponse.body()).string(), User[].class);
+  @Test
+  void metricsExposeConnectionPools() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          try (final var metricsResponse = client.get("/metrics")) {
+            assertEquals(200, metricsResponse.code());
 
-              assertEquals(1, readAllUsersResponseBody.length);
-              assertEquals(createUserResponseBody.id(), readAllUsersResponseBody[0].id());
-              assertEquals(
-                  createUserResponseBody.username(), readAllUsersResponseBody[0].username());
-              assertEquals(createUserResponseBody.email(), readAllUsersResponseBody[0].email());
-            }
+            final var metrics = Objects.requireNonNull(metricsResponse.body()).string();
+            assertTrue(metrics.contains("hikaricp_connections_active{"));
+            assertTrue(metrics.contains("pool=\"read-write\""));
+            assertTrue(metrics.contains("pool=\"read-only\""));
           }
         });
   }
 
   @Test
-  void updateAccountTest() {
-    final var mapper = new ObjectMapper();
+  void readYourWritesHappyPath() throws Exception {
+    restartApplication(Map.of("database.replication.read-your-writes", "true"));
 
     JavalinTest.test(
         application.javalin,
@@ -164,46 +338,365 @@ class ApplicationTest extends AbstractDatabaseTest {
 
           try (final var createUserResponse = client.post("/users", request)) {
             assertEquals(200, createUserResponse.code());
+            assertNotNull(createUserResponse.header(ReadYourWrites.HEADER));
+            assertTrue(
+                Objects.requireNonNull(createUserResponse.header(Header.SET_COOKIE))
+                    .contains("Max-Age=10"));
 
             final var createUserResponseBody =
                 MAPPER.readValue(
                     Objects.requireNonNull(createUserResponse.body()).string(), User.class);
-            assertEquals(1, count(USERS, USERS.ID.eq(createUserResponseBody.id())));
-
-            final var databaseRecord =
-                fetchOptional(USERS, USERS.ID.eq(createUserResponseBody.id()));
-            assertTrue(databaseRecord.isPresent());
-            final var databaseRecordVersion = databaseRecord.get().getVersion();
+            final var userUrl = "/users/%s".formatted(createUserResponseBody.id());
 
             final var updateRequest =
                 new UpdateUser.UpdateUserRequest(
-                    Optional.of("user" + System.currentTimeMillis()),
+                    Optional.of("updated" + System.currentTimeMillis()),
                     Optional.empty(),
                     Optional.empty());
 
-            try (final var updateUserResponse =
-                client.put("/users/%s".formatted(createUserResponseBody.id()), updateRequest)) {
+            try (final var updateUserResponse = client.put(userUrl, updateRequest)) {
               assertEquals(200, updateUserResponse.code());
 
-              final var updateUserResponseBody =
-                  MAPPER.readValue(
-                      Objects.requireNonNull(updateUserResponse.body()).string(), User.class);
+              final var token = updateUserResponse.header(ReadYourWrites.HEADER);
+              assertNotNull(token);
 
-              assertEquals(updateUserResponseBody.id(), createUserResponseBody.id());
-              assertEquals(updateUserResponseBody.username(), updateRequest.username().get());
-              assertEquals(updateUserResponseBody.email(), createUserResponseBody.email());
+              try (final var getUserResponse =
+                  client.get(userUrl, builder -> builder.header(ReadYourWrites.HEADER, token))) {
+                assertEquals(200, getUserResponse.code());
 
-              final var updatedRecord =
-                  fetchOptional(USERS, USERS.ID.eq(createUserResponseBody.id()));
-              assertTrue(updatedRecord.isPresent());
-              assertEquals(updatedRecord.get().getVersion(), databaseRecordVersion + 1);
+                final var getUserResponseBody =
+                    MAPPER.readValue(
+                        Objects.requireNonNull(getUserResponse.body()).string(), User.class);
+                assertEquals(updateRequest.username().get(), getUserResponseBody.username());
+              }
+            }
+
+            try (final var getUserResponse =
+                client.get(userUrl, builder -> builder.header(ReadYourWrites.HEADER, "nope"))) {
+              assertEquals(400, getUserResponse.code());
             }
           }
         });
   }
 
   @Test
-  void deleteAccountTest() {
+  void outboxRecordsNothingUnlessRelayed() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+          assertEquals(0, count(OUTBOX, OUTBOX.AGGREGATE_ID.eq(createUserResponseBody.id())));
+        });
+  }
+
+  @Test
+  void outboxRelaysUserChanges() throws Exception {
+    final var outboxFile = Files.createTempFile("outbox", ".ndjson");
+    restartApplication(
+        Map.of(
+            "outbox.enabled", "true",
+            "outbox.sink", "file",
+            "outbox.path", outboxFile.toString(),
+            "outbox.poll-interval", "PT0.01S"));
+
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+          final var userUrl = "/users/%s".formatted(createUserResponseBody.id());
+
+          final var updateRequest =
+              new UpdateUser.UpdateUserRequest(
+                  Optional.of("updated" + System.currentTimeMillis()),
+                  Optional.empty(),
+                  Optional.empty());
+
+          try (final var updateUserResponse = client.put(userUrl, updateRequest)) {
+            assertEquals(200, updateUserResponse.code());
+          }
+
+          try (final var deleteUserResponse = client.delete(userUrl)) {
+            assertEquals(200, deleteUserResponse.code());
+          }
+
+          Awaitility.await().until(() -> Files.readAllLines(outboxFile).size() == 3);
+
+          final var events = new ArrayList<JsonNode>();
+          for (String line : Files.readAllLines(outboxFile)) {
+            events.add(MAPPER.readTree(line));
+          }
+
+          assertEquals(
+              List.of("UserCreated", "UserUpdated", "UserDeleted"),
+              events.stream().map(event -> event.get("eventType").asText()).toList());
+
+          for (JsonNode event : events) {
+            assertEquals("users", event.get("aggregateType").asText());
+            assertEquals(createUserResponseBody.id().toString(), event.get("aggregateId").asText());
+            assertFalse(event.get("payload").has("password"));
+          }
+
+          assertEquals(
+              updateRequest.username().get(),
+              events.get(1).get("payload").get("username").asText());
+        });
+
+    Files.deleteIfExists(outboxFile);
+  }
+
+  @Test
+  void outboxRecordsChangesOfEveryClient() throws Exception {
+    final var outboxFile = Files.createTempFile("outbox", ".ndjson");
+    restartApplication(
+        Map.of(
+            "outbox.enabled", "true",
+            "outbox.sink", "file",
+            "outbox.path", outboxFile.toString(),
+            "outbox.poll-interval", "PT0.01S"));
+
+    // Written by another client than the application
+    final var id = UUID.randomUUID();
+    insert(
+        new UsersRecord(
+            id,
+            0,
+            LocalDateTime.now(),
+            "user" + System.currentTimeMillis(),
+            "password" + System.currentTimeMillis(),
+            "email" + System.currentTimeMillis() + "@email.com"));
+
+    Awaitility.await().until(() -> Files.readAllLines(outboxFile).size() == 1);
+
+    final var event = MAPPER.readTree(Files.readAllLines(outboxFile).get(0));
+    assertEquals("UserCreated", event.get("eventType").asText());
+    assertEquals(id.toString(), event.get("aggregateId").asText());
+
+    Files.deleteIfExists(outboxFile);
+  }
+
+  @Test
+  void usersProjectionHappyPath() throws Exception {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          createUser(client);
+        });
+
+    // User created before the projection was enabled is picked up by the rebuild
+    restartApplication(
+        Map.of(
+            "outbox.enabled", "true",
+            "projection.users.enabled", "true",
+            "projection.users.rebuild-on-start", "true",
+            "outbox.poll-interval", "PT0.01S"));
+    assertEquals(1, count(USERS_VIEW, USERS_VIEW.DELETED.isFalse()));
+
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client, "projected");
+          final var userUrl = "/users/%s".formatted(createUserResponseBody.id());
+
+          Awaitility.await()
+              .until(() -> count(USERS_VIEW, USERS_VIEW.ID.eq(createUserResponseBody.id())) == 1);
+
+          try (final var getAllUsersResponse = client.get("/users")) {
+            assertEquals(200, getAllUsersResponse.code());
+
+            final var readAllUsersResponseBody =
+                MAPPER.readValue(
+                    Objects.requireNonNull(getAllUsersResponse.body()).string(), UsersPage.class);
+
+            assertEquals(2, readAllUsersResponseBody.users().size());
+            assertTrue(readAllUsersResponseBody.users().contains(createUserResponseBody));
+          }
+
+          try (final var deleteUserResponse = client.delete(userUrl)) {
+            assertEquals(200, deleteUserResponse.code());
+          }
+
+          // Deleted user is kept as a tombstone, but is not served anymore
+          Awaitility.await()
+              .until(
+                  () ->
+                      count(
+                              USERS_VIEW,
+                              USERS_VIEW
+                                  .ID
+                                  .eq(createUserResponseBody.id())
+                                  .and(USERS_VIEW.DELETED.isTrue()))
+                          == 1);
+
+          try (final var getUsersByIdsResponse =
+              client.get("/users?ids=%s".formatted(createUserResponseBody.id()))) {
+            assertEquals(200, getUsersByIdsResponse.code());
+
+            final var lookup =
+                MAPPER.readValue(
+                    Objects.requireNonNull(getUsersByIdsResponse.body()).string(),
+                    UsersLookup.class);
+
+            assertEquals(1, lookup.users().size());
+            assertFalse(lookup.users().get(0).found());
+          }
+        });
+  }
+
+  @Test
+  void usersProjectionPurgesTombstones() throws Exception {
+    restartApplication(
+        Map.of(
+            "outbox.enabled", "true",
+            "projection.users.enabled", "true",
+            "projection.users.tombstone-retention", "PT0.1S",
+            "projection.users.purge-interval", "PT0.05S",
+            "outbox.poll-interval", "PT0.01S"));
+
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client, "purged");
+
+          Awaitility.await()
+              .until(() -> count(USERS_VIEW, USERS_VIEW.ID.eq(createUserResponseBody.id())) == 1);
+
+          try (final var deleteUserResponse =
+              client.delete("/users/%s".formatted(createUserResponseBody.id()))) {
+            assertEquals(200, deleteUserResponse.code());
+          }
+
+          // Tombstone is removed altogether once it is past its retention
+          Awaitility.await()
+              .until(() -> count(USERS_VIEW, USERS_VIEW.ID.eq(createUserResponseBody.id())) == 0);
+        });
+  }
+
+  @Test
+  void inMemoryUsersHappyPath() throws Exception {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          createUser(client);
+        });
+
+    // User created before is loaded on start
+    restartApplication(Map.of("in-memory.users.enabled", "true"));
+
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          try (final var getAllUsersResponse = client.get("/users")) {
+            assertEquals(200, getAllUsersResponse.code());
+
+            final var readAllUsersResponseBody =
+                MAPPER.readValue(
+                    Objects.requireNonNull(getAllUsersResponse.body()).string(), UsersPage.class);
+            assertEquals(1, readAllUsersResponseBody.users().size());
+          }
+
+          final var createUserResponseBody = createUser(client, "notified");
+          final var userUrl = "/users/%s".formatted(createUserResponseBody.id());
+
+          // Own writes are visible right away, before the change is notified
+          try (final var getUserResponse = client.get(userUrl)) {
+            assertEquals(200, getUserResponse.code());
+          }
+
+          // Pages are served from memory only, which is notified of the change asynchronously
+          Awaitility.await()
+              .until(
+                  () -> {
+                    try (final var getAllUsersResponse = client.get("/users")) {
+                      return MAPPER
+                              .readValue(
+                                  Objects.requireNonNull(getAllUsersResponse.body()).string(),
+                                  UsersPage.class)
+                              .users()
+                              .size()
+                          == 2;
+                    }
+                  });
+
+          final var updateRequest =
+              new UpdateUser.UpdateUserRequest(
+                  Optional.of("updated" + System.currentTimeMillis()),
+                  Optional.empty(),
+                  Optional.empty());
+
+          final String updatedEtag;
+          try (final var updateUserResponse = client.put(userUrl, updateRequest)) {
+            assertEquals(200, updateUserResponse.code());
+            updatedEtag = updateUserResponse.header(Header.ETAG);
+          }
+
+          try (final var getUserResponse = client.get(userUrl)) {
+            assertEquals(200, getUserResponse.code());
+            assertEquals(updatedEtag, getUserResponse.header(Header.ETAG));
+
+            final var user =
+                MAPPER.readValue(
+                    Objects.requireNonNull(getUserResponse.body()).string(), User.class);
+            assertEquals(updateRequest.username().get(), user.username());
+          }
+
+          try (final var deleteUserResponse = client.delete(userUrl)) {
+            assertEquals(200, deleteUserResponse.code());
+          }
+
+          try (final var getUserResponse = client.get(userUrl)) {
+            assertEquals(404, getUserResponse.code());
+          }
+        });
+  }
+
+  @Test
+  void createUserCoalescedHappyPath() throws Exception {
+    restartApplication(
+        Map.of(
+            "coalescing.create-user.enabled", "true",
+            "coalescing.create-user.max-batch-size", "8",
+            "coalescing.create-user.max-delay", "PT0.05S"));
+
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var responses =
+              IntStream.range(0, 20)
+                  .mapToObj(
+                      i ->
+                          CompletableFuture.supplyAsync(
+                              () -> {
+                                final var request =
+                                    new CreateUser.CreateUserRequest(
+                                        "user" + i, "password" + i, "email" + i + "@email.com");
+
+                                try (final var createUserResponse =
+                                    client.post("/users", request)) {
+                                  assertEquals(200, createUserResponse.code());
+
+                                  return MAPPER.readValue(
+                                      Objects.requireNonNull(createUserResponse.body()).string(),
+                                      User.class);
+                                } catch (Exception e) {
+                                  throw new IllegalStateException(e);
+                                }
+                              }))
+                  .toList();
+
+          final var users = responses.stream().map(CompletableFuture::join).toList();
+
+          assertEquals(20, users.stream().map(User::id).distinct().count());
+          for (User user : users) {
+            final var existingUser = fetchOptional(USERS, USERS.ID.eq(user.id()));
+            assertTrue(existingUser.isPresent());
+            assertEquals(user.username(), existingUser.get().getUsername());
+            assertEquals(user.email(), existingUser.get().getEmail());
+          }
+        });
+  }
+
+  @Test
+  void readYourWritesDisabledByDefault() {
     JavalinTest.test(
         application.javalin,
         (server, client) -> {
@@ -215,18 +708,838 @@ class ApplicationTest extends AbstractDatabaseTest {
 
           try (final var createUserResponse = client.post("/users", request)) {
             assertEquals(200, createUserResponse.code());
+            assertNull(createUserResponse.header(ReadYourWrites.HEADER));
+            assertNull(createUserResponse.header(Header.SET_COOKIE));
+          }
+        });
+  }
 
-            final var createUserResponseBody =
+  @Test
+  void getUserHappyPath() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+          assertEquals(1, count(USERS, USERS.ID.eq(createUserResponseBody.id())));
+
+          try (final var getUserResponse =
+              client.get("/users/%s".formatted(createUserResponseBody.id()))) {
+            assertEquals(200, getUserResponse.code());
+
+            final var readUserResponseBody =
                 MAPPER.readValue(
-                    Objects.requireNonNull(createUserResponse.body()).string(), User.class);
-            assertEquals(1, count(USERS, USERS.ID.eq(createUserResponseBody.id())));
+                    Objects.requireNonNull(getUserResponse.body()).string(), User.class);
 
-            try (final var deleteUserResponse =
-                client.delete("/users/%s".formatted(createUserResponseBody.id()))) {
-              assertEquals(200, deleteUserResponse.code());
+            assertEquals(readUserResponseBody.id(), createUserResponseBody.id());
+            assertEquals(readUserResponseBody.username(), createUserResponseBody.username());
+            assertEquals(readUserResponseBody.email(), createUserResponseBody.email());
+          }
+        });
+  }
 
-              assertEquals(0, count(USERS, USERS.ID.eq(createUserResponseBody.id())));
-            }
+  @Test
+  void getUserBatchedHappyPath() throws Exception {
+    restartApplication(
+        Map.of(
+            "coalescing.get-user.enabled", "true",
+            "coalescing.get-user.max-batch-size", "4",
+            "coalescing.get-user.max-delay", "PT0.05S",
+            // Users are cached on creation, so reads must not hit the cache to reach the loader
+            "cache.users.expire-after-write", "PT0.000001S"));
+
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createdUsers = new ArrayList<User>();
+
+          for (int i = 0; i < 6; i++) {
+            createdUsers.add(createUser(client));
+          }
+
+          // Every user is requested twice to let concurrent lookups of the same ID meet
+          final var expectedUsers = new ArrayList<>(createdUsers);
+          expectedUsers.addAll(createdUsers);
+
+          final var responses =
+              expectedUsers.stream()
+                  .map(
+                      expectedUser ->
+                          CompletableFuture.supplyAsync(
+                              () -> {
+                                try (final var getUserResponse =
+                                    client.get("/users/%s".formatted(expectedUser.id()))) {
+                                  assertEquals(200, getUserResponse.code());
+
+                                  return MAPPER.readValue(
+                                      Objects.requireNonNull(getUserResponse.body()).string(),
+                                      User.class);
+                                } catch (Exception e) {
+                                  throw new IllegalStateException(e);
+                                }
+                              }))
+                  .toList();
+
+          for (int i = 0; i < expectedUsers.size(); i++) {
+            assertEquals(expectedUsers.get(i), responses.get(i).join());
+          }
+
+          try (final var getUserResponse = client.get("/users/%s".formatted(UUID.randomUUID()))) {
+            assertEquals(404, getUserResponse.code());
+          }
+        });
+  }
+
+  @Test
+  void getUserConditionalRequest() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+          final var userUrl = "/users/%s".formatted(createUserResponseBody.id());
+
+          final String etag;
+          try (final var getUserResponse = client.get(userUrl)) {
+            assertEquals(200, getUserResponse.code());
+
+            etag = getUserResponse.header(Header.ETAG);
+            assertNotNull(etag);
+          }
+
+          try (final var getUserResponse =
+              client.get(userUrl, builder -> builder.header(Header.IF_NONE_MATCH, etag))) {
+            assertEquals(304, getUserResponse.code());
+            assertEquals(etag, getUserResponse.header(Header.ETAG));
+          }
+
+          final var updateRequest =
+              new UpdateUser.UpdateUserRequest(
+                  Optional.of("updated" + System.currentTimeMillis()),
+                  Optional.empty(),
+                  Optional.empty());
+
+          try (final var updateUserResponse = client.put(userUrl, updateRequest)) {
+            assertEquals(200, updateUserResponse.code());
+          }
+
+          try (final var getUserResponse =
+              client.get(userUrl, builder -> builder.header(Header.IF_NONE_MATCH, etag))) {
+            assertEquals(200, getUserResponse.code());
+            assertNotEquals(etag, getUserResponse.header(Header.ETAG));
+          }
+        });
+  }
+
+  @Test
+  void getAllUsersHappyPath() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+          assertEquals(1, count(USERS, USERS.ID.eq(createUserResponseBody.id())));
+
+          try (final var getAllUsersResponse = client.get("/users")) {
+            assertEquals(200, getAllUsersResponse.code());
+
+            final var readAllUsersResponseBody =
+                MAPPER.readValue(
+                    Objects.requireNonNull(getAllUsersResponse.body()).string(), UsersPage.class);
+
+            assertEquals(1, readAllUsersResponseBody.users().size());
+            assertNull(readAllUsersResponseBody.next());
+
+            final var readUser = readAllUsersResponseBody.users().get(0);
+            assertEquals(createUserResponseBody.id(), readUser.id());
+            assertEquals(createUserResponseBody.username(), readUser.username());
+            assertEquals(createUserResponseBody.email(), readUser.email());
+          }
+        });
+  }
+
+  @Test
+  void getAllUsersPagination() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createdUserIds = new HashSet<UUID>();
+
+          for (int i = 0; i < 5; i++) {
+            createdUserIds.add(createUser(client).id());
+          }
+
+          final var readUserIds = new HashSet<UUID>();
+          String next = null;
+          int pages = 0;
+
+          do {
+            final var url = next == null ? "/users?limit=2" : "/users?limit=2&after=" + next;
+
+            try (final var getAllUsersResponse = client.get(url)) {
+              assertEquals(200, getAllUsersResponse.code());
+
+              final var page =
+                  MAPPER.readValue(
+                      Objects.requireNonNull(getAllUsersResponse.body()).string(), UsersPage.class);
+
+              assertTrue(page.users().size() <= 2);
+              page.users().forEach(user -> assertTrue(readUserIds.add(user.id())));
+              next = page.next();
+              pages++;
+            }
+          } while (next != null);
+
+          assertEquals(3, pages);
+          assertEquals(createdUserIds, readUserIds);
+        });
+  }
+
+  @Test
+  void searchUsersHappyPath() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          // Letters only, so that the query is not similar to any other user
+          final var fragment =
+              ThreadLocalRandom.current()
+                  .ints(12, 'a', 'z' + 1)
+                  .collect(
+                      StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+                  .toString();
+          final var createdUsers = new ArrayList<User>();
+
+          for (String username : List.of("x" + fragment, fragment + "a", fragment + "b")) {
+            final var request =
+                new CreateUser.CreateUserRequest(
+                    username, "password" + System.currentTimeMillis(), username + "@email.com");
+
+            try (final var createUserResponse = client.post("/users", request)) {
+              assertEquals(200, createUserResponse.code());
+
+              createdUsers.add(
+                  MAPPER.readValue(
+                      Objects.requireNonNull(createUserResponse.body()).string(), User.class));
+            }
+          }
+
+          final var foundUsers = new ArrayList<User>();
+          String next = null;
+          int pages = 0;
+
+          do {
+            final var url =
+                next == null
+                    ? "/users/search?limit=2&q=" + fragment
+                    : "/users/search?limit=2&q=" + fragment + "&after=" + next;
+
+            try (final var searchUsersResponse = client.get(url)) {
+              assertEquals(200, searchUsersResponse.code());
+
+              final var page =
+                  MAPPER.readValue(
+                      Objects.requireNonNull(searchUsersResponse.body()).string(), UsersPage.class);
+
+              assertTrue(page.users().size() <= 2);
+              foundUsers.addAll(page.users());
+              next = page.next();
+              pages++;
+            }
+          } while (next != null);
+
+          assertEquals(2, pages);
+          assertEquals(new HashSet<>(createdUsers), new HashSet<>(foundUsers));
+
+          // Users starting with the query rank above the ones merely containing it
+          assertEquals(createdUsers.getFirst(), foundUsers.getLast());
+
+          try (final var searchUsersResponse = client.get("/users/search?q=nothingsimilar")) {
+            assertEquals(200, searchUsersResponse.code());
+
+            final var page =
+                MAPPER.readValue(
+                    Objects.requireNonNull(searchUsersResponse.body()).string(), UsersPage.class);
+            assertTrue(page.users().isEmpty());
+            assertNull(page.next());
+          }
+        });
+  }
+
+  @Test
+  void searchUsersRanksOnlyFirstMatches() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var fragment =
+              ThreadLocalRandom.current()
+                  .ints(12, 'a', 'z' + 1)
+                  .collect(
+                      StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+                  .toString();
+
+          // More users share the fragment than the search is willing to rank
+          for (int batch = 0; batch < 2; batch++) {
+            final var creates = new ArrayList<CreateUser.CreateUserRequest>();
+
+            for (int i = 0; i < SearchUsers.MAX_RESULTS * 3 / 5; i++) {
+              final var username = "user" + batch + "x" + i + fragment;
+              creates.add(
+                  new CreateUser.CreateUserRequest(
+                      username, "password" + System.currentTimeMillis(), username + "@email.com"));
+            }
+
+            try (final var batchResponse =
+                client.post(
+                    "/users:batch",
+                    new BatchUsers.BatchUsersRequest(creates, List.of(), List.of()))) {
+              assertEquals(200, batchResponse.code());
+            }
+          }
+
+          final var foundUserIds = new HashSet<UUID>();
+          String next = null;
+
+          do {
+            final var url =
+                next == null
+                    ? "/users/search?limit=" + SearchUsers.MAX_LIMIT + "&q=" + fragment
+                    : "/users/search?limit="
+                        + SearchUsers.MAX_LIMIT
+                        + "&q="
+                        + fragment
+                        + "&after="
+                        + next;
+
+            try (final var searchUsersResponse = client.get(url)) {
+              assertEquals(200, searchUsersResponse.code());
+
+              final var page =
+                  MAPPER.readValue(
+                      Objects.requireNonNull(searchUsersResponse.body()).string(), UsersPage.class);
+
+              page.users()
+                  .forEach(
+                      user -> {
+                        assertTrue(user.username().contains(fragment));
+                        assertTrue(foundUserIds.add(user.id()));
+                      });
+              next = page.next();
+            }
+          } while (next != null);
+
+          assertEquals(SearchUsers.MAX_RESULTS, foundUserIds.size());
+        });
+  }
+
+  @Test
+  void invalidInputIsRejected() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          for (String url :
+              List.of(
+                  "/users?limit=0",
+                  "/users?limit=" + (GetAllUsers.MAX_LIMIT + 1),
+                  "/users?after=nope",
+                  "/users?ids=",
+                  "/users?ids=nope",
+                  "/users/export?format=xml",
+                  "/users/search?q=ab",
+                  "/users/search?q=abc&limit=0",
+                  "/users/search?q=abc&after=nope")) {
+            try (final var response = client.get(url)) {
+              assertEquals(400, response.code(), url);
+            }
+          }
+        });
+  }
+
+  @Test
+  void getUsersByIdsHappyPath() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createdUsers = new ArrayList<User>();
+
+          for (int i = 0; i < 2; i++) {
+            createdUsers.add(createUser(client));
+          }
+
+          final var missingId = UUID.randomUUID();
+          final var url =
+              "/users?ids=%s,%s,%s"
+                  .formatted(createdUsers.get(1).id(), missingId, createdUsers.get(0).id());
+
+          try (final var getUsersByIdsResponse = client.get(url)) {
+            assertEquals(200, getUsersByIdsResponse.code());
+
+            final var lookup =
+                MAPPER.readValue(
+                    Objects.requireNonNull(getUsersByIdsResponse.body()).string(),
+                    UsersLookup.class);
+
+            assertEquals(3, lookup.users().size());
+
+            assertEquals(createdUsers.get(1).id(), lookup.users().get(0).id());
+            assertTrue(lookup.users().get(0).found());
+            assertEquals(createdUsers.get(1), lookup.users().get(0).user());
+
+            assertEquals(missingId, lookup.users().get(1).id());
+            assertFalse(lookup.users().get(1).found());
+            assertNull(lookup.users().get(1).user());
+
+            assertEquals(createdUsers.get(0).id(), lookup.users().get(2).id());
+            assertTrue(lookup.users().get(2).found());
+            assertEquals(createdUsers.get(0), lookup.users().get(2).user());
+          }
+        });
+  }
+
+  @Test
+  void exportUsersHappyPath() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createdUserIds = new HashSet<UUID>();
+
+          for (int i = 0; i < 3; i++) {
+            createdUserIds.add(createUser(client).id());
+          }
+
+          try (final var exportUsersResponse = client.get("/users/export")) {
+            assertEquals(200, exportUsersResponse.code());
+
+            final var exportedUsers =
+                MAPPER.readValue(
+                    Objects.requireNonNull(exportUsersResponse.body()).string(), User[].class);
+
+            assertEquals(
+                createdUserIds,
+                Arrays.stream(exportedUsers).map(User::id).collect(Collectors.toSet()));
+          }
+
+          try (final var exportUsersResponse = client.get("/users/export?format=ndjson")) {
+            assertEquals(200, exportUsersResponse.code());
+
+            final var exportedUserIds = new HashSet<UUID>();
+            for (String line :
+                Objects.requireNonNull(exportUsersResponse.body()).string().split("\n")) {
+              exportedUserIds.add(MAPPER.readValue(line, User.class).id());
+            }
+
+            assertEquals(createdUserIds, exportedUserIds);
+          }
+        });
+  }
+
+  @Test
+  void updateAccountTest() {
+    final var mapper = new ObjectMapper();
+
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+          assertEquals(1, count(USERS, USERS.ID.eq(createUserResponseBody.id())));
+
+          final var databaseRecord = fetchOptional(USERS, USERS.ID.eq(createUserResponseBody.id()));
+          assertTrue(databaseRecord.isPresent());
+          final var databaseRecordVersion = databaseRecord.get().getVersion();
+
+          final var updateRequest =
+              new UpdateUser.UpdateUserRequest(
+                  Optional.of("user" + System.currentTimeMillis()),
+                  Optional.empty(),
+                  Optional.empty());
+
+          try (final var updateUserResponse =
+              client.put("/users/%s".formatted(createUserResponseBody.id()), updateRequest)) {
+            assertEquals(200, updateUserResponse.code());
+
+            final var updateUserResponseBody =
+                MAPPER.readValue(
+                    Objects.requireNonNull(updateUserResponse.body()).string(), User.class);
+
+            assertEquals(updateUserResponseBody.id(), createUserResponseBody.id());
+            assertEquals(updateUserResponseBody.username(), updateRequest.username().get());
+            assertEquals(updateUserResponseBody.email(), createUserResponseBody.email());
+
+            final var updatedRecord =
+                fetchOptional(USERS, USERS.ID.eq(createUserResponseBody.id()));
+            assertTrue(updatedRecord.isPresent());
+            assertEquals(updatedRecord.get().getVersion(), databaseRecordVersion + 1);
+          }
+        });
+  }
+
+  @Test
+  void getUserReflectsUpdatesAndDeletes() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+          final var userUrl = "/users/%s".formatted(createUserResponseBody.id());
+
+          try (final var getUserResponse = client.get(userUrl)) {
+            assertEquals(200, getUserResponse.code());
+          }
+
+          final var updateRequest =
+              new UpdateUser.UpdateUserRequest(
+                  Optional.of("updated" + System.currentTimeMillis()),
+                  Optional.empty(),
+                  Optional.empty());
+
+          try (final var updateUserResponse = client.put(userUrl, updateRequest)) {
+            assertEquals(200, updateUserResponse.code());
+          }
+
+          try (final var getUserResponse = client.get(userUrl)) {
+            assertEquals(200, getUserResponse.code());
+
+            final var readUserResponseBody =
+                MAPPER.readValue(
+                    Objects.requireNonNull(getUserResponse.body()).string(), User.class);
+            assertEquals(updateRequest.username().get(), readUserResponseBody.username());
+          }
+
+          try (final var deleteUserResponse = client.delete(userUrl)) {
+            assertEquals(200, deleteUserResponse.code());
+          }
+
+          try (final var getUserResponse = client.get(userUrl)) {
+            assertEquals(404, getUserResponse.code());
+          }
+        });
+  }
+
+  @Test
+  void updateUserConditionalRequest() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var request =
+              new CreateUser.CreateUserRequest(
+                  "user" + System.currentTimeMillis(),
+                  "password" + System.currentTimeMillis(),
+                  "email" + System.currentTimeMillis() + "@email.com");
+
+          try (final var createUserResponse = client.post("/users", request)) {
+            assertEquals(200, createUserResponse.code());
+
+            final var createdEtag = createUserResponse.header(Header.ETAG);
+            assertNotNull(createdEtag);
+
+            final var createUserResponseBody =
+                MAPPER.readValue(
+                    Objects.requireNonNull(createUserResponse.body()).string(), User.class);
+            final var userUrl = "/users/%s".formatted(createUserResponseBody.id());
+
+            final var updateRequest =
+                new UpdateUser.UpdateUserRequest(
+                    Optional.of("updated" + System.currentTimeMillis()),
+                    Optional.empty(),
+                    Optional.empty());
+
+            try (final var updateUserResponse =
+                client.put(
+                    userUrl,
+                    updateRequest,
+                    builder ->
+                        builder.header(
+                            Header.IF_MATCH, "\"%s-42\"".formatted(createUserResponseBody.id())))) {
+              assertEquals(412, updateUserResponse.code());
+            }
+
+            final String updatedEtag;
+            try (final var updateUserResponse =
+                client.put(
+                    userUrl,
+                    updateRequest,
+                    builder -> builder.header(Header.IF_MATCH, createdEtag))) {
+              assertEquals(200, updateUserResponse.code());
+
+              updatedEtag = updateUserResponse.header(Header.ETAG);
+              assertNotEquals(createdEtag, updatedEtag);
+            }
+
+            try (final var updateUserResponse =
+                client.put(
+                    userUrl,
+                    updateRequest,
+                    builder -> builder.header(Header.IF_MATCH, createdEtag))) {
+              assertEquals(412, updateUserResponse.code());
+            }
+
+            try (final var getUserResponse = client.get(userUrl)) {
+              assertEquals(200, getUserResponse.code());
+              assertEquals(updatedEtag, getUserResponse.header(Header.ETAG));
+            }
+          }
+        });
+  }
+
+  @Test
+  void updateUserConditionalRequestLoadingAndStoring() throws Exception {
+    restartApplication(Map.of("commands.update-user.mode", "load-and-store"));
+
+    updateUserConditionalRequest();
+  }
+
+  @Test
+  void updateMissingUser() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var missingId = UUID.randomUUID();
+          final var userUrl = "/users/%s".formatted(missingId);
+          final var updateRequest =
+              new UpdateUser.UpdateUserRequest(
+                  Optional.of("updated" + System.currentTimeMillis()),
+                  Optional.empty(),
+                  Optional.empty());
+
+          try (final var updateUserResponse = client.put(userUrl, updateRequest)) {
+            assertEquals(404, updateUserResponse.code());
+          }
+
+          try (final var updateUserResponse =
+              client.put(
+                  userUrl,
+                  updateRequest,
+                  builder -> builder.header(Header.IF_MATCH, "\"%s-0\"".formatted(missingId)))) {
+            assertEquals(404, updateUserResponse.code());
+          }
+        });
+  }
+
+  @Test
+  void deleteAccountTest() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+          assertEquals(1, count(USERS, USERS.ID.eq(createUserResponseBody.id())));
+
+          try (final var deleteUserResponse =
+              client.delete("/users/%s".formatted(createUserResponseBody.id()))) {
+            assertEquals(200, deleteUserResponse.code());
+
+            assertEquals(0, count(USERS, USERS.ID.eq(createUserResponseBody.id())));
+          }
+        });
+  }
+
+  @Test
+  void deleteUserConditionalRequest() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var request =
+              new CreateUser.CreateUserRequest(
+                  "user" + System.currentTimeMillis(),
+                  "password" + System.currentTimeMillis(),
+                  "email" + System.currentTimeMillis() + "@email.com");
+
+          try (final var createUserResponse = client.post("/users", request)) {
+            assertEquals(200, createUserResponse.code());
+
+            final var createdEtag = createUserResponse.header(Header.ETAG);
+            assertNotNull(createdEtag);
+
+            final var createUserResponseBody =
+                MAPPER.readValue(
+                    Objects.requireNonNull(createUserResponse.body()).string(), User.class);
+            final var userUrl = "/users/%s".formatted(createUserResponseBody.id());
+
+            try (final var deleteUserResponse =
+                client.request(
+                    userUrl,
+                    builder ->
+                        builder
+                            .delete()
+                            .header(
+                                Header.IF_MATCH,
+                                "\"%s-42\"".formatted(createUserResponseBody.id())))) {
+              assertEquals(412, deleteUserResponse.code());
+              assertEquals(1, count(USERS, USERS.ID.eq(createUserResponseBody.id())));
+            }
+
+            try (final var deleteUserResponse =
+                client.request(
+                    userUrl, builder -> builder.delete().header(Header.IF_MATCH, createdEtag))) {
+              assertEquals(200, deleteUserResponse.code());
+              assertEquals(0, count(USERS, USERS.ID.eq(createUserResponseBody.id())));
+            }
+
+            try (final var deleteUserResponse =
+                client.request(
+                    userUrl, builder -> builder.delete().header(Header.IF_MATCH, createdEtag))) {
+              assertEquals(404, deleteUserResponse.code());
+            }
+
+            try (final var deleteUserResponse = client.delete(userUrl)) {
+              assertEquals(404, deleteUserResponse.code());
+            }
+          }
+        });
+  }
+
+  @Test
+  void batchUsersHappyPath() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createRequest =
+              new CreateUser.CreateUserRequest(
+                  "user" + System.currentTimeMillis(),
+                  "password" + System.currentTimeMillis(),
+                  "email" + System.currentTimeMillis() + "@email.com");
+
+          final User existingUser;
+          try (final var createUserResponse = client.post("/users", createRequest)) {
+            assertEquals(200, createUserResponse.code());
+
+            existingUser =
+                MAPPER.readValue(
+                    Objects.requireNonNull(createUserResponse.body()).string(), User.class);
+          }
+
+          final var missingId = UUID.randomUUID();
+          final var updatedUsername = "updated" + System.currentTimeMillis();
+          final var batchRequest =
+              new BatchUsers.BatchUsersRequest(
+                  List.of(
+                      new CreateUser.CreateUserRequest(
+                          "first" + System.currentTimeMillis(),
+                          "password" + System.currentTimeMillis(),
+                          "first" + System.currentTimeMillis() + "@email.com"),
+                      new CreateUser.CreateUserRequest(
+                          "second" + System.currentTimeMillis(),
+                          "password" + System.currentTimeMillis(),
+                          "second" + System.currentTimeMillis() + "@email.com")),
+                  List.of(
+                      new BatchUsers.UpdateItem(
+                          existingUser.id(),
+                          Optional.of(0),
+                          new UpdateUser.UpdateUserRequest(
+                              Optional.of(updatedUsername), Optional.empty(), Optional.empty())),
+                      new BatchUsers.UpdateItem(
+                          missingId,
+                          Optional.empty(),
+                          new UpdateUser.UpdateUserRequest(
+                              Optional.of(updatedUsername), Optional.empty(), Optional.empty()))),
+                  List.of());
+
+          try (final var batchResponse = client.post("/users:batch", batchRequest)) {
+            assertEquals(200, batchResponse.code());
+
+            final var batchResponseBody =
+                MAPPER.readValue(
+                    Objects.requireNonNull(batchResponse.body()).string(),
+                    BatchUsersResponse.class);
+
+            assertEquals(2, batchResponseBody.create().size());
+            for (BatchUsersResponse.Item item : batchResponseBody.create()) {
+              assertEquals(200, item.status());
+              assertEquals(1, count(USERS, USERS.ID.eq(item.id())));
+            }
+
+            assertEquals(2, batchResponseBody.update().size());
+            assertEquals(200, batchResponseBody.update().get(0).status());
+            assertEquals(updatedUsername, batchResponseBody.update().get(0).user().username());
+            assertEquals(404, batchResponseBody.update().get(1).status());
+            assertEquals(missingId, batchResponseBody.update().get(1).id());
+          }
+
+          final var staleDeleteRequest =
+              new BatchUsers.BatchUsersRequest(
+                  List.of(),
+                  List.of(),
+                  List.of(new BatchUsers.DeleteItem(existingUser.id(), Optional.of(0))));
+
+          try (final var batchResponse = client.post("/users:batch", staleDeleteRequest)) {
+            assertEquals(200, batchResponse.code());
+
+            final var batchResponseBody =
+                MAPPER.readValue(
+                    Objects.requireNonNull(batchResponse.body()).string(),
+                    BatchUsersResponse.class);
+
+            assertEquals(412, batchResponseBody.delete().get(0).status());
+            assertEquals(1, count(USERS, USERS.ID.eq(existingUser.id())));
+          }
+
+          final var deleteRequest =
+              new BatchUsers.BatchUsersRequest(
+                  List.of(),
+                  List.of(),
+                  List.of(new BatchUsers.DeleteItem(existingUser.id(), Optional.of(1))));
+
+          try (final var batchResponse = client.post("/users:batch", deleteRequest)) {
+            assertEquals(200, batchResponse.code());
+
+            final var batchResponseBody =
+                MAPPER.readValue(
+                    Objects.requireNonNull(batchResponse.body()).string(),
+                    BatchUsersResponse.class);
+
+            assertEquals(200, batchResponseBody.delete().get(0).status());
+            assertEquals(0, count(USERS, USERS.ID.eq(existingUser.id())));
+          }
+
+          try (final var getUserResponse = client.get("/users/%s".formatted(existingUser.id()))) {
+            assertEquals(404, getUserResponse.code());
+          }
+        });
+  }
+
+  @Test
+  void getUserByEmailAndUsernameHappyPath() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+
+          for (String lookup :
+              List.of(
+                  "email=" + createUserResponseBody.email(),
+                  "username=" + createUserResponseBody.username())) {
+            try (final var getUsersResponse = client.get("/users?" + lookup)) {
+              assertEquals(200, getUsersResponse.code());
+
+              final var getUsersResponseBody =
+                  MAPPER.readValue(
+                      Objects.requireNonNull(getUsersResponse.body()).string(), UsersPage.class);
+              assertEquals(List.of(createUserResponseBody), getUsersResponseBody.users());
+              assertNull(getUsersResponseBody.next());
+            }
+          }
+
+          try (final var getUsersResponse = client.get("/users?email=missing@email.com")) {
+            assertEquals(200, getUsersResponse.code());
+
+            final var getUsersResponseBody =
+                MAPPER.readValue(
+                    Objects.requireNonNull(getUsersResponse.body()).string(), UsersPage.class);
+            assertTrue(getUsersResponseBody.users().isEmpty());
+          }
+        });
+  }
+
+  @Test
+  void createUserWithTakenEmailConflicts() {
+    JavalinTest.test(
+        application.javalin,
+        (server, client) -> {
+          final var createUserResponseBody = createUser(client);
+
+          final var conflictingRequest =
+              new CreateUser.CreateUserRequest(
+                  "other" + System.currentTimeMillis(),
+                  "password" + System.currentTimeMillis(),
+                  createUserResponseBody.email());
+
+          try (final var createUserResponse = client.post("/users", conflictingRequest)) {
+            assertEquals(409, createUserResponse.code());
+            assertEquals(0, count(USERS, USERS.USERNAME.eq(conflictingRequest.username())));
           }
         });
   }
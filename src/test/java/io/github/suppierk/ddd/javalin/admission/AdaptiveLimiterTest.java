@@ -0,0 +1,189 @@
+package io.github.suppierk.ddd.javalin.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveLimiterTest {
+  SimpleMeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void rejectsBeyondLimit() {
+    final var limiter = limiter(2, 1, 10, Duration.ofMinutes(1));
+
+    final var first = limiter.tryAcquire();
+    final var second = limiter.tryAcquire();
+    assertTrue(first.isPresent());
+    assertTrue(second.isPresent());
+    assertTrue(limiter.tryAcquire().isEmpty());
+
+    assertEquals(2, meterRegistry.get("admission.in.flight").gauge().value());
+    assertEquals(1, meterRegistry.get("admission.rejected").counter().count());
+
+    first.get().release();
+    assertEquals(1, limiter.inFlight());
+    assertTrue(limiter.tryAcquire().isPresent());
+  }
+
+  @Test
+  void increasesLimitAdditivelyWhileFast() {
+    final var limiter = limiter(2, 1, 3, Duration.ofMinutes(1));
+
+    for (int i = 0; i < 5; i++) {
+      final var permits = new ArrayList<AdaptiveLimiter.Permit>();
+      limiter.tryAcquire().ifPresent(permits::add);
+      limiter.tryAcquire().ifPresent(permits::add);
+      permits.forEach(AdaptiveLimiter.Permit::release);
+    }
+
+    assertEquals(3, limiter.limit());
+    assertEquals(3, meterRegistry.get("admission.limit").gauge().value());
+  }
+
+  @Test
+  void decreasesLimitMultiplicativelyOnCongestion() {
+    final var limiter = limiter(10, 2, 10, Duration.ofMinutes(1));
+
+    limiter.tryAcquire().orElseThrow().release(true);
+    assertEquals(9, limiter.limit());
+
+    for (int i = 0; i < 20; i++) {
+      limiter.tryAcquire().orElseThrow().release(true);
+    }
+
+    assertEquals(2, limiter.limit());
+  }
+
+  @Test
+  void decreasesLimitWhenSlow() throws InterruptedException {
+    final var limiter = limiter(10, 1, 10, Duration.ofNanos(1));
+
+    final var permit = limiter.tryAcquire().orElseThrow();
+    Thread.sleep(1);
+    permit.release();
+
+    assertEquals(9, limiter.limit());
+  }
+
+  @Test
+  void releasesPermitOnce() {
+    final var limiter = limiter(2, 1, 2, Duration.ofMinutes(1));
+
+    final var permit = limiter.tryAcquire().orElseThrow();
+    limiter.tryAcquire().orElseThrow();
+    permit.release();
+    permit.release();
+
+    assertEquals(1, limiter.inFlight());
+  }
+
+  @Test
+  void limitedDataSourceReleasesPermitOnClose() throws Exception {
+    final var limiter = limiter(1, 1, 1, Duration.ofMinutes(1));
+    final var closed = new AtomicInteger();
+    final var available = new AtomicBoolean(true);
+    final var connection =
+        proxy(
+            Connection.class,
+            (proxy, method, args) -> {
+              if ("close".equals(method.getName())) {
+                closed.incrementAndGet();
+              }
+
+              return null;
+            });
+    final var dataSource =
+        new LimitedDataSource(
+            "test",
+            proxy(
+                DataSource.class,
+                (proxy, method, args) -> {
+                  if (!available.get()) {
+                    throw new SQLTransientConnectionException("Connection is not available");
+                  }
+
+                  return connection;
+                }),
+            limiter);
+
+    final var borrowed = dataSource.getConnection();
+    assertThrows(AdmissionRejectedException.class, dataSource::getConnection);
+
+    borrowed.close();
+    assertEquals(1, closed.get());
+    assertEquals(0, limiter.inFlight());
+
+    available.set(false);
+    assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+    assertEquals(0, limiter.inFlight());
+  }
+
+  @Test
+  void limitedDataSourceSamplesOnlyExecutionTime() throws Exception {
+    final var limiter = limiter(10, 1, 10, Duration.ofMillis(50));
+    final var executionTime = new AtomicLong();
+    final var statement =
+        proxy(
+            PreparedStatement.class,
+            (proxy, method, args) -> {
+              Thread.sleep(executionTime.get());
+              return null;
+            });
+    final var connection =
+        proxy(
+            Connection.class,
+            (proxy, method, args) ->
+                "prepareStatement".equals(method.getName()) ? statement : null);
+    final var dataSource =
+        new LimitedDataSource(
+            "test", proxy(DataSource.class, (proxy, method, args) -> connection), limiter);
+
+    // Holding the connection for long, e.g. while streaming to a slow client, is not congestion
+    try (final var borrowed = dataSource.getConnection()) {
+      borrowed.prepareStatement("select 1").executeQuery();
+      Thread.sleep(100);
+    }
+    assertEquals(10, limiter.limit());
+
+    executionTime.set(100);
+    try (final var borrowed = dataSource.getConnection()) {
+      borrowed.prepareStatement("select 1").executeQuery();
+    }
+    assertEquals(9, limiter.limit());
+  }
+
+  private static <T> T proxy(Class<T> iface, InvocationHandler handler) {
+    return iface.cast(
+        Proxy.newProxyInstance(
+            AdaptiveLimiterTest.class.getClassLoader(), new Class<?>[] {iface}, handler));
+  }
+
+  private AdaptiveLimiter limiter(
+      int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold) {
+    return new AdaptiveLimiter(
+        "test",
+        new Configuration.Admission(true, initialLimit, minLimit, maxLimit, latencyThreshold),
+        meterRegistry);
+  }
+}
@@ -0,0 +1,105 @@
+package io.github.suppierk.ddd.javalin.async;
+
+import static io.javalin.apibuilder.ApiBuilder.get;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import io.javalin.Javalin;
+import io.javalin.http.Header;
+import io.javalin.testtools.HttpClient;
+import io.javalin.testtools.JavalinTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DatabaseExecutorTest {
+  SimpleMeterRegistry meterRegistry;
+  DatabaseExecutor databaseExecutor;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    databaseExecutor = new DatabaseExecutor(1, 1, meterRegistry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    databaseExecutor.close();
+  }
+
+  @Test
+  void runsHandlerOnExecutorThread() {
+    final var app =
+        Javalin.create(
+            config ->
+                config.router.apiBuilder(
+                    () ->
+                        get(
+                            "/",
+                            databaseExecutor.offload(
+                                ctx -> ctx.result(Thread.currentThread().getName())))));
+
+    JavalinTest.test(
+        app,
+        (server, client) -> {
+          try (final var response = client.get("/")) {
+            assertEquals(200, response.code());
+            assertEquals("database-executor-1", Objects.requireNonNull(response.body()).string());
+          }
+        });
+  }
+
+  @Test
+  void rejectsWhenSaturated() {
+    final var release = new CountDownLatch(1);
+    final var app =
+        Javalin.create(
+            config ->
+                config.router.apiBuilder(
+                    () ->
+                        get(
+                            "/",
+                            databaseExecutor.offload(
+                                ctx -> {
+                                  release.await(10, TimeUnit.SECONDS);
+                                  ctx.result("done");
+                                }))));
+
+    JavalinTest.test(
+        app,
+        (server, client) -> {
+          // One request occupies the only thread, another one the only queue slot
+          final var running = CompletableFuture.supplyAsync(() -> statusOf(client));
+          Awaitility.await().until(() -> gauge("database.executor.active") == 1);
+          final var queued = CompletableFuture.supplyAsync(() -> statusOf(client));
+          Awaitility.await().until(() -> gauge("database.executor.queue.depth") == 1);
+
+          try (final var response = client.get("/")) {
+            assertEquals(503, response.code());
+            assertNotNull(response.header(Header.RETRY_AFTER));
+          }
+
+          assertEquals(1, meterRegistry.get("database.executor.rejected").counter().count());
+
+          release.countDown();
+          assertEquals(200, running.join());
+          assertEquals(200, queued.join());
+        });
+  }
+
+  private static int statusOf(HttpClient client) {
+    try (final var response = client.get("/")) {
+      return response.code();
+    }
+  }
+
+  private double gauge(String name) {
+    return meterRegistry.get(name).gauge().value();
+  }
+}
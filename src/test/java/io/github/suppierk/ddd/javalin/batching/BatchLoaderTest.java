@@ -0,0 +1,121 @@
+package io.github.suppierk.ddd.javalin.batching;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class BatchLoaderTest {
+  @Test
+  void resolvesKeysWithinWindowTogether() {
+    final var batches = new CopyOnWriteArrayList<Set<Integer>>();
+    final var loader = loader(10, Duration.ofMillis(100), batches, BatchLoaderTest::squares);
+
+    final var futures = List.of(loader.load(1), loader.load(2), loader.load(3));
+
+    assertEquals(List.of(1, 4, 9), futures.stream().map(f -> f.join().orElseThrow()).toList());
+    assertEquals(List.of(Set.of(1, 2, 3)), batches);
+  }
+
+  @Test
+  void deduplicatesKeys() {
+    final var batches = new CopyOnWriteArrayList<Set<Integer>>();
+    final var loader = loader(10, Duration.ofMillis(100), batches, BatchLoaderTest::squares);
+
+    final var first = loader.load(7);
+    final var second = loader.load(7);
+
+    assertSame(first, second);
+    assertEquals(49, first.join().orElseThrow());
+    assertEquals(List.of(Set.of(7)), batches);
+  }
+
+  @Test
+  void resolvesFullBatchImmediately() {
+    final var batches = new CopyOnWriteArrayList<Set<Integer>>();
+    final var loader = loader(2, Duration.ofHours(1), batches, BatchLoaderTest::squares);
+
+    final var first = loader.load(1);
+    final var second = loader.load(2);
+
+    assertTrue(first.isDone());
+    assertTrue(second.isDone());
+    assertEquals(List.of(Set.of(1, 2)), batches);
+  }
+
+  @Test
+  void reportsMissingKeysAsEmpty() {
+    final var batches = new CopyOnWriteArrayList<Set<Integer>>();
+    final var loader = loader(10, Duration.ZERO, batches, keys -> Map.of());
+
+    assertTrue(loader.load(1).join().isEmpty());
+  }
+
+  @Test
+  void failsEveryKeyOfFailedBatch() {
+    final var batches = new CopyOnWriteArrayList<Set<Integer>>();
+    final var failure = new IllegalStateException("Database is down");
+    final var loader =
+        loader(
+            2,
+            Duration.ofHours(1),
+            batches,
+            keys -> {
+              throw failure;
+            });
+
+    final var first = loader.load(1);
+    final var second = loader.load(2);
+
+    for (var future : List.of(first, second)) {
+      final var thrown = assertThrows(CompletionException.class, future::join);
+      assertInstanceOf(IllegalStateException.class, thrown.getCause());
+    }
+  }
+
+  @Test
+  void resolvesPendingKeysOnClose() {
+    final var batches = new CopyOnWriteArrayList<Set<Integer>>();
+    final var loader = loader(10, Duration.ofHours(1), batches, BatchLoaderTest::squares);
+
+    final var future = loader.load(3);
+    loader.close();
+
+    assertTrue(future.isDone());
+    assertEquals(9, future.join().orElseThrow());
+    assertEquals(List.of(Set.of(3)), batches);
+    assertThrows(IllegalStateException.class, () -> loader.load(4));
+  }
+
+  private static BatchLoader<Integer, Integer> loader(
+      int maxBatchSize,
+      Duration window,
+      List<Set<Integer>> batches,
+      Function<Set<Integer>, Map<Integer, Integer>> batchFunction) {
+    return new BatchLoader<>(
+        "test",
+        new Configuration.Coalescing(true, maxBatchSize, window),
+        keys -> {
+          batches.add(Set.copyOf(keys));
+          return batchFunction.apply(keys);
+        },
+        new SimpleMeterRegistry());
+  }
+
+  private static Map<Integer, Integer> squares(Set<Integer> keys) {
+    return keys.stream().collect(Collectors.toMap(Function.identity(), key -> key * key));
+  }
+}
@@ -0,0 +1,33 @@
+package io.github.suppierk.ddd.javalin.configurations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ConfigurationTest {
+  @Test
+  void parsesEnumsRegardlessOfCaseAndSeparators() {
+    assertEquals(
+        Configuration.Routing.LEAST_IN_FLIGHT,
+        Configuration.parseEnum(Configuration.Routing.class, " least-in-flight "));
+    assertEquals(
+        Configuration.UpdateMode.LOAD_AND_STORE,
+        Configuration.parseEnum(Configuration.UpdateMode.class, "Load_And_Store"));
+    assertEquals(
+        Configuration.Threads.VIRTUAL,
+        Configuration.parseEnum(Configuration.Threads.class, "virtual"));
+  }
+
+  @Test
+  void listsAllowedValuesOfUnknownEnum() {
+    final var e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> Configuration.parseEnum(Configuration.Sink.class, "kafka"));
+
+    assertTrue(e.getMessage().contains("in-process, stdout, file"));
+    assertTrue(e.getMessage().contains("kafka"));
+  }
+}
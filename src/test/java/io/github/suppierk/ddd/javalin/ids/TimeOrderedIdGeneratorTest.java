@@ -0,0 +1,67 @@
+package io.github.suppierk.ddd.javalin.ids;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+
+class TimeOrderedIdGeneratorTest {
+  static final int IDS_PER_THREAD = 10_000;
+
+  final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+
+  @Test
+  void generatesVersion7() {
+    final var id = generator.next();
+
+    assertEquals(7, id.version());
+    assertEquals(2, id.variant());
+  }
+
+  @Test
+  void embedsCurrentTime() {
+    final long before = System.currentTimeMillis();
+    final var id = generator.next();
+    final long after = System.currentTimeMillis();
+
+    final long millis = id.getMostSignificantBits() >>> 16;
+    assertTrue(before <= millis && millis <= after + 1, "Timestamp %d".formatted(millis));
+  }
+
+  @Test
+  void ordersIdsOfThread() {
+    var previous = generator.next();
+
+    for (int i = 0; i < IDS_PER_THREAD; i++) {
+      final var next = generator.next();
+      assertTrue(
+          Long.compareUnsigned(previous.getMostSignificantBits(), next.getMostSignificantBits())
+              < 0,
+          "%s is not after %s".formatted(next, previous));
+      previous = next;
+    }
+  }
+
+  @Test
+  void generatesUniqueIdsAcrossThreads() {
+    final Set<UUID> ids = ConcurrentHashMap.newKeySet();
+    final int threads = 8;
+
+    try (final var executor = Executors.newFixedThreadPool(threads)) {
+      for (int thread = 0; thread < threads; thread++) {
+        executor.submit(
+            () -> {
+              for (int i = 0; i < IDS_PER_THREAD; i++) {
+                ids.add(generator.next());
+              }
+            });
+      }
+    }
+
+    assertEquals(threads * IDS_PER_THREAD, ids.size());
+  }
+}
@@ -0,0 +1,322 @@
+package io.github.suppierk.ddd.javalin.replication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReplicaRoutingDataSourceTest {
+  SimpleMeterRegistry meterRegistry;
+  FakeReplica first;
+  FakeReplica second;
+  FakeReplica primary;
+  ReplicaRoutingDataSource dataSource;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    first = new FakeReplica("first");
+    second = new FakeReplica("second");
+    primary = new FakeReplica("primary");
+  }
+
+  @AfterEach
+  void tearDown() {
+    dataSource.close();
+  }
+
+  @Test
+  void roundRobinAlternatesReplicas() throws SQLException {
+    dataSource = dataSource(Configuration.Routing.ROUND_ROBIN);
+
+    final var borrowed = new ArrayList<String>();
+    for (int i = 0; i < 4; i++) {
+      try (final var connection = dataSource.getConnection()) {
+        borrowed.add(connection.getCatalog());
+      }
+    }
+
+    assertEquals(List.of("first", "second", "first", "second"), borrowed);
+  }
+
+  @Test
+  void leastInFlightPrefersIdleReplica() throws SQLException {
+    dataSource = dataSource(Configuration.Routing.LEAST_IN_FLIGHT);
+
+    try (final var busy = dataSource.getConnection()) {
+      for (int i = 0; i < 3; i++) {
+        try (final var connection = dataSource.getConnection()) {
+          assertEquals(
+              busy.getCatalog().equals("first") ? "second" : "first", connection.getCatalog());
+        }
+      }
+    }
+
+    assertEquals(
+        0, meterRegistry.get("database.replica.in.flight").tag("replica", "first").gauge().value());
+  }
+
+  @Test
+  void usesReplicasOnlyOnceChecked() throws SQLException {
+    final Map<String, ReplicaRoutingDataSource.Host> replicas = new LinkedHashMap<>();
+    replicas.put("first", first.host());
+    first.available = false;
+
+    dataSource =
+        new ReplicaRoutingDataSource(
+            replicas,
+            primary.dataSource(),
+            new Configuration.Replication(
+                Configuration.Routing.ROUND_ROBIN,
+                Duration.ofSeconds(10),
+                Duration.ofHours(1),
+                true),
+            meterRegistry);
+
+    try (final var connection = dataSource.getConnection()) {
+      assertEquals("primary", connection.getCatalog());
+    }
+
+    first.available = true;
+    dataSource.checkHealth();
+
+    try (final var connection = dataSource.getConnection()) {
+      assertEquals("first", connection.getCatalog());
+    }
+  }
+
+  @Test
+  void checksHealthOverDedicatedConnection() throws SQLException {
+    final Map<String, ReplicaRoutingDataSource.Host> replicas = new LinkedHashMap<>();
+    replicas.put(
+        "first", new ReplicaRoutingDataSource.Host(first.dataSource(), second.dataSource()));
+    first.available = false;
+
+    dataSource =
+        new ReplicaRoutingDataSource(
+            replicas,
+            primary.dataSource(),
+            new Configuration.Replication(
+                Configuration.Routing.ROUND_ROBIN,
+                Duration.ofSeconds(10),
+                Duration.ofHours(1),
+                true),
+            meterRegistry);
+    dataSource.checkHealth();
+
+    // Pool which cannot hand out a connection does not make the replica look unhealthy
+    assertEquals(
+        1, meterRegistry.get("database.replica.healthy").tag("replica", "first").gauge().value());
+
+    second.available = false;
+    dataSource.checkHealth();
+
+    assertEquals(
+        0, meterRegistry.get("database.replica.healthy").tag("replica", "first").gauge().value());
+  }
+
+  @Test
+  void skipsLaggingReplica() throws SQLException {
+    dataSource = dataSource(Configuration.Routing.ROUND_ROBIN);
+
+    first.lagSeconds = 60;
+    dataSource.checkHealth();
+
+    for (int i = 0; i < 3; i++) {
+      try (final var connection = dataSource.getConnection()) {
+        assertEquals("second", connection.getCatalog());
+      }
+    }
+
+    assertEquals(
+        60, meterRegistry.get("database.replica.lag").tag("replica", "first").gauge().value());
+    assertEquals(
+        0, meterRegistry.get("database.replica.healthy").tag("replica", "first").gauge().value());
+
+    first.lagSeconds = 0;
+    dataSource.checkHealth();
+
+    final var borrowed = new HashSet<String>();
+    for (int i = 0; i < 2; i++) {
+      try (final var connection = dataSource.getConnection()) {
+        borrowed.add(connection.getCatalog());
+      }
+    }
+
+    assertEquals(Set.of("first", "second"), borrowed);
+  }
+
+  @Test
+  void fallsBackToPrimaryWhenNoReplicaIsHealthy() throws SQLException {
+    dataSource = dataSource(Configuration.Routing.LEAST_IN_FLIGHT);
+
+    first.lagSeconds = 60;
+    second.available = false;
+    dataSource.checkHealth();
+
+    try (final var connection = dataSource.getConnection()) {
+      assertEquals("primary", connection.getCatalog());
+    }
+
+    assertEquals(
+        1,
+        meterRegistry
+            .get("database.replica.fallback")
+            .tag("reason", "unhealthy")
+            .counter()
+            .count());
+  }
+
+  @Test
+  void readsYourWritesFromReplicaWhichHasReplayedThem() throws Exception {
+    dataSource = dataSource(Configuration.Routing.ROUND_ROBIN);
+
+    first.replayedLsn = "0/5";
+    second.replayedLsn = "0/1";
+    dataSource.checkHealth();
+
+    // First replica has caught up since the last check
+    first.replayedLsn = "1/0";
+
+    for (int i = 0; i < 3; i++) {
+      final var borrowed =
+          ReadYourWrites.requiring(
+              ReadYourWrites.parse("0/FF"),
+              () -> {
+                try (final var connection = dataSource.getConnection()) {
+                  return connection.getCatalog();
+                }
+              });
+      assertEquals("first", borrowed);
+    }
+
+    assertEquals(
+        0,
+        meterRegistry.get("database.replica.in.flight").tag("replica", "second").gauge().value());
+  }
+
+  @Test
+  void readsYourWritesFromPrimaryWhenReplicasAreBehind() throws Exception {
+    dataSource = dataSource(Configuration.Routing.LEAST_IN_FLIGHT);
+
+    final var borrowed =
+        ReadYourWrites.requiring(
+            ReadYourWrites.parse("16/B374D848"),
+            () -> {
+              try (final var connection = dataSource.getConnection()) {
+                return connection.getCatalog();
+              }
+            });
+
+    assertEquals("primary", borrowed);
+    assertEquals(
+        1, meterRegistry.get("database.replica.fallback").tag("reason", "stale").counter().count());
+  }
+
+  private ReplicaRoutingDataSource dataSource(Configuration.Routing routing) {
+    final Map<String, ReplicaRoutingDataSource.Host> replicas = new LinkedHashMap<>();
+    replicas.put("first", first.host());
+    replicas.put("second", second.host());
+    final var routingDataSource =
+        new ReplicaRoutingDataSource(
+            replicas,
+            primary.dataSource(),
+            new Configuration.Replication(
+                routing, Duration.ofSeconds(10), Duration.ofHours(1), true),
+            meterRegistry);
+
+    // Replicas are only used once checked, which does not have to wait for the background check
+    routingDataSource.checkHealth();
+    return routingDataSource;
+  }
+
+  /**
+   * Database which reports its name as the catalog and the configured replication state, failing to
+   * connect and to query while unavailable.
+   */
+  static final class FakeReplica {
+    private final String name;
+
+    volatile double lagSeconds;
+    volatile String replayedLsn = "0/0";
+    volatile boolean available = true;
+
+    FakeReplica(String name) {
+      this.name = name;
+    }
+
+    ReplicaRoutingDataSource.Host host() {
+      return new ReplicaRoutingDataSource.Host(dataSource(), dataSource());
+    }
+
+    DataSource dataSource() {
+      return proxy(
+          DataSource.class,
+          (proxy, method, args) -> {
+            if (!available) {
+              throw new SQLException("Connection refused");
+            }
+
+            return connection();
+          });
+    }
+
+    private Connection connection() {
+      return proxy(
+          Connection.class,
+          (proxy, method, args) ->
+              switch (method.getName()) {
+                case "getCatalog" -> name;
+                case "prepareStatement" -> {
+                  if (!available) {
+                    throw new SQLException("Connection reset");
+                  }
+
+                  yield statement();
+                }
+                default -> null;
+              });
+    }
+
+    private PreparedStatement statement() {
+      return proxy(
+          PreparedStatement.class,
+          (proxy, method, args) -> "executeQuery".equals(method.getName()) ? resultSet() : null);
+    }
+
+    private ResultSet resultSet() {
+      return proxy(
+          ResultSet.class,
+          (proxy, method, args) ->
+              switch (method.getName()) {
+                case "next" -> true;
+                case "getDouble" -> lagSeconds;
+                case "getString" -> replayedLsn;
+                default -> null;
+              });
+    }
+  }
+
+  private static <T> T proxy(Class<T> iface, InvocationHandler handler) {
+    return iface.cast(
+        Proxy.newProxyInstance(
+            ReplicaRoutingDataSourceTest.class.getClassLoader(), new Class<?>[] {iface}, handler));
+  }
+}
@@ -0,0 +1,252 @@
+package io.github.suppierk.ddd.javalin.users;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.suppierk.ddd.javalin.configurations.Configuration;
+import io.github.suppierk.ddd.javalin.users.dto.User;
+import io.github.suppierk.example.tables.records.UsersRecord;
+import io.javalin.json.JavalinJackson;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UsersCacheTest {
+  UsersCache usersCache;
+
+  @BeforeEach
+  void setUp() {
+    usersCache =
+        new UsersCache(
+            new Configuration.Cache(10, Duration.ofMinutes(1)),
+            Duration.ofMinutes(1),
+            new JavalinJackson(),
+            new SimpleMeterRegistry());
+  }
+
+  @Test
+  void loadsOnlyOnMiss() {
+    final var usersRecord = usersRecord(UUID.randomUUID(), 0);
+    final var loads = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      final var cached =
+          usersCache.get(
+              usersRecord.getId(),
+              id -> {
+                loads.incrementAndGet();
+                return Optional.of(new UsersCache.Loaded(usersRecord, 0));
+              });
+
+      assertTrue(cached.isPresent());
+      assertEquals(usersRecord.getVersion(), cached.get().version());
+    }
+
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void doesNotCacheAbsentUsers() {
+    final var id = UUID.randomUUID();
+    final var loads = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      final var cached =
+          usersCache.get(
+              id,
+              key -> {
+                loads.incrementAndGet();
+                return Optional.empty();
+              });
+
+      assertTrue(cached.isEmpty());
+    }
+
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  void keepsNewestVersion() {
+    final var id = UUID.randomUUID();
+    final var older = usersRecord(id, 1);
+    final var newer = usersRecord(id, 2);
+
+    usersCache.put(newer);
+    usersCache.put(older);
+
+    final var cached = usersCache.get(id, key -> Optional.of(new UsersCache.Loaded(older, 0)));
+    assertTrue(cached.isPresent());
+    assertEquals(newer.getVersion(), cached.get().version());
+  }
+
+  @Test
+  void loadsOutsideOfTheCache() {
+    final var id = UUID.randomUUID();
+    final var loaded = usersRecord(id, 1);
+    final var written = usersRecord(id, 2);
+
+    final var cached =
+        usersCache.get(
+            id,
+            key -> {
+              // Write which commits while the user is being loaded
+              usersCache.put(written);
+              return Optional.of(new UsersCache.Loaded(loaded, 0));
+            });
+
+    assertTrue(cached.isPresent());
+    assertEquals(written.getVersion(), cached.get().version());
+  }
+
+  @Test
+  void invalidationForcesReload() {
+    final var id = UUID.randomUUID();
+    final var cached = usersRecord(id, 1);
+    final var reloaded = usersRecord(id, 2);
+
+    usersCache.put(cached);
+    usersCache.invalidate(id);
+
+    final var cachedUser =
+        usersCache.get(id, key -> Optional.of(new UsersCache.Loaded(reloaded, 0)));
+    assertTrue(cachedUser.isPresent());
+    assertEquals(reloaded.getVersion(), cachedUser.get().version());
+  }
+
+  @Test
+  void deletionRefusesStaleRecords() {
+    final var id = UUID.randomUUID();
+    final var stale = usersRecord(id, 1);
+    final var loads = new AtomicInteger();
+
+    usersCache.put(stale);
+    usersCache.delete(id);
+    usersCache.put(stale);
+    usersCache.put(usersRecord(id, 2));
+    usersCache.invalidate(id);
+
+    assertTrue(
+        usersCache
+            .get(
+                id,
+                key -> {
+                  loads.incrementAndGet();
+                  return Optional.of(new UsersCache.Loaded(stale, 0));
+                })
+            .isEmpty());
+    assertTrue(
+        usersCache
+            .get(
+                id,
+                100,
+                key -> {
+                  loads.incrementAndGet();
+                  return Optional.of(stale);
+                })
+            .isEmpty());
+    assertEquals(0, loads.get());
+  }
+
+  @Test
+  void cachesOnlyLoadsWhichObservedWrites() {
+    final var id = UUID.randomUUID();
+    final var written = usersRecord(id, 2);
+    final var loads = new AtomicInteger();
+
+    usersCache.put(written, 100);
+    usersCache.invalidate(id);
+
+    // Replica which has not replayed the write yet
+    for (int i = 0; i < 2; i++) {
+      final var lagging =
+          usersCache.get(
+              id,
+              key -> {
+                loads.incrementAndGet();
+                return Optional.of(new UsersCache.Loaded(usersRecord(id, 1), 50));
+              });
+
+      assertTrue(lagging.isPresent());
+      assertEquals(1, lagging.get().version());
+    }
+
+    assertEquals(2, loads.get());
+
+    // Replica which has replayed the write
+    for (int i = 0; i < 2; i++) {
+      final var caughtUp =
+          usersCache.get(
+              id,
+              key -> {
+                loads.incrementAndGet();
+                return Optional.of(new UsersCache.Loaded(written, 100));
+              });
+
+      assertTrue(caughtUp.isPresent());
+      assertEquals(written.getVersion(), caughtUp.get().version());
+    }
+
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  void servesEntriesWhichObservedRequiredPosition() {
+    final var id = UUID.randomUUID();
+    final var written = usersRecord(id, 1);
+    final var loaded = usersRecord(id, 2);
+    final var loads = new AtomicInteger();
+
+    usersCache.put(written, 100);
+
+    final var observed =
+        usersCache.get(
+            id,
+            100,
+            key -> {
+              loads.incrementAndGet();
+              return Optional.of(loaded);
+            });
+    assertTrue(observed.isPresent());
+    assertEquals(written.getVersion(), observed.get().version());
+    assertEquals(0, loads.get());
+
+    final var reloaded =
+        usersCache.get(
+            id,
+            200,
+            key -> {
+              loads.incrementAndGet();
+              return Optional.of(loaded);
+            });
+    assertTrue(reloaded.isPresent());
+    assertEquals(loaded.getVersion(), reloaded.get().version());
+    assertEquals(200, reloaded.get().lsn());
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void storesSerializedUserWithEntityTag() throws Exception {
+    final var usersRecord = usersRecord(UUID.randomUUID(), 3);
+
+    final var entry = usersCache.put(usersRecord);
+
+    assertEquals("\"%s-3\"".formatted(usersRecord.getId()), entry.etag());
+    assertEquals(new User(usersRecord), new ObjectMapper().readValue(entry.json(), User.class));
+  }
+
+  private static UsersRecord usersRecord(UUID id, int version) {
+    return new UsersRecord()
+        .setId(id)
+        .setVersion(version)
+        .setCreatedAt(LocalDateTime.now())
+        .setUsername("user" + version)
+        .setPassword("password" + version)
+        .setEmail("email" + version + "@email.com");
+  }
+}
@@ -3,6 +3,7 @@ package io.github.suppierk.test;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
 import org.awaitility.Awaitility;
 import org.flywaydb.core.Flyway;
@@ -10,6 +11,7 @@ import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.Table;
+import org.jooq.TableRecord;
 import org.jooq.UpdatableRecord;
 import org.jooq.impl.DSL;
 import org.junit.jupiter.api.AfterAll;
@@ -35,6 +37,7 @@ public abstract class AbstractDatabaseTest {
     Flyway.configure()
         .dataSource(POSTGRESQL.getJdbcUrl(), POSTGRESQL.getUsername(), POSTGRESQL.getPassword())
         .locations("classpath:db/migration")
+        .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
         .load()
         .migrate();
 
@@ -83,6 +86,10 @@ public abstract class AbstractDatabaseTest {
     dsl.truncate(tables).cascade().execute();
   }
 
+  protected final void insert(TableRecord<?>... records) {
+    dsl.batchInsert(records).execute();
+  }
+
   protected final int count(Table<?> table, Condition condition) {
     return dsl.selectCount().from(table).where(condition).fetchOne(0, int.class);
   }